@@ -14,9 +14,12 @@ CREATE TABLE users (
     password_reset_expiry TIMESTAMP NULL,
     avatar_url VARCHAR(512),
     gender VARCHAR(32),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    data_version BIGINT NOT NULL DEFAULT 0
 );
 
+CREATE INDEX idx_users_password_reset_token ON users(password_reset_token);
+
 CREATE TABLE user_roles (
     user_id BIGINT NOT NULL,
     role VARCHAR(64) NOT NULL,
@@ -31,8 +34,15 @@ CREATE TABLE user_tracked_activities (
     CONSTRAINT fk_user_tracked_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+-- Activity ids come from a pooled sequence (allocation size 50) so inserts can be batched.
+-- MySQL has no sequences, so Hibernate keeps the next value in a one-row table.
+CREATE TABLE activities_seq (
+    next_val BIGINT
+);
+INSERT INTO activities_seq VALUES (1);
+
 CREATE TABLE activities (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT PRIMARY KEY,
     user_id BIGINT,
     type VARCHAR(64) NOT NULL,
     description TEXT,
@@ -49,7 +59,72 @@ CREATE TABLE activities (
     comments INT,
     shares INT,
     occurred_at TIMESTAMP NOT NULL,
-    CONSTRAINT fk_activity_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL
+    external_key VARCHAR(128),
+    CONSTRAINT fk_activity_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL,
+    -- Re-polled integration events are stored once; NULL keys (manual entries) never conflict
+    CONSTRAINT uq_activities_user_external_key UNIQUE (user_id, external_key)
+);
+
+-- Keyset pagination walks (occurred_at, id) backwards per user, optionally per type
+CREATE INDEX idx_activities_user_occurred ON activities(user_id, occurred_at, id);
+CREATE INDEX idx_activities_user_type_occurred ON activities(user_id, type, occurred_at, id);
+
+-- Manifest of archived activities: one gzip NDJSON file per user and UTC month, valid up to `bytes`
+CREATE TABLE activity_segments (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    segment_month DATE NOT NULL,
+    path VARCHAR(255) NOT NULL,
+    row_count BIGINT NOT NULL,
+    bytes BIGINT NOT NULL,
+    min_occurred_at TIMESTAMP NOT NULL,
+    max_occurred_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_segment_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_activity_segments UNIQUE (user_id, segment_month)
+);
+
+CREATE TABLE archived_activity_keys (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    external_key VARCHAR(128) NOT NULL,
+    activity_id BIGINT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_archived_key_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_archived_activity_keys UNIQUE (user_id, external_key)
+);
+
+CREATE TABLE export_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    format VARCHAR(16) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    row_count BIGINT NOT NULL,
+    bytes BIGINT NOT NULL,
+    sha256 VARCHAR(64),
+    error VARCHAR(255),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP NULL,
+    expires_at TIMESTAMP NULL,
+    CONSTRAINT fk_export_job_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_export_jobs_user_status ON export_jobs(user_id, status);
+CREATE INDEX idx_export_jobs_expires_at ON export_jobs(expires_at);
+
+CREATE TABLE export_chunks (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    job_id VARCHAR(36) NOT NULL,
+    seq INT NOT NULL,
+    row_count BIGINT NOT NULL,
+    bytes BIGINT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    archive_month DATE NULL,
+    last_occurred_at TIMESTAMP NULL,
+    last_id BIGINT NULL,
+    CONSTRAINT fk_export_chunk_job FOREIGN KEY (job_id) REFERENCES export_jobs(id) ON DELETE CASCADE,
+    CONSTRAINT uq_export_chunks UNIQUE (job_id, seq)
 );
 
 CREATE TABLE goals (
@@ -62,13 +137,14 @@ CREATE TABLE goals (
     custom_period_days DOUBLE,
     unit VARCHAR(32),
     current_value DOUBLE,
+    progress_window_start TIMESTAMP NULL,
     start_date DATE,
     end_date DATE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT fk_goal_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
-CREATE INDEX idx_goals_user ON goals(user_id);
+CREATE INDEX idx_goals_user_type ON goals(user_id, activity_type);
 
 CREATE TABLE goal_progress (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -80,4 +156,27 @@ CREATE TABLE goal_progress (
     CONSTRAINT uq_goal_progress UNIQUE (goal_id, progress_date)
 );
 
+CREATE TABLE activity_daily_rollup (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    rollup_day DATE NOT NULL,
+    activity_type VARCHAR(64) NOT NULL,
+    rpg_stat VARCHAR(16) NOT NULL,
+    total_value DOUBLE NOT NULL,
+    activity_count BIGINT NOT NULL,
+    CONSTRAINT fk_rollup_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_activity_daily_rollup UNIQUE (user_id, rollup_day, activity_type, rpg_stat)
+);
+
+CREATE TABLE activity_streaks (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    activity_type VARCHAR(64) NOT NULL,
+    current_length INT NOT NULL,
+    last_active_day DATE NOT NULL,
+    longest_length INT NOT NULL,
+    CONSTRAINT fk_streak_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT uq_activity_streaks UNIQUE (user_id, activity_type)
+);
+
 -- Optional derived views for analytics can be added on top of these base tables.
@@ -0,0 +1,12 @@
+-- Indexes for the hot repository finders, declared as @Index on the entities.
+-- ddl-auto=update creates missing indexes on startup; run this by hand where schema updates are disabled.
+-- MySQL 8+/MariaDB 10.6+; db-schema.sql already includes these for new databases.
+
+CREATE INDEX idx_activities_user_occurred ON activities(user_id, occurred_at, id);
+CREATE INDEX idx_activities_user_type_occurred ON activities(user_id, type, occurred_at, id);
+
+-- (user_id, activity_type) also serves lookups by user alone
+CREATE INDEX idx_goals_user_type ON goals(user_id, activity_type);
+DROP INDEX idx_goals_user ON goals;
+
+CREATE INDEX idx_users_password_reset_token ON users(password_reset_token);
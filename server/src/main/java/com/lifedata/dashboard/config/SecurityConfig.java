@@ -26,6 +26,8 @@ import com.lifedata.dashboard.security.JwtAuthenticationFilter;
 import com.lifedata.dashboard.security.GoogleOAuthSuccessHandler;
 import com.lifedata.dashboard.service.UserDetailsServiceImpl;
 
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
@@ -52,6 +54,8 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
             .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
+                    // Streamed bodies finish on an async dispatch of a request that was already authorized
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     .requestMatchers("/api/auth/**", "/actuator/health", "/actuator/info", "/actuator/prometheus", "/ws/**", "/oauth2/**", "/login/oauth2/**").permitAll()
                     .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
                     .requestMatchers(HttpMethod.GET, "/api/public/**").permitAll()
@@ -78,9 +82,16 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(resolveAllowedOrigins());
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Origin"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Origin", "Prefer", "Range", "If-Range",
+                "Content-Encoding", "Last-Event-ID"));
         configuration.setAllowCredentials(true);
         configuration.addExposedHeader("Authorization");
+        configuration.addExposedHeader("Preference-Applied");
+        configuration.addExposedHeader("X-Next-Cursor");
+        configuration.addExposedHeader("Location");
+        configuration.addExposedHeader("Content-Disposition");
+        configuration.addExposedHeader("Content-Range");
+        configuration.addExposedHeader("ETag");
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
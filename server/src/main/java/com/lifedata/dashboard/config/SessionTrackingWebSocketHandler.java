@@ -0,0 +1,85 @@
+package com.lifedata.dashboard.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * The STOMP WebSocket handler, keeping hold of each session's send buffer so its size can be reported. A session
+ * whose buffer or send time exceeds the transport limits is closed by the handler; those, sessions that never sent
+ * CONNECT and transport failures are counted as {@code websocket.sessions.closed} by reason.
+ */
+class SessionTrackingWebSocketHandler extends SubProtocolWebSocketHandler implements MeterBinder {
+
+    private final Map<String, ConcurrentWebSocketSessionDecorator> sessions = new ConcurrentHashMap<>();
+
+    SessionTrackingWebSocketHandler(MessageChannel clientInboundChannel, SubscribableChannel clientOutboundChannel) {
+        super(clientInboundChannel, clientOutboundChannel);
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        WebSocketSession decorated = super.decorateSession(session);
+        if (decorated instanceof ConcurrentWebSocketSessionDecorator buffered) {
+            sessions.put(session.getId(), buffered);
+        }
+        return decorated;
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        sessions.remove(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("websocket.sessions", sessions, Map::size)
+                .description("Open STOMP sessions, all transports")
+                .register(registry);
+        Gauge.builder("websocket.sessions.buffered", this, SessionTrackingWebSocketHandler::bufferedBytes)
+                .baseUnit("bytes")
+                .description("Outbound bytes waiting in session send buffers")
+                .register(registry);
+        Gauge.builder("websocket.sessions.buffered.max", this, SessionTrackingWebSocketHandler::maxBufferedBytes)
+                .baseUnit("bytes")
+                .description("Largest send buffer of a single session")
+                .register(registry);
+        FunctionCounter.builder("websocket.sessions.closed", this, handler -> handler.getStats().getLimitExceededSessions())
+                .tag("reason", "send_limit")
+                .register(registry);
+        FunctionCounter.builder("websocket.sessions.closed", this, handler -> handler.getStats().getNoMessagesReceivedSessions())
+                .tag("reason", "no_connect")
+                .register(registry);
+        FunctionCounter.builder("websocket.sessions.closed", this, handler -> handler.getStats().getTransportErrorSessions())
+                .tag("reason", "transport_error")
+                .register(registry);
+    }
+
+    long bufferedBytes() {
+        long total = 0;
+        for (ConcurrentWebSocketSessionDecorator session : sessions.values()) {
+            total += session.getBufferSize();
+        }
+        return total;
+    }
+
+    int maxBufferedBytes() {
+        int max = 0;
+        for (ConcurrentWebSocketSessionDecorator session : sessions.values()) {
+            max = Math.max(max, session.getBufferSize());
+        }
+        return max;
+    }
+}
@@ -0,0 +1,21 @@
+package com.lifedata.dashboard.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+/**
+ * What {@code @EnableWebSocketMessageBroker} imports, with the STOMP handler swapped for one that exposes session
+ * send buffers as metrics. Broker, transport and channel settings stay in {@link WebSocketConfig}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class WebSocketBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Bean
+    @Override
+    public SessionTrackingWebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+            AbstractSubscribableChannel clientOutboundChannel) {
+        return new SessionTrackingWebSocketHandler(clientInboundChannel, clientOutboundChannel);
+    }
+}
@@ -1,23 +1,166 @@
 package com.lifedata.dashboard.config;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import com.lifedata.dashboard.security.StompAuthChannelInterceptor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 
+/**
+ * Live updates are per user: services publish with {@code convertAndSendToUser(email, "/queue/...")} and clients
+ * subscribe to {@code /user/queue/...}, so a write reaches only the sessions of its owner. There are no shared
+ * topics.
+ * <p>
+ * A slow client must not hold memory for long: a session whose send buffer or time spent blocked on a send passes
+ * its limit is closed, and one that goes three heartbeat intervals without sending anything is dropped by the
+ * broker. Outbound frames are written by a bounded pool; once its queue is full the publishing thread writes
+ * itself, which slows publishers down instead of buffering without limit. The infrastructure beans come from
+ * {@link WebSocketBrokerConfig}.
+ */
 @Configuration
-@EnableWebSocketMessageBroker
-public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, DisposableBean {
+
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final TaskScheduler brokerScheduler;
+    private final int brokerCacheLimit;
+    private final long heartbeatMillis;
+    private final int sendTimeLimitMillis;
+    private final int sendBufferBytes;
+    private final int messageSizeBytes;
+    private final int timeToFirstMessageMillis;
+    private final Counter reapedSessions;
+    private final Counter saturatedSends;
+    private final ThreadPoolExecutor outboundPool;
+    private final ExecutorService outboundExecutor;
+
+    public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+            @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler brokerScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${app.websocket.broker-cache-limit:16384}") int brokerCacheLimit,
+            @Value("${app.websocket.heartbeat-ms:10000}") long heartbeatMillis,
+            @Value("${app.websocket.send-time-limit-ms:10000}") int sendTimeLimitMillis,
+            @Value("${app.websocket.send-buffer-bytes:131072}") int sendBufferBytes,
+            @Value("${app.websocket.message-size-bytes:65536}") int messageSizeBytes,
+            @Value("${app.websocket.time-to-first-message-ms:30000}") int timeToFirstMessageMillis,
+            @Value("${app.websocket.outbound-threads:4}") int outboundThreads,
+            @Value("${app.websocket.outbound-queue-capacity:10000}") int outboundQueueCapacity) {
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.brokerScheduler = brokerScheduler;
+        this.brokerCacheLimit = brokerCacheLimit;
+        this.heartbeatMillis = heartbeatMillis;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferBytes = sendBufferBytes;
+        this.messageSizeBytes = messageSizeBytes;
+        this.timeToFirstMessageMillis = timeToFirstMessageMillis;
+        this.reapedSessions = Counter.builder("websocket.sessions.closed")
+                .tag("reason", "heartbeat")
+                .register(meterRegistry);
+        this.saturatedSends = Counter.builder("websocket.outbound.saturated")
+                .description("Frames written on the publishing thread because the outbound queue was full")
+                .register(meterRegistry);
+        int threads = Math.max(1, outboundThreads);
+        this.outboundPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, outboundQueueCapacity)), daemonThreads(),
+                callerRunsCounted());
+        this.outboundPool.allowCoreThreadTimeOut(true);
+        this.outboundExecutor = ExecutorServiceMetrics.monitor(meterRegistry, outboundPool, "clientOutboundChannel");
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        config.enableSimpleBroker("/queue")
+                .setHeartbeatValue(new long[] {heartbeatMillis, heartbeatMillis})
+                .setTaskScheduler(brokerScheduler);
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
+        // Each session subscribes to its own destinations; a lookup missing this cache scans every subscription
+        config.setCacheLimit(brokerCacheLimit);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws").setAllowedOriginPatterns("*");
+        // The web client connects through SockJS; plain WebSocket clients use /ws/websocket
+        registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        // Writes sent over /app are applied in the order each session sent them
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferBytes)
+                .setMessageSizeLimit(messageSizeBytes)
+                .setTimeToFirstMessage(timeToFirstMessageMillis);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Spring's broker stats bean looks the channel executor up as a TaskExecutor
+        TaskExecutor executor = outboundExecutor::execute;
+        registration.executor(executor).interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                // The broker acknowledges a client DISCONNECT with the original frame attached; without one, the
+                // session missed its heartbeats
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.DISCONNECT_ACK
+                        && message.getHeaders().get(SimpMessageHeaderAccessor.DISCONNECT_MESSAGE_HEADER) == null) {
+                    reapedSessions.increment();
+                }
+                return message;
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        outboundPool.shutdown();
+    }
+
+    private RejectedExecutionHandler callerRunsCounted() {
+        RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+        return (task, executor) -> {
+            saturatedSends.increment();
+            callerRuns.rejectedExecution(task, executor);
+        };
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "clientOutboundChannel-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
@@ -1,51 +1,162 @@
 package com.lifedata.dashboard.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.lifedata.dashboard.dto.ActivityBatchRequest;
+import com.lifedata.dashboard.dto.ActivityBatchResponse;
+import com.lifedata.dashboard.dto.ActivityImportResponse;
+import com.lifedata.dashboard.dto.ActivityPage;
 import com.lifedata.dashboard.dto.ActivityRequest;
 import com.lifedata.dashboard.dto.ActivityResponse;
 import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.service.ActivityEventStream;
+import com.lifedata.dashboard.service.ActivityImportService;
+import com.lifedata.dashboard.service.ActivityIngestQueue;
 import com.lifedata.dashboard.service.ActivityService;
 import com.lifedata.dashboard.service.CurrentUserService;
+import com.lifedata.dashboard.service.DataVersionService;
 import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/activities")
 public class ActivityController {
 
+    // List endpoints keep plain array bodies; the cursor for the next page travels in this header
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ActivityService activityService;
     private final CurrentUserService currentUserService;
+    private final DataVersionService dataVersionService;
+    private final ActivityIngestQueue ingestQueue;
+    private final ActivityImportService importService;
+    private final ActivityEventStream eventStream;
 
-    public ActivityController(ActivityService activityService, CurrentUserService currentUserService) {
+    public ActivityController(ActivityService activityService, CurrentUserService currentUserService,
+            DataVersionService dataVersionService, ActivityIngestQueue ingestQueue, ActivityImportService importService,
+            ActivityEventStream eventStream) {
         this.activityService = activityService;
         this.currentUserService = currentUserService;
+        this.dataVersionService = dataVersionService;
+        this.ingestQueue = ingestQueue;
+        this.importService = importService;
+        this.eventStream = eventStream;
     }
 
+    /**
+     * Clients that send {@code Prefer: respond-async} get 202 with an ingest id when async ingest is enabled;
+     * the activity is written shortly after and announced on the usual topics.
+     */
     @PostMapping
-    public ResponseEntity<ActivityResponse> create(@Valid @RequestBody ActivityRequest request) {
+    public ResponseEntity<?> create(@Valid @RequestBody ActivityRequest request,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        if (ingestQueue.isEnabled() && prefer != null && prefer.contains("respond-async")) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Preference-Applied", "respond-async")
+                    .body(ingestQueue.submit(currentUserService.currentUser(), request));
+        }
         return ResponseEntity.ok(activityService.addActivity(currentUserService.currentUser(), request));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ActivityBatchResponse> createBatch(@Valid @RequestBody ActivityBatchRequest request) {
+        return ResponseEntity.ok(activityService.addActivities(currentUserService.currentUser(), request.activities()));
+    }
+
+    /**
+     * Imports a raw CSV body (with a header row, as produced by the CSV export) in batches as it is read.
+     * Rejected rows are listed in the response rather than failing the upload; the body may be gzip-encoded.
+     */
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public ResponseEntity<ActivityImportResponse> importCsv(InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        return ResponseEntity.ok(importService.importCsv(currentUserService.currentUser(), decoded(body, contentEncoding)));
+    }
+
+    @PostMapping(path = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ActivityImportResponse> importNdjson(InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        return ResponseEntity.ok(importService.importNdjson(currentUserService.currentUser(), decoded(body, contentEncoding)));
+    }
+
     @GetMapping
-    public ResponseEntity<List<ActivityResponse>> recent() {
-        return ResponseEntity.ok(activityService.recent(currentUserService.currentUser()));
+    public ResponseEntity<List<ActivityResponse>> recent(@RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor) {
+        return paged(ResponseEntity.ok(), activityService.recent(currentUserService.currentUser(), limit, cursor));
     }
 
     @GetMapping("/feed")
-    public ResponseEntity<List<ActivityResponse>> feed(@RequestParam(defaultValue = "20") int limit) {
-        return ResponseEntity.ok(activityService.feed(currentUserService.currentUser(), limit));
+    public ResponseEntity<List<ActivityResponse>> feed(@RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor, WebRequest webRequest) {
+        UserAccount user = currentUserService.currentUser();
+        String etag = dataVersionService.etag(user, DataVersionService.versionOf(user));
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return paged(ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).eTag(etag),
+                activityService.feed(user, limit, cursor));
+    }
+
+    /**
+     * Server-sent events of the user's new activities, one {@code activity} event per write with the activity id
+     * as event id. A reconnecting client sends the last id it saw as {@code Last-Event-ID} (EventSource does so
+     * itself) and first gets what it missed; an id that is not a number is ignored.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                // Keeps nginx-style proxies from buffering the events
+                .header("X-Accel-Buffering", "no")
+                .body(eventStream.open(currentUserService.currentUser(), eventId(lastEventId)));
     }
 
     @GetMapping(params = "type")
-    public ResponseEntity<List<ActivityResponse>> byType(@RequestParam ActivityType type) {
-        return ResponseEntity.ok(activityService.byType(currentUserService.currentUser(), type));
+    public ResponseEntity<List<ActivityResponse>> byType(@RequestParam ActivityType type,
+            @RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String cursor) {
+        return paged(ResponseEntity.ok(), activityService.byType(currentUserService.currentUser(), type, limit, cursor));
+    }
+
+    private static Long eventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.strip());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static InputStream decoded(InputStream body, String contentEncoding) throws IOException {
+        return "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+    }
+
+    private static ResponseEntity<List<ActivityResponse>> paged(ResponseEntity.BodyBuilder response, ActivityPage page) {
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 }
@@ -1,13 +1,24 @@
 package com.lifedata.dashboard.controller;
 
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.lifedata.dashboard.dto.DashboardQuery;
 import com.lifedata.dashboard.dto.DashboardSummary;
+import com.lifedata.dashboard.model.TrendGranularity;
+import com.lifedata.dashboard.model.UserAccount;
 import com.lifedata.dashboard.service.CurrentUserService;
 import com.lifedata.dashboard.service.DashboardService;
+import com.lifedata.dashboard.service.DashboardSummaryCache.VersionedSummary;
+import com.lifedata.dashboard.service.DataVersionService;
 import com.lifedata.dashboard.service.InsightsService;
 
 @RestController
@@ -17,16 +28,34 @@ public class DashboardController {
     private final DashboardService dashboardService;
     private final CurrentUserService currentUserService;
     private final InsightsService insightsService;
+    private final DataVersionService dataVersionService;
 
-    public DashboardController(DashboardService dashboardService, CurrentUserService currentUserService, InsightsService insightsService) {
+    public DashboardController(DashboardService dashboardService, CurrentUserService currentUserService, InsightsService insightsService,
+            DataVersionService dataVersionService) {
         this.dashboardService = dashboardService;
         this.currentUserService = currentUserService;
         this.insightsService = insightsService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping
-    public ResponseEntity<DashboardSummary> summary() {
-        return ResponseEntity.ok(dashboardService.summary(currentUserService.currentUser()));
+    public ResponseEntity<DashboardSummary> summary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String granularity,
+            WebRequest webRequest) {
+        DashboardQuery query = new DashboardQuery(from, to, TrendGranularity.parse(granularity));
+        UserAccount user = currentUserService.currentUser();
+        // Streak lengths and the default window move at the user's midnight, so the tag is day-scoped
+        if (webRequest.checkNotModified(dataVersionService.dailyEtag(user, DataVersionService.versionOf(user)))) {
+            return null;
+        }
+        // Tagged with the version the summary was built at, which a cached one may be ahead of
+        VersionedSummary summary = dashboardService.summary(user, query);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(dataVersionService.dailyEtag(user, summary.dataVersion()))
+                .body(summary.summary());
     }
 
     @GetMapping("/leaderboard")
@@ -1,33 +1,224 @@
 package com.lifedata.dashboard.controller;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.lifedata.dashboard.dto.ExportJobResponse;
 import com.lifedata.dashboard.dto.ExportResponse;
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.UserAccount;
 import com.lifedata.dashboard.service.CurrentUserService;
+import com.lifedata.dashboard.service.ExportJobService;
 import com.lifedata.dashboard.service.ExportService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
 @RestController
 @RequestMapping("/api/export")
 public class ExportController {
 
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+    // Tomcat's sendfile hand-off: set these and return without writing, and the connector sends the file region
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String STREAM_RETRY_AFTER_SECONDS = "30";
+
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
     private final CurrentUserService currentUserService;
 
-    public ExportController(ExportService exportService, CurrentUserService currentUserService) {
+    public ExportController(ExportService exportService, ExportJobService exportJobService,
+            CurrentUserService currentUserService) {
         this.exportService = exportService;
+        this.exportJobService = exportJobService;
         this.currentUserService = currentUserService;
     }
 
+    @GetMapping("/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return export(ExportFormat.CSV, acceptEncoding);
+    }
+
+    @GetMapping("/ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjson(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return export(ExportFormat.NDJSON, acceptEncoding);
+    }
+
+    /**
+     * Starts a background export; poll the Location until it is completed, then fetch its download URL.
+     */
     @PostMapping("/csv")
-    public ResponseEntity<ExportResponse> exportCsv() {
-        return ResponseEntity.ok(exportService.exportCsv(currentUserService.currentUser()));
+    public ResponseEntity<ExportJobResponse> submitCsv() {
+        return submit(ExportFormat.CSV);
+    }
+
+    @PostMapping("/ndjson")
+    public ResponseEntity<ExportJobResponse> submitNdjson() {
+        return submit(ExportFormat.NDJSON);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ExportJobResponse> job(@PathVariable String id) {
+        return ResponseEntity.ok(exportJobService.get(currentUserService.currentUser(), id));
+    }
+
+    /**
+     * Serves a completed export with single-range support. Malformed or multi-part ranges get the whole file,
+     * and an If-Range that no longer matches the checksum ETag does too.
+     */
+    @GetMapping("/jobs/{id}/download")
+    public void download(@PathVariable String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        ExportJobService.Download download = exportJobService.download(currentUserService.currentUser(), id);
+        long length = download.length();
+        String etag = "\"" + download.sha256() + "\"";
+        response.setContentType(download.format().contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("activities." + download.format().extension())
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException ex) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count > 0) {
+            send(download.file(), start, count, request, response);
+        }
     }
 
     @PostMapping("/email")
     public ResponseEntity<ExportResponse> emailDigest() {
         return ResponseEntity.ok(exportService.sendEmailDigest(currentUserService.currentUser()));
     }
+
+    /**
+     * Rows are written on the async request thread as they are read, so there is no Content-Length; clients that
+     * accept gzip get the body compressed on the fly. While every streaming slot is taken the answer is 503 with
+     * a Retry-After; the background export (POST) has no such limit.
+     */
+    private ResponseEntity<StreamingResponseBody> export(ExportFormat format, String acceptEncoding) {
+        // Resolved here: the security context is not carried over to the thread that writes the body
+        UserAccount user = currentUserService.currentUser();
+        if (!exportService.tryStartStream()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, STREAM_RETRY_AFTER_SECONDS)
+                    .build();
+        }
+        try {
+            return stream(user, format, acceptEncoding);
+        } catch (RuntimeException ex) {
+            exportService.finishStream();
+            throw ex;
+        }
+    }
+
+    // The slot is handed back when the body has been written, or has failed to be
+    private ResponseEntity<StreamingResponseBody> stream(UserAccount user, ExportFormat format, String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("activities." + format.extension())
+                        .build()
+                        .toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(out -> {
+                try {
+                    exportService.export(user, format, out);
+                } finally {
+                    exportService.finishStream();
+                }
+            });
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+            try {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_BYTES);
+                exportService.export(user, format, compressed);
+                compressed.finish();
+            } finally {
+                exportService.finishStream();
+            }
+        });
+    }
+
+    private ResponseEntity<ExportJobResponse> submit(ExportFormat format) {
+        ExportJobResponse job = exportJobService.submit(currentUserService.currentUser(), format);
+        return ResponseEntity.accepted().location(URI.create("/api/export/jobs/" + job.id())).body(job);
+    }
+
+    /**
+     * Hands the region to Tomcat's sendfile when the connector supports it; otherwise copies it with
+     * {@link FileChannel#transferTo}, which still avoids a user-space buffer in this code.
+     */
+    private static void send(Path file, long start, long count, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long sent = 0;
+            while (sent < count) {
+                long transferred = channel.transferTo(start + sent, count - sent, target);
+                if (transferred <= 0) {
+                    throw new EOFException("Export file " + file + " ended early");
+                }
+                sent += transferred;
+            }
+        }
+    }
 }
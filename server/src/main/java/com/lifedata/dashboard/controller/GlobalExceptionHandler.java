@@ -17,6 +17,8 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 
 import jakarta.validation.ConstraintViolationException;
 
+import com.lifedata.dashboard.exception.BadRequestException;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -44,7 +46,7 @@ public class GlobalExceptionHandler {
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class,
-            MissingServletRequestParameterException.class, IllegalArgumentException.class})
+            MissingServletRequestParameterException.class, BadRequestException.class})
     public Map<String, Object> handleBadRequest(Exception ex) {
         Map<String, Object> body = new HashMap<>();
         body.put("error", "bad_request");
@@ -3,6 +3,7 @@ package com.lifedata.dashboard.controller;
 import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,12 +13,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.lifedata.dashboard.dto.GoalHistoryResponse;
 import com.lifedata.dashboard.dto.GoalRequest;
 import com.lifedata.dashboard.dto.GoalResponse;
 import com.lifedata.dashboard.model.UserAccount;
 import com.lifedata.dashboard.service.CurrentUserService;
+import com.lifedata.dashboard.service.DataVersionService;
 import com.lifedata.dashboard.service.GoalService;
 import jakarta.validation.Valid;
 
@@ -27,10 +30,12 @@ public class GoalController {
 
     private final GoalService goalService;
     private final CurrentUserService currentUserService;
+    private final DataVersionService dataVersionService;
 
-    public GoalController(GoalService goalService, CurrentUserService currentUserService) {
+    public GoalController(GoalService goalService, CurrentUserService currentUserService, DataVersionService dataVersionService) {
         this.goalService = goalService;
         this.currentUserService = currentUserService;
+        this.dataVersionService = dataVersionService;
     }
 
     @PostMapping
@@ -39,8 +44,17 @@ public class GoalController {
     }
 
     @GetMapping
-    public ResponseEntity<List<GoalResponse>> list() {
-        return ResponseEntity.ok(goalService.list(currentUserService.currentUser()));
+    public ResponseEntity<List<GoalResponse>> list(WebRequest webRequest) {
+        // The version comes with the user, which is read before the goals, so the list is at least that new
+        UserAccount user = currentUserService.currentUser();
+        String etag = dataVersionService.etag(user, DataVersionService.versionOf(user));
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag)
+                .body(goalService.list(user));
     }
 
     @GetMapping("/{id}/history")
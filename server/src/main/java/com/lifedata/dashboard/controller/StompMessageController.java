@@ -0,0 +1,123 @@
+package com.lifedata.dashboard.controller;
+
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.handler.annotation.support.MethodArgumentNotValidException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.FieldError;
+
+import com.lifedata.dashboard.dto.ActivityBatchRequest;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.dto.GoalProgressRequest;
+import com.lifedata.dashboard.dto.MessageAck;
+import com.lifedata.dashboard.dto.MessageError;
+import com.lifedata.dashboard.exception.BadRequestException;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.service.ActivityService;
+import com.lifedata.dashboard.service.CurrentUserService;
+import com.lifedata.dashboard.service.GoalService;
+
+import jakarta.validation.Valid;
+
+/**
+ * Writes over an open STOMP session, for clients that log often enough that a request per write costs more than
+ * the write: SEND to {@code /app/activities}, {@code /app/activities/batch} or {@code /app/goals/{id}/progress}
+ * with the same JSON bodies as the REST API. The result goes to {@code /user/queue/acks} and failures to
+ * {@code /user/queue/errors}, of the sending session only, tagged with the frame's {@code ack-id} header if it
+ * had one. The session was authenticated at CONNECT, so only the account id is kept with it; the account itself
+ * is read again for every write, so a timezone change or a deleted account takes effect on open sessions too.
+ */
+@Controller
+public class StompMessageController {
+
+    static final String ACK_ID_HEADER = "ack-id";
+    private static final String SESSION_USER_ID = StompMessageController.class.getName() + ".userId";
+
+    private static final Logger log = LoggerFactory.getLogger(StompMessageController.class);
+
+    private final ActivityService activityService;
+    private final GoalService goalService;
+    private final CurrentUserService currentUserService;
+
+    public StompMessageController(ActivityService activityService, GoalService goalService,
+            CurrentUserService currentUserService) {
+        this.activityService = activityService;
+        this.goalService = goalService;
+        this.currentUserService = currentUserService;
+    }
+
+    @MessageMapping("/activities")
+    @SendToUser(destinations = "/queue/acks", broadcast = false)
+    public MessageAck create(@Valid @Payload ActivityRequest request,
+            @Header(name = ACK_ID_HEADER, required = false) String ackId, Principal principal,
+            SimpMessageHeaderAccessor accessor) {
+        return new MessageAck(ackId, activityService.addActivity(user(principal, accessor), request));
+    }
+
+    @MessageMapping("/activities/batch")
+    @SendToUser(destinations = "/queue/acks", broadcast = false)
+    public MessageAck createBatch(@Valid @Payload ActivityBatchRequest request,
+            @Header(name = ACK_ID_HEADER, required = false) String ackId, Principal principal,
+            SimpMessageHeaderAccessor accessor) {
+        return new MessageAck(ackId, activityService.addActivities(user(principal, accessor), request.activities()));
+    }
+
+    @MessageMapping("/goals/{id}/progress")
+    @SendToUser(destinations = "/queue/acks", broadcast = false)
+    public MessageAck setProgress(@DestinationVariable Long id, @Valid @Payload GoalProgressRequest request,
+            @Header(name = ACK_ID_HEADER, required = false) String ackId, Principal principal,
+            SimpMessageHeaderAccessor accessor) {
+        LocalDate date = request.date() != null ? request.date() : LocalDate.now();
+        return new MessageAck(ackId, goalService.setProgress(user(principal, accessor), id, date, request.value()));
+    }
+
+    @MessageExceptionHandler(MethodArgumentNotValidException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public MessageError handleValidation(MethodArgumentNotValidException ex,
+            @Header(name = ACK_ID_HEADER, required = false) String ackId) {
+        Map<String, String> fields = ex.getBindingResult() == null ? Map.of() : ex.getBindingResult().getFieldErrors()
+                .stream()
+                .collect(Collectors.toMap(FieldError::getField, DefaultMessageSourceResolvable::getDefaultMessage, (a, b) -> a));
+        return new MessageError(ackId, "validation_failed", "Request validation failed", fields);
+    }
+
+    @MessageExceptionHandler({MessageConversionException.class, BadRequestException.class})
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public MessageError handleBadRequest(Exception ex, @Header(name = ACK_ID_HEADER, required = false) String ackId) {
+        return new MessageError(ackId, "bad_request", "Invalid request payload or parameters", Map.of());
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public MessageError handleOther(Exception ex, @Header(name = ACK_ID_HEADER, required = false) String ackId) {
+        log.warn("STOMP command failed", ex);
+        return new MessageError(ackId, "server_error", "Request failed", Map.of());
+    }
+
+    private UserAccount user(Principal principal, SimpMessageHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Long userId = attributes != null ? (Long) attributes.get(SESSION_USER_ID) : null;
+        if (userId != null) {
+            return currentUserService.userById(userId);
+        }
+        UserAccount user = currentUserService.userFor(principal);
+        if (attributes != null) {
+            attributes.put(SESSION_USER_ID, user.getId());
+        }
+        return user;
+    }
+}
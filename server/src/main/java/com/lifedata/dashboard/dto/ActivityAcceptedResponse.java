@@ -0,0 +1,6 @@
+package com.lifedata.dashboard.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ActivityAcceptedResponse(UUID id, Instant acceptedAt) {}
@@ -0,0 +1,13 @@
+package com.lifedata.dashboard.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public record ActivityBatchRequest(
+	@NotEmpty @Size(max = ActivityBatchRequest.MAX_SIZE) List<@Valid ActivityRequest> activities) {
+
+	public static final int MAX_SIZE = 500;
+}
@@ -0,0 +1,5 @@
+package com.lifedata.dashboard.dto;
+
+import java.util.List;
+
+public record ActivityBatchResponse(int count, List<ActivityResponse> activities) {}
@@ -0,0 +1,40 @@
+package com.lifedata.dashboard.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.lifedata.dashboard.exception.BadRequestException;
+
+/**
+ * Position after the last row of a page, in (occurredAt desc, id desc) order. Serialized as an opaque
+ * URL-safe token so clients cannot depend on its layout.
+ */
+public record ActivityCursor(Instant occurredAt, long id) {
+
+    public String encode() {
+        String raw = occurredAt.getEpochSecond() + "." + occurredAt.getNano() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a token from {@link #encode()}; null or blank means the first page.
+     * Throws BadRequestException for anything else that does not parse.
+     */
+    public static ActivityCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\.");
+            if (parts.length != 3) {
+                throw new BadRequestException("Malformed cursor");
+            }
+            return new ActivityCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            throw new BadRequestException("Malformed cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.lifedata.dashboard.dto;
+
+/**
+ * A rejected import row; {@code row} counts data rows from 1, not counting a CSV header.
+ */
+public record ActivityImportError(long row, String message) {}
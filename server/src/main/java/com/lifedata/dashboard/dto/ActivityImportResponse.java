@@ -0,0 +1,9 @@
+package com.lifedata.dashboard.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of an import. Duplicates are rows whose external key was already stored or repeated in the upload;
+ * only the first {@code ActivityImportService.MAX_REPORTED_ERRORS} rejections are listed.
+ */
+public record ActivityImportResponse(long rows, long imported, long duplicates, long rejected, List<ActivityImportError> errors) {}
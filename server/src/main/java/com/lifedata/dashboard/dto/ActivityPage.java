@@ -0,0 +1,8 @@
+package com.lifedata.dashboard.dto;
+
+import java.util.List;
+
+/**
+ * One page of activities, newest first; nextCursor is null on the last page.
+ */
+public record ActivityPage(List<ActivityResponse> items, String nextCursor) {}
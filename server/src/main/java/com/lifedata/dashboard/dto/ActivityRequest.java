@@ -24,4 +24,17 @@ public record ActivityRequest(
     @PositiveOrZero Integer repsCompleted,
     @PositiveOrZero Integer likes,
     @PositiveOrZero Integer comments,
-    @PositiveOrZero Integer shares) {}
+    @PositiveOrZero Integer shares,
+    @Size(max = 128) String externalKey) {
+
+    /**
+     * Copy whose occurredAt falls back to the given time, for requests that are written later than they arrived.
+     */
+    public ActivityRequest withDefaultOccurredAt(Instant receivedAt) {
+        if (occurredAt != null) {
+            return this;
+        }
+        return new ActivityRequest(type, rpgStat, description, value, metadata, receivedAt, platform, repository,
+                difficulty, timeSpentMinutes, setsCompleted, repsCompleted, likes, comments, shares, externalKey);
+    }
+}
@@ -0,0 +1,19 @@
+package com.lifedata.dashboard.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a burst of writes changed in the all-time {@link DashboardSummary}, pushed on {@code /user/queue/dashboard}.
+ * Breakdown and RPG stat entries, streaks (by activity type) and goals (by id) replace their counterparts in the
+ * client's copy; anything not listed is unchanged. {@code activities} are the new activities, newest first, capped
+ * at a feed page; {@code writes} counts all of them.
+ */
+public record DashboardDelta(
+        int writes,
+        Double productivityScore,
+        Map<String, Double> breakdown,
+        Map<String, Double> rpgStats,
+        List<DashboardSummary.Streak> streaks,
+        List<DashboardSummary.GoalProgress> goals,
+        List<ActivityResponse> activities) {}
@@ -0,0 +1,19 @@
+package com.lifedata.dashboard.dto;
+
+import java.time.LocalDate;
+
+import com.lifedata.dashboard.exception.BadRequestException;
+import com.lifedata.dashboard.model.TrendGranularity;
+
+/**
+ * Optional window for the time-bounded dashboard sections; null bounds mean the user's first/last active day.
+ */
+public record DashboardQuery(LocalDate from, LocalDate to, TrendGranularity granularity) {
+    public static final DashboardQuery ALL_TIME = new DashboardQuery(null, null, null);
+
+    public DashboardQuery {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+    }
+}
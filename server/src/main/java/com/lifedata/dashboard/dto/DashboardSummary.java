@@ -13,7 +13,7 @@ public record DashboardSummary(
         List<GoalProgress> goals) {
     public record ActivityTrend(String label, List<TrendPoint> points) {}
     public record TrendPoint(String period, Double value) {}
-    public record Streak(String activityType, int length) {}
+    public record Streak(String activityType, int length, int longest) {}
     public record Milestone(String activityType, String message) {}
     public record GoalProgress(Long id, String activityType, String name, String period, Double currentValue, Double targetValue, Double progress, String unit, Double customPeriodDays, String rpgStat) {}
 }
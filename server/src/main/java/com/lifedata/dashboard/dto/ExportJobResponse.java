@@ -0,0 +1,19 @@
+package com.lifedata.dashboard.dto;
+
+import java.time.Instant;
+
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.ExportStatus;
+
+public record ExportJobResponse(
+	String id,
+	ExportFormat format,
+	ExportStatus status,
+	long rows,
+	long bytes,
+	String sha256,
+	String error,
+	Instant createdAt,
+	Instant completedAt,
+	Instant expiresAt,
+	String downloadUrl) {}
@@ -0,0 +1,9 @@
+package com.lifedata.dashboard.dto;
+
+import java.time.LocalDate;
+
+import jakarta.validation.constraints.NotNull;
+
+public record GoalProgressRequest(
+	LocalDate date,
+	@NotNull Double value) {}
@@ -0,0 +1,6 @@
+package com.lifedata.dashboard.dto;
+
+/**
+ * Reply on {@code /user/queue/acks} to a STOMP command; {@code ackId} echoes the command's {@code ack-id} header.
+ */
+public record MessageAck(String ackId, Object result) {}
@@ -0,0 +1,8 @@
+package com.lifedata.dashboard.dto;
+
+import java.util.Map;
+
+/**
+ * Reply on {@code /user/queue/errors} to a STOMP command that failed, with the same error codes as the REST API.
+ */
+public record MessageError(String ackId, String error, String message, Map<String, String> fields) {}
@@ -0,0 +1,16 @@
+package com.lifedata.dashboard.exception;
+
+/**
+ * A request the client has to change before retrying, such as a malformed cursor or an inverted date range.
+ * Answered with 400; other runtime exceptions stay server errors.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -8,9 +8,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.time.Instant;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,11 +25,23 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "activities")
+@Table(name = "activities",
+        uniqueConstraints = @UniqueConstraint(name = "uq_activities_user_external_key", columnNames = {"user_id", "external_key"}),
+        indexes = {
+            // Keyset pages, time-range sums and first/last lookups, per user and per user and type
+            @Index(name = "idx_activities_user_occurred", columnList = "user_id, occurred_at, id"),
+            @Index(name = "idx_activities_user_type_occurred", columnList = "user_id, type, occurred_at, id"),
+            // Live stream resume: the user's activities written after a given id
+            @Index(name = "idx_activities_user_id", columnList = "user_id, id")
+        })
 public class Activity {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence ids (a table on MySQL) keep JDBC insert batching available, which IDENTITY disables
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activity_seq")
+    @SequenceGenerator(name = "activity_seq", sequenceName = "activities_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -66,6 +81,10 @@ public class Activity {
 
     private Integer shares;
 
+    // Source event id (e.g. "github:<event id>") so re-polled or retried writes are stored once per user
+    @Column(name = "external_key", length = 128)
+    private String externalKey;
+
     @Builder.Default
     private Instant occurredAt = Instant.now();
 }
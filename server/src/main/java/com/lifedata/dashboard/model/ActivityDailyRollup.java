@@ -0,0 +1,58 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-user daily totals, bucketed by the user's local day, activity type and effective RPG stat.
+ * Maintained alongside every activity write so the dashboard never has to scan raw activities.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "activity_daily_rollup", uniqueConstraints = @UniqueConstraint(name = "uq_activity_daily_rollup",
+        columnNames = {"user_id", "rollup_day", "activity_type", "rpg_stat"}))
+public class ActivityDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserAccount user;
+
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rpg_stat", nullable = false)
+    private RpgStat rpgStat;
+
+    @Column(name = "total_value", nullable = false)
+    private Double totalValue;
+
+    @Column(name = "activity_count", nullable = false)
+    private Long activityCount;
+}
@@ -0,0 +1,64 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Manifest entry for one user's archived activities of one UTC month, stored as gzip-compressed NDJSON on disk.
+ * Each archival run appends a gzip member to the file; only the first {@code bytes} bytes are committed, so a
+ * member written by a run whose database update failed is ignored and overwritten by the next run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "activity_segments", uniqueConstraints = @UniqueConstraint(name = "uq_activity_segments",
+        columnNames = {"user_id", "segment_month"}))
+public class ActivitySegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserAccount user;
+
+    // First day of the UTC month the segment covers
+    @Column(name = "segment_month", nullable = false)
+    private LocalDate month;
+
+    // Relative to the archive directory
+    @Column(nullable = false, length = 255)
+    private String path;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(nullable = false)
+    private Long bytes;
+
+    @Column(name = "min_occurred_at", nullable = false)
+    private Instant minOccurredAt;
+
+    @Column(name = "max_occurred_at", nullable = false)
+    private Instant maxOccurredAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,53 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running streak per user and activity type, measured in the user's local days.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "activity_streaks", uniqueConstraints = @UniqueConstraint(name = "uq_activity_streaks",
+        columnNames = {"user_id", "activity_type"}))
+public class ActivityStreak {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserAccount user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType type;
+
+    @Column(name = "current_length", nullable = false)
+    private Integer currentLength;
+
+    @Column(name = "last_active_day", nullable = false)
+    private LocalDate lastActiveDay;
+
+    @Column(name = "longest_length", nullable = false)
+    private Integer longestLength;
+}
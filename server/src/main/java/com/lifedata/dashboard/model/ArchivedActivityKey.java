@@ -0,0 +1,53 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * External key of an activity that was moved to the archive, so re-delivered integration events and re-imported
+ * history are still recognised once the row has left the activities table. Points at the archived activity by id
+ * and time, which locates its segment, and by the offset of the gzip member it was appended in, so a lookup only
+ * inflates that one append. Keys archived before the offset was kept have none and are found from the start.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "archived_activity_keys", uniqueConstraints = @UniqueConstraint(name = "uq_archived_activity_keys",
+        columnNames = {"user_id", "external_key"}))
+public class ArchivedActivityKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserAccount user;
+
+    @Column(name = "external_key", nullable = false, length = 128)
+    private String externalKey;
+
+    @Column(name = "activity_id", nullable = false)
+    private Long activityId;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "segment_offset")
+    private Long segmentOffset;
+}
@@ -0,0 +1,63 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.Instant;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One committed part file of an export job. A chunk holds either one archived month or a run of stored activities,
+ * and records where the export stands after it, so an interrupted job continues after its last intact chunk.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "export_chunks", uniqueConstraints = @UniqueConstraint(name = "uq_export_chunks", columnNames = {"job_id", "seq"}))
+public class ExportChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id", nullable = false)
+    private ExportJob job;
+
+    @Column(nullable = false)
+    private Integer seq;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(nullable = false)
+    private Long bytes;
+
+    // Hex SHA-256 of the part file, checked before the chunk is reused or joined
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    // Last archived month written so far; null until the archive has been exported
+    @Column(name = "archive_month")
+    private LocalDate archiveMonth;
+
+    // Keyset position of the last stored activity written; null while still in the archive
+    @Column(name = "last_occurred_at")
+    private Instant lastOccurredAt;
+
+    @Column(name = "last_id")
+    private Long lastId;
+}
@@ -0,0 +1,84 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A background export of one user's activities. While it runs, progress is the sum of its committed
+ * {@link ExportChunk}s; once completed the chunks are joined into a single file that can be downloaded until
+ * {@code expiresAt}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "export_jobs", indexes = {
+        @Index(name = "idx_export_jobs_user_status", columnList = "user_id, status"),
+        @Index(name = "idx_export_jobs_expires_at", columnList = "expires_at")
+})
+public class ExportJob {
+
+    // Random UUID, so ids in download links cannot be enumerated
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserAccount user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ExportFormat format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ExportStatus status;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(nullable = false)
+    private Long bytes;
+
+    // Hex SHA-256 of the joined file, set on completion
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(length = 255)
+    private String error;
+
+    // Node working on the job and until when its claim holds; once the lease lapses any node may take the job over
+    @Column(length = 64)
+    private String owner;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    // Set when the job completes or fails; the cleanup job deletes the row and its files after this
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+}
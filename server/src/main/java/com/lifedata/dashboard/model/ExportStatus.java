@@ -0,0 +1,8 @@
+package com.lifedata.dashboard.model;
+
+public enum ExportStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
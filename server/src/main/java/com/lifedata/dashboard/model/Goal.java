@@ -8,6 +8,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -24,7 +25,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "goals")
+@Table(name = "goals", indexes = @Index(name = "idx_goals_user_type", columnList = "user_id, activity_type"))
 public class Goal {
 
     @Id
@@ -60,6 +61,9 @@ public class Goal {
 
     private Double currentValue;
 
+    // Start of the window currentValue was summed over; activity writes only add deltas while it still matches
+    private Instant progressWindowStart;
+
     private LocalDate startDate;
 
     private LocalDate endDate;
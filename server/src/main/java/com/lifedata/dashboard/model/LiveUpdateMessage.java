@@ -0,0 +1,50 @@
+package com.lifedata.dashboard.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.Length;
+
+/**
+ * A live update frame in the outbox, written by the node that produced it so the other replicas can deliver it to
+ * the sessions they hold. Rows are relayed in id order and pruned once older than the retention period.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "live_update_outbox", indexes = @Index(name = "idx_live_update_outbox_created_at", columnList = "created_at"))
+public class LiveUpdateMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Node id of the writer, which has already delivered the frame to its own sessions
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    // User destination without the /user prefix, e.g. /queue/activity
+    @Column(nullable = false, length = 64)
+    private String destination;
+
+    // Frame body as JSON
+    @Column(nullable = false, length = Length.LONG32)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
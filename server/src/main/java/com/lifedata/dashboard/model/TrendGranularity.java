@@ -0,0 +1,47 @@
+package com.lifedata.dashboard.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+import com.lifedata.dashboard.exception.BadRequestException;
+
+public enum TrendGranularity {
+    DAY,
+    WEEK,
+    MONTH;
+
+    public static TrendGranularity parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Unknown granularity: " + value, ex);
+        }
+    }
+
+    /**
+     * Picks the finest granularity that keeps a window of the given span to a chartable number of points.
+     */
+    public static TrendGranularity forSpan(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days <= 92) return DAY;
+        if (days <= 731) return WEEK;
+        return MONTH;
+    }
+
+    public LocalDate bucketStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(DayOfWeek.MONDAY);
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    public String label(LocalDate bucketStart) {
+        return this == MONTH ? bucketStart.toString().substring(0, 7) : bucketStart.toString();
+    }
+}
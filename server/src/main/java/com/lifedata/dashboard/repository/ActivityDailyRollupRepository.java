@@ -0,0 +1,50 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.ActivityDailyRollup;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+import com.lifedata.dashboard.model.UserAccount;
+
+public interface ActivityDailyRollupRepository extends JpaRepository<ActivityDailyRollup, Long> {
+    @Query("select r.type as type, sum(r.totalValue) as total from ActivityDailyRollup r "
+            + "where r.user = :user and r.day between :from and :to group by r.type")
+    List<ActivityTypeTotal> sumByType(@Param("user") UserAccount user, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select r.rpgStat as rpgStat, sum(r.totalValue) as total from ActivityDailyRollup r "
+            + "where r.user = :user and r.day between :from and :to group by r.rpgStat")
+    List<RpgStatTotal> sumByStat(@Param("user") UserAccount user, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select r.day as day, r.type as type, sum(r.totalValue) as total from ActivityDailyRollup r "
+            + "where r.user = :user and r.day between :from and :to group by r.day, r.type order by r.type, r.day")
+    List<DailyTypeTotal> sumByDayAndType(@Param("user") UserAccount user, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select min(r.day) as firstDay, max(r.day) as lastDay from ActivityDailyRollup r where r.user = :user")
+    RollupDayRange findDayRange(@Param("user") UserAccount user);
+
+    @Query("select distinct r.day from ActivityDailyRollup r where r.user = :user and r.type = :type order by r.day")
+    List<LocalDate> findActiveDays(@Param("user") UserAccount user, @Param("type") ActivityType type);
+
+    @Query("select distinct r.type from ActivityDailyRollup r where r.user = :user")
+    List<ActivityType> findActiveTypes(@Param("user") UserAccount user);
+
+    @Query("select coalesce(sum(r.activityCount), 0) from ActivityDailyRollup r where r.user = :user")
+    long sumActivityCount(@Param("user") UserAccount user);
+
+    @Modifying
+    @Query("update ActivityDailyRollup r set r.totalValue = r.totalValue + :value, r.activityCount = r.activityCount + :count "
+            + "where r.user = :user and r.day = :day and r.type = :type and r.rpgStat = :stat")
+    int increment(@Param("user") UserAccount user, @Param("day") LocalDate day, @Param("type") ActivityType type,
+            @Param("stat") RpgStat stat, @Param("value") double value, @Param("count") long count);
+
+    @Modifying
+    @Query("delete from ActivityDailyRollup r where r.user = :user")
+    int deleteByUser(@Param("user") UserAccount user);
+}
@@ -0,0 +1,13 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.Instant;
+
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+
+public interface ActivityPoint {
+    Instant getOccurredAt();
+    ActivityType getType();
+    RpgStat getRpgStat();
+    Double getTotal();
+}
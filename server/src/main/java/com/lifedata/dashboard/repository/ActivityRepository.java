@@ -1,18 +1,120 @@
 package com.lifedata.dashboard.repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.lifedata.dashboard.dto.ActivityResponse;
 import com.lifedata.dashboard.model.Activity;
 import com.lifedata.dashboard.model.ActivityType;
 import com.lifedata.dashboard.model.UserAccount;
 
+import jakarta.persistence.QueryHint;
+
 public interface ActivityRepository extends JpaRepository<Activity, Long> {
-    List<Activity> findByUserAndOccurredAtBetween(UserAccount user, Instant from, Instant to);
-    List<Activity> findByUser(UserAccount user);
-    List<Activity> findByUserAndType(UserAccount user, ActivityType type);
-    List<Activity> findByUserAndTypeAndOccurredAtBetween(UserAccount user, ActivityType type, Instant from, Instant to);
-    List<Activity> findTop50ByUserOrderByOccurredAtDesc(UserAccount user);
+
+    // Mirrors RollupService.effectiveStat so grouping happens in SQL
+    String EFFECTIVE_STAT = "coalesce(a.rpgStat, case a.type"
+            + " when com.lifedata.dashboard.model.ActivityType.GITHUB_COMMITS then com.lifedata.dashboard.model.RpgStat.DEX"
+            + " when com.lifedata.dashboard.model.ActivityType.STUDY then com.lifedata.dashboard.model.RpgStat.INT"
+            + " when com.lifedata.dashboard.model.ActivityType.GYM then com.lifedata.dashboard.model.RpgStat.STR"
+            + " when com.lifedata.dashboard.model.ActivityType.LINKEDIN_POST then com.lifedata.dashboard.model.RpgStat.CHA"
+            + " when com.lifedata.dashboard.model.ActivityType.DSA then com.lifedata.dashboard.model.RpgStat.WIS"
+            + " else com.lifedata.dashboard.model.RpgStat.VIT end)";
+    String LOCAL_DAY = "cast(a.occurredAt + :offsetSeconds second as LocalDate)";
+
+    // Keyset pages in (occurredAt desc, id desc) order; every page is an index range scan from the cursor
+    String AFTER_CURSOR = "(a.occurredAt < :occurredAt or (a.occurredAt = :occurredAt and a.id < :id))";
+    String NEWEST_FIRST = " order by a.occurredAt desc, a.id desc";
+    // The same keyset walked oldest first, for exports
+    String FORWARD_AFTER_CURSOR = "(a.occurredAt > :occurredAt or (a.occurredAt = :occurredAt and a.id > :id))";
+    String OLDEST_FIRST = " order by a.occurredAt asc, a.id asc";
+    // Builds the response straight from the row: no managed entities, no user proxies, nothing to dirty-check
+    String SELECT_RESPONSE = "select new com.lifedata.dashboard.dto.ActivityResponse(a.id, a.type, a.rpgStat, "
+            + "a.description, a.value, a.metadata, a.occurredAt, a.platform, a.repository, a.difficulty, "
+            + "a.timeSpentMinutes, a.setsCompleted, a.repsCompleted, a.likes, a.comments, a.shares) from Activity a ";
+
+    @Query(SELECT_RESPONSE + "where a.user = :user" + NEWEST_FIRST)
+    List<ActivityResponse> findResponsePage(@Param("user") UserAccount user, Limit limit);
+
+    @Query(SELECT_RESPONSE + "where a.user = :user and a.type = :type" + NEWEST_FIRST)
+    List<ActivityResponse> findResponsePageByType(@Param("user") UserAccount user, @Param("type") ActivityType type,
+            Limit limit);
+
+    @Query(SELECT_RESPONSE + "where a.user = :user and " + AFTER_CURSOR + NEWEST_FIRST)
+    List<ActivityResponse> findResponsePageAfter(@Param("user") UserAccount user, @Param("occurredAt") Instant occurredAt,
+            @Param("id") long id, Limit limit);
+
+    @Query(SELECT_RESPONSE + "where a.user = :user and a.type = :type and " + AFTER_CURSOR + NEWEST_FIRST)
+    List<ActivityResponse> findResponsePageAfterByType(@Param("user") UserAccount user, @Param("type") ActivityType type,
+            @Param("occurredAt") Instant occurredAt, @Param("id") long id, Limit limit);
+
+    // Rows per round trip for export cursors; MySQL only honours it with useCursorFetch=true on the URL
+    String EXPORT_FETCH_SIZE = "1000";
+
+    /**
+     * Stored activities of the user, oldest first, as a forward-only cursor. Must be consumed and closed inside
+     * a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_RESPONSE + "where a.user = :user" + OLDEST_FIRST)
+    Stream<ActivityResponse> streamResponses(@Param("user") UserAccount user, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_RESPONSE + "where a.user = :user and " + FORWARD_AFTER_CURSOR + OLDEST_FIRST)
+    Stream<ActivityResponse> streamResponsesAfter(@Param("user") UserAccount user, @Param("occurredAt") Instant occurredAt,
+            @Param("id") long id, Limit limit);
+
+    // Activities stored after the given id, in id order, for resuming a live stream from its Last-Event-ID
+    @Query(SELECT_RESPONSE + "where a.user = :user and a.id > :id order by a.id asc")
+    List<ActivityResponse> findResponsesAfterId(@Param("user") UserAccount user, @Param("id") long id, Limit limit);
+
+    long countByUser(UserAccount user);
+    List<Activity> findByUserAndOccurredAtBeforeOrderByOccurredAtAscIdAsc(UserAccount user, Instant before, Limit limit);
+    Optional<Activity> findByUserAndExternalKey(UserAccount user, String externalKey);
+
+    @Query("select a.externalKey from Activity a where a.user = :user and a.externalKey in :keys")
+    List<String> findExistingExternalKeys(@Param("user") UserAccount user, @Param("keys") Collection<String> keys);
+
+    @Query("select coalesce(sum(coalesce(a.value, 1.0)), 0.0) from Activity a "
+            + "where a.user = :user and a.type = :type and a.occurredAt between :from and :to")
+    double sumValue(@Param("user") UserAccount user, @Param("type") ActivityType type,
+            @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Daily totals for activities in [from, to), bucketed by local day using a fixed UTC offset.
+     * Callers split ranges at the zone's offset transitions so every bucket uses the right offset.
+     */
+    @Query("select " + LOCAL_DAY + " as day, a.type as type, " + EFFECTIVE_STAT + " as rpgStat, "
+            + "sum(coalesce(a.value, 1.0)) as total, count(a) as count from Activity a "
+            + "where a.user = :user and a.occurredAt >= :from and a.occurredAt < :to "
+            + "group by " + LOCAL_DAY + ", a.type, " + EFFECTIVE_STAT)
+    List<DailyActivityTotal> sumByDay(@Param("user") UserAccount user, @Param("from") Instant from,
+            @Param("to") Instant to, @Param("offsetSeconds") long offsetSeconds);
+
+    @Query("select a.occurredAt as occurredAt, a.type as type, " + EFFECTIVE_STAT + " as rpgStat, "
+            + "coalesce(a.value, 1.0) as total from Activity a where a.user = :user")
+    List<ActivityPoint> findPoints(@Param("user") UserAccount user);
+
+    @Query("select min(a.occurredAt) from Activity a where a.user = :user")
+    Instant findFirstOccurredAt(@Param("user") UserAccount user);
+
+    @Query("select max(a.occurredAt) from Activity a where a.user = :user")
+    Instant findLastOccurredAt(@Param("user") UserAccount user);
 }
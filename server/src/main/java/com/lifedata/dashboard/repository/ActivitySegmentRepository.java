@@ -0,0 +1,32 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.ActivitySegment;
+import com.lifedata.dashboard.model.UserAccount;
+
+public interface ActivitySegmentRepository extends JpaRepository<ActivitySegment, Long> {
+    Optional<ActivitySegment> findByUserAndMonth(UserAccount user, LocalDate month);
+    List<ActivitySegment> findByUserOrderByMonthAsc(UserAccount user);
+    List<ActivitySegment> findByUserOrderByMonthDesc(UserAccount user);
+
+    @Query("select s from ActivitySegment s where s.user = :user "
+            + "and s.minOccurredAt <= :to and s.maxOccurredAt >= :from order by s.month")
+    List<ActivitySegment> findOverlapping(@Param("user") UserAccount user, @Param("from") Instant from, @Param("to") Instant to);
+
+    @Query("select s from ActivitySegment s where s.user = :user and s.minOccurredAt <= :before order by s.month desc")
+    List<ActivitySegment> findStartingBefore(@Param("user") UserAccount user, @Param("before") Instant before);
+
+    @Query("select coalesce(sum(s.rowCount), 0) from ActivitySegment s where s.user = :user")
+    long sumRowCount(@Param("user") UserAccount user);
+
+    @Query("select max(s.maxOccurredAt) from ActivitySegment s where s.user = :user")
+    Instant findLastOccurredAt(@Param("user") UserAccount user);
+}
@@ -0,0 +1,33 @@
+package com.lifedata.dashboard.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.ActivityStreak;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+
+public interface ActivityStreakRepository extends JpaRepository<ActivityStreak, Long> {
+    List<ActivityStreak> findByUser(UserAccount user);
+
+    /**
+     * Loads the streak and holds a row lock until the transaction ends, so concurrent writers apply their days
+     * one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ActivityStreak s where s.user = :user and s.type = :type")
+    Optional<ActivityStreak> findForUpdate(@Param("user") UserAccount user, @Param("type") ActivityType type);
+    boolean existsByUser(UserAccount user);
+
+    @Modifying
+    @Query("delete from ActivityStreak s where s.user = :user")
+    int deleteByUser(@Param("user") UserAccount user);
+}
@@ -0,0 +1,8 @@
+package com.lifedata.dashboard.repository;
+
+import com.lifedata.dashboard.model.ActivityType;
+
+public interface ActivityTypeTotal {
+    ActivityType getType();
+    Double getTotal();
+}
@@ -0,0 +1,19 @@
+package com.lifedata.dashboard.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.ArchivedActivityKey;
+import com.lifedata.dashboard.model.UserAccount;
+
+public interface ArchivedActivityKeyRepository extends JpaRepository<ArchivedActivityKey, Long> {
+    Optional<ArchivedActivityKey> findByUserAndExternalKey(UserAccount user, String externalKey);
+
+    @Query("select k.externalKey from ArchivedActivityKey k where k.user = :user and k.externalKey in :keys")
+    List<String> findExistingExternalKeys(@Param("user") UserAccount user, @Param("keys") Collection<String> keys);
+}
@@ -0,0 +1,14 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.LocalDate;
+
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+
+public interface DailyActivityTotal {
+    LocalDate getDay();
+    ActivityType getType();
+    RpgStat getRpgStat();
+    Double getTotal();
+    Long getCount();
+}
@@ -0,0 +1,11 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.LocalDate;
+
+import com.lifedata.dashboard.model.ActivityType;
+
+public interface DailyTypeTotal {
+    LocalDate getDay();
+    ActivityType getType();
+    Double getTotal();
+}
@@ -0,0 +1,19 @@
+package com.lifedata.dashboard.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.ExportChunk;
+import com.lifedata.dashboard.model.ExportJob;
+
+public interface ExportChunkRepository extends JpaRepository<ExportChunk, Long> {
+    List<ExportChunk> findByJobOrderBySeqAsc(ExportJob job);
+
+    @Modifying
+    @Query("delete from ExportChunk c where c.job = :job and c.seq >= :seq")
+    int deleteFrom(@Param("job") ExportJob job, @Param("seq") int seq);
+}
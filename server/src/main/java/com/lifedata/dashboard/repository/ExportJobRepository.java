@@ -0,0 +1,43 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.ExportJob;
+import com.lifedata.dashboard.model.ExportStatus;
+import com.lifedata.dashboard.model.UserAccount;
+
+public interface ExportJobRepository extends JpaRepository<ExportJob, String> {
+    Optional<ExportJob> findByIdAndUser(String id, UserAccount user);
+    Optional<ExportJob> findFirstByUserAndFormatAndStatusIn(UserAccount user, ExportFormat format, Collection<ExportStatus> statuses);
+    List<ExportJob> findByExpiresAtBefore(Instant now);
+
+    // A job is free to claim when nobody holds it, the caller already does, or its holder's lease has lapsed
+    String CLAIMABLE = "j.status in :statuses and (j.owner is null or j.owner = :owner or j.leaseUntil < :now)";
+
+    @Query("select j.id from ExportJob j where " + CLAIMABLE + " order by j.createdAt")
+    List<String> findClaimableIds(@Param("statuses") Collection<ExportStatus> statuses, @Param("owner") String owner,
+            @Param("now") Instant now);
+
+    /**
+     * Takes or extends the claim on an active job. Returns 0 when another node holds a live lease on it or the job
+     * is no longer active.
+     */
+    @Modifying
+    @Query("update ExportJob j set j.owner = :owner, j.leaseUntil = :until where j.id = :id and " + CLAIMABLE)
+    int claim(@Param("id") String id, @Param("statuses") Collection<ExportStatus> statuses, @Param("owner") String owner,
+            @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update ExportJob j set j.leaseUntil = :until where j.owner = :owner and j.status in :statuses")
+    int renewLeases(@Param("statuses") Collection<ExportStatus> statuses, @Param("owner") String owner,
+            @Param("until") Instant until);
+}
@@ -13,4 +13,5 @@ public interface GoalProgressRepository extends JpaRepository<GoalProgress, Long
     Optional<GoalProgress> findByGoalAndDate(Goal goal, LocalDate date);
     List<GoalProgress> findTop14ByGoalOrderByDateDesc(Goal goal);
     List<GoalProgress> findByGoalAndDateBetween(Goal goal, LocalDate start, LocalDate end);
+    boolean existsByGoal(Goal goal);
 }
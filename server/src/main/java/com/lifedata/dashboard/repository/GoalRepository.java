@@ -1,9 +1,13 @@
 package com.lifedata.dashboard.repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.lifedata.dashboard.model.ActivityType;
 import com.lifedata.dashboard.model.Goal;
@@ -14,4 +18,22 @@ public interface GoalRepository extends JpaRepository<Goal, Long> {
     List<Goal> findByUser(UserAccount user);
     Optional<Goal> findByUserAndActivityTypeAndPeriod(UserAccount user, ActivityType type, GoalPeriod period);
     List<Goal> findByUserAndActivityType(UserAccount user, ActivityType type);
+
+    @Modifying
+    @Query("update Goal g set g.currentValue = coalesce(g.currentValue, 0.0) + :delta "
+            + "where g.id = :id and g.progressWindowStart = :windowStart")
+    int incrementProgress(@Param("id") Long id, @Param("delta") double delta, @Param("windowStart") Instant windowStart);
+
+    @Modifying
+    @Query("update Goal g set g.currentValue = :value, g.progressWindowStart = :windowStart "
+            + "where g.id = :id and (g.progressWindowStart is null or g.progressWindowStart <> :windowStart)")
+    int resetProgress(@Param("id") Long id, @Param("value") double value, @Param("windowStart") Instant windowStart);
+
+    @Modifying
+    @Query("update Goal g set g.currentValue = :value, g.progressWindowStart = :windowStart "
+            + "where g.id = :id and coalesce(g.currentValue, -1.0) = :observedValue "
+            + "and coalesce(g.progressWindowStart, :epoch) = :observedWindowStart")
+    int replaceProgress(@Param("id") Long id, @Param("value") double value, @Param("windowStart") Instant windowStart,
+            @Param("observedValue") double observedValue, @Param("observedWindowStart") Instant observedWindowStart,
+            @Param("epoch") Instant epoch);
 }
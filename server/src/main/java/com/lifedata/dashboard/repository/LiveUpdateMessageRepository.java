@@ -0,0 +1,23 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lifedata.dashboard.model.LiveUpdateMessage;
+
+public interface LiveUpdateMessageRepository extends JpaRepository<LiveUpdateMessage, Long> {
+    List<LiveUpdateMessage> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select coalesce(max(m.id), 0) from LiveUpdateMessage m")
+    long maxId();
+
+    @Modifying
+    @Query("delete from LiveUpdateMessage m where m.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,8 @@
+package com.lifedata.dashboard.repository;
+
+import java.time.LocalDate;
+
+public interface RollupDayRange {
+    LocalDate getFirstDay();
+    LocalDate getLastDay();
+}
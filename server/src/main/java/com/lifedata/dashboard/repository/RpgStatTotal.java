@@ -0,0 +1,8 @@
+package com.lifedata.dashboard.repository;
+
+import com.lifedata.dashboard.model.RpgStat;
+
+public interface RpgStatTotal {
+    RpgStat getRpgStat();
+    Double getTotal();
+}
@@ -2,7 +2,13 @@ package com.lifedata.dashboard.repository;
 
 import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.lifedata.dashboard.model.UserAccount;
 
@@ -10,4 +16,19 @@ public interface UserAccountRepository extends JpaRepository<UserAccount, Long>
     Optional<UserAccount> findByEmail(String email);
     boolean existsByEmail(String email);
     Optional<UserAccount> findByPasswordResetToken(String token);
+
+    /**
+     * Loads the user and holds a row lock until the transaction ends, so per-user maintenance runs on one node
+     * at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from UserAccount u where u.id = :id")
+    Optional<UserAccount> findForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("update UserAccount u set u.dataVersion = u.dataVersion + 1 where u.id = :id")
+    int incrementDataVersion(@Param("id") Long id);
+
+    @Query("select u.dataVersion from UserAccount u where u.id = :id")
+    Long findDataVersion(@Param("id") Long id);
 }
@@ -0,0 +1,77 @@
+package com.lifedata.dashboard.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.lifedata.dashboard.service.UserDetailsServiceImpl;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Authenticates STOMP sessions with the same bearer tokens as the REST API. CONNECT must carry an
+ * {@code Authorization: Bearer ...} native header; the resulting principal (named by email) is what
+ * {@code convertAndSendToUser} routes on. Subscriptions are limited to {@code /user/...} destinations, which the
+ * broker resolves to the subscriber's own session, so one user can never listen in on another.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+    private final UserDetailsServiceImpl userDetailsService;
+
+    public StompAuthChannelInterceptor(JwtService jwtService, UserDetailsServiceImpl userDetailsService) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> accessor.setUser(authenticate(accessor.getFirstNativeHeader(HttpHeaders.AUTHORIZATION)));
+            case SUBSCRIBE -> {
+                String destination = accessor.getDestination();
+                if (accessor.getUser() == null || destination == null || !destination.startsWith("/user/")) {
+                    throw new AccessDeniedException("Cannot subscribe to " + destination);
+                }
+            }
+            case SEND -> {
+                if (accessor.getUser() == null) {
+                    throw new AccessDeniedException("Not authenticated");
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String header) {
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            throw new BadCredentialsException("Missing bearer token");
+        }
+        String email;
+        try {
+            email = jwtService.extractSubject(header.substring(BEARER_PREFIX.length()));
+        } catch (JwtException ex) {
+            throw new BadCredentialsException("Invalid bearer token", ex);
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+}
@@ -0,0 +1,326 @@
+package com.lifedata.dashboard.service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lifedata.dashboard.dto.ActivityCursor;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivitySegment;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.ArchivedActivityKey;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivitySegmentRepository;
+import com.lifedata.dashboard.repository.ArchivedActivityKeyRepository;
+
+/**
+ * Cold tier for activities older than the archive horizon: one gzip NDJSON segment per user and UTC month,
+ * listed in the {@code activity_segments} manifest. Segments are streamed a line at a time, never held whole;
+ * callers consult the manifest first so users without archives never touch the disk. External keys of archived
+ * activities stay in {@code archived_activity_keys}, so deduplication still sees them, together with the offset of
+ * the append that holds each one.
+ */
+@Service
+public class ActivityArchive {
+
+    // Newest first, the order of the list endpoints
+    static final Comparator<ActivityResponse> NEWEST_FIRST = Comparator.comparing(ActivityResponse::occurredAt)
+            .thenComparing(ActivityResponse::id).reversed();
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    private final ActivitySegmentRepository segmentRepository;
+    private final ArchivedActivityKeyRepository keyRepository;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    public ActivityArchive(ActivitySegmentRepository segmentRepository, ArchivedActivityKeyRepository keyRepository,
+            ObjectMapper objectMapper, @Value("${app.activity.archive.dir:data/archive}") String directory) {
+        this.segmentRepository = segmentRepository;
+        this.keyRepository = keyRepository;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+    }
+
+    public long count(UserAccount user) {
+        return segmentRepository.sumRowCount(user);
+    }
+
+    /**
+     * Same result as {@code ActivityRepository.sumValue}, over archived activities only.
+     */
+    public double sumValue(UserAccount user, ActivityType type, Instant from, Instant to) {
+        double[] sum = {0.0};
+        for (ActivitySegment segment : segmentRepository.findOverlapping(user, from, to)) {
+            read(segment, 0L, activity -> {
+                if (activity.type() == type && !activity.occurredAt().isBefore(from) && !activity.occurredAt().isAfter(to)) {
+                    sum[0] += activity.value() != null ? activity.value() : 1.0;
+                }
+                return true;
+            });
+        }
+        return sum[0];
+    }
+
+    /**
+     * Every archived activity of the user, oldest segment first.
+     */
+    public void forEach(UserAccount user, Consumer<ActivityResponse> consumer) {
+        for (ActivitySegment segment : segmentRepository.findByUserOrderByMonthAsc(user)) {
+            read(segment, 0L, activity -> {
+                consumer.accept(activity);
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Months with archived activities of the user, oldest first.
+     */
+    public List<LocalDate> months(UserAccount user) {
+        return segmentRepository.findByUserOrderByMonthAsc(user).stream().map(ActivitySegment::getMonth).toList();
+    }
+
+    /**
+     * Archived activities of one UTC month, in the order they were archived; nothing when the month has no segment.
+     */
+    public void forEach(UserAccount user, LocalDate month, Consumer<ActivityResponse> consumer) {
+        segmentRepository.findByUserAndMonth(user, month).ifPresent(segment -> read(segment, 0L, activity -> {
+            consumer.accept(activity);
+            return true;
+        }));
+    }
+
+    /**
+     * Up to {@code limit} archived activities that come after the cursor in newest-first order, optionally of one type.
+     * Segments cover disjoint months, so reading them newest month first can stop as soon as the page is full.
+     */
+    public List<ActivityResponse> pageAfter(UserAccount user, ActivityType type, ActivityCursor after, int limit) {
+        List<ActivitySegment> segments = after != null
+                ? segmentRepository.findStartingBefore(user, after.occurredAt())
+                : segmentRepository.findByUserOrderByMonthDesc(user);
+        List<ActivityResponse> page = new ArrayList<>();
+        for (ActivitySegment segment : segments) {
+            List<ActivityResponse> rows = new ArrayList<>();
+            read(segment, 0L, activity -> {
+                if ((type == null || activity.type() == type) && (after == null || isAfter(activity, after))) {
+                    rows.add(activity);
+                }
+                return true;
+            });
+            rows.sort(NEWEST_FIRST);
+            page.addAll(rows.subList(0, Math.min(rows.size(), limit - page.size())));
+            if (page.size() >= limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Which of the given external keys belong to archived activities of the user.
+     */
+    public List<String> findExistingExternalKeys(UserAccount user, Collection<String> keys) {
+        return keyRepository.findExistingExternalKeys(user, keys);
+    }
+
+    /**
+     * The archived activity stored under the external key, read from the append that holds it and no further.
+     */
+    public Optional<ActivityResponse> findByExternalKey(UserAccount user, String externalKey) {
+        return keyRepository.findByUserAndExternalKey(user, externalKey)
+                .flatMap(key -> segmentRepository.findByUserAndMonth(user, monthOf(key.getOccurredAt()))
+                        .flatMap(segment -> {
+                            ActivityResponse[] found = new ActivityResponse[1];
+                            long offset = key.getSegmentOffset() != null ? key.getSegmentOffset() : 0L;
+                            read(segment, offset, activity -> {
+                                if (!activity.id().equals(key.getActivityId())) {
+                                    return true;
+                                }
+                                found[0] = activity;
+                                return false;
+                            });
+                            return Optional.ofNullable(found[0]);
+                        }));
+    }
+
+    /**
+     * Latest occurredAt among the user's archived activities, or null without archives.
+     */
+    public Instant lastArchivedAt(UserAccount user) {
+        return segmentRepository.findLastOccurredAt(user);
+    }
+
+    /**
+     * The manifest entry of the user's segment for one UTC month, or a new empty one.
+     */
+    ActivitySegment segment(UserAccount user, LocalDate month) {
+        return segmentRepository.findByUserAndMonth(user, month).orElseGet(() -> ActivitySegment.builder()
+                .user(user)
+                .month(month)
+                .path(user.getId() + "/" + month.getYear() + "-" + String.format("%02d", month.getMonthValue()) + ".ndjson.gz")
+                .rowCount(0L)
+                .bytes(0L)
+                .build());
+    }
+
+    /**
+     * Appends activities of the segment's month to its file as one gzip member, starting at the committed length,
+     * and updates the manifest entry to save. Anything past the committed length is cut first. The caller saves the
+     * entry and deletes the rows in one transaction; until then readers keep using the old length.
+     */
+    void append(ActivitySegment segment, List<Activity> activities) {
+        Path file = directory.resolve(segment.getPath());
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.truncate(segment.getBytes());
+                channel.position(segment.getBytes());
+                OutputStream out = Channels.newOutputStream(channel);
+                GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+                for (Activity activity : activities) {
+                    gzip.write(objectMapper.writeValueAsBytes(ActivityService.toResponse(activity)));
+                    gzip.write('\n');
+                }
+                gzip.finish();
+                gzip.flush();
+                channel.force(true);
+                segment.setBytes(channel.size());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not append to activity segment " + file, ex);
+        }
+        Instant min = activities.stream().map(Activity::getOccurredAt).min(Comparator.naturalOrder()).orElseThrow();
+        Instant max = activities.stream().map(Activity::getOccurredAt).max(Comparator.naturalOrder()).orElseThrow();
+        segment.setMinOccurredAt(segment.getMinOccurredAt() == null || min.isBefore(segment.getMinOccurredAt()) ? min : segment.getMinOccurredAt());
+        segment.setMaxOccurredAt(segment.getMaxOccurredAt() == null || max.isAfter(segment.getMaxOccurredAt()) ? max : segment.getMaxOccurredAt());
+        segment.setRowCount(segment.getRowCount() + activities.size());
+        segment.setUpdatedAt(Instant.now());
+    }
+
+    /**
+     * Records the external keys of activities being archived, with the segment offset their append started at;
+     * saved in the transaction that deletes the rows.
+     */
+    void recordKeys(UserAccount user, List<Activity> activities, long segmentOffset) {
+        keyRepository.saveAll(activities.stream()
+                .filter(activity -> activity.getExternalKey() != null)
+                .map(activity -> ArchivedActivityKey.builder()
+                        .user(user)
+                        .externalKey(activity.getExternalKey())
+                        .activityId(activity.getId())
+                        .occurredAt(activity.getOccurredAt())
+                        .segmentOffset(segmentOffset)
+                        .build())
+                .toList());
+    }
+
+    static LocalDate monthOf(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC).withDayOfMonth(1);
+    }
+
+    /**
+     * Streams the committed part of a segment from {@code offset}, which must be the start of a gzip member, handing
+     * each activity to the visitor until it returns false. Only the current line is held in memory.
+     */
+    private void read(ActivitySegment segment, long offset, Predicate<ActivityResponse> visitor) {
+        Path file = directory.resolve(segment.getPath());
+        try (InputStream in = Files.newInputStream(file)) {
+            in.skipNBytes(offset);
+            // Concatenated gzip members read as one stream; bytes past the committed length belong to no one yet
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                    new CommittedInputStream(in, segment.getBytes() - offset), READ_BUFFER_BYTES), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty() && !visitor.test(objectMapper.readValue(line, ActivityResponse.class))) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read activity segment " + file, ex);
+        }
+    }
+
+    private static boolean isAfter(ActivityResponse activity, ActivityCursor cursor) {
+        int byTime = activity.occurredAt().compareTo(cursor.occurredAt());
+        return byTime < 0 || (byTime == 0 && activity.id() < cursor.id());
+    }
+
+    /**
+     * The first {@code length} bytes of a stream, so a reader stops at the committed end of a segment.
+     */
+    private static final class CommittedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        CommittedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.lifedata.dashboard.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivitySegment;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.ActivitySegmentRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+/**
+ * Moves activities older than the horizon out of the activities table into the user's monthly archive segments,
+ * so the table under the hot queries only holds recent rows. Rollups are left alone and keep covering archived days.
+ * Segments live on local disk, so with several nodes the archive directory has to be shared. Every node runs the
+ * job; each batch holds the user's row lock from reading the rows until the manifest commits, so two nodes never
+ * append to the same segment at once and the second one finds the batch already moved.
+ */
+@Component
+public class ActivityArchiveJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityArchiveJob.class);
+
+    private final ActivityArchive archive;
+    private final ActivityRepository activityRepository;
+    private final ActivitySegmentRepository segmentRepository;
+    private final UserAccountRepository userRepository;
+    private final ActivityHotTier hotTier;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.activity.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.activity.archive.horizon-days:365}")
+    private int horizonDays;
+
+    @Value("${app.activity.archive.batch-size:5000}")
+    private int batchSize;
+
+    public ActivityArchiveJob(ActivityArchive archive, ActivityRepository activityRepository,
+            ActivitySegmentRepository segmentRepository, UserAccountRepository userRepository, ActivityHotTier hotTier,
+            PlatformTransactionManager transactionManager) {
+        this.archive = archive;
+        this.activityRepository = activityRepository;
+        this.segmentRepository = segmentRepository;
+        this.userRepository = userRepository;
+        this.hotTier = hotTier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${app.activity.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        if (!enabled) {
+            log.trace("Activity archival disabled");
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Math.max(1, horizonDays), ChronoUnit.DAYS);
+        long moved = 0;
+        for (UserAccount user : userRepository.findAll()) {
+            try {
+                moved += archive(user, cutoff);
+            } catch (Exception ex) {
+                log.warn("Activity archival failed for user {}: {}", user.getId(), ex.getMessage(), ex);
+            }
+        }
+        if (moved > 0) {
+            log.info("Archived {} activities older than {}", moved, cutoff);
+        }
+    }
+
+    /**
+     * Archives the user's activities that occurred before the cutoff, a bounded batch at a time. Returns the
+     * number of activities moved.
+     */
+    public long archive(UserAccount user, Instant cutoff) {
+        long moved = 0;
+        while (true) {
+            Integer archived = transactionTemplate.execute(status -> archiveBatch(user, cutoff));
+            if (archived == null || archived == 0) {
+                return moved;
+            }
+            // A tier load that read the table before this batch and the archive after it would count the batch twice
+            hotTier.evict(user.getId());
+            moved += archived;
+        }
+    }
+
+    /**
+     * Moves one batch under the user's row lock. Segment files are appended before the commit; if it fails, the
+     * bytes past each committed length are cut by the next append.
+     */
+    private int archiveBatch(UserAccount user, Instant cutoff) {
+        if (userRepository.findForUpdate(user.getId()).isEmpty()) {
+            return 0;
+        }
+        List<Activity> batch = activityRepository.findByUserAndOccurredAtBeforeOrderByOccurredAtAscIdAsc(user, cutoff,
+                Limit.of(Math.max(1, batchSize)));
+        Map<LocalDate, List<Activity>> byMonth = new LinkedHashMap<>();
+        for (Activity activity : batch) {
+            byMonth.computeIfAbsent(ActivityArchive.monthOf(activity.getOccurredAt()), month -> new ArrayList<>()).add(activity);
+        }
+        byMonth.forEach((month, activities) -> {
+            ActivitySegment segment = archive.segment(user, month);
+            long offset = segment.getBytes();
+            archive.append(segment, activities);
+            segmentRepository.save(segment);
+            archive.recordKeys(user, activities, offset);
+            activityRepository.deleteAllByIdInBatch(activities.stream().map(Activity::getId).toList());
+        });
+        return batch.size();
+    }
+}
@@ -0,0 +1,392 @@
+package com.lifedata.dashboard.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Server-sent event streams of a user's new activities, for clients that cannot speak STOMP. Streams are async
+ * requests, so an idle one holds a socket and a small registry entry but no thread; events are written by a
+ * small pool once the write that produced them has committed.
+ * <p>
+ * Every stream has its own bounded queue of pending events, drained by one pool task at a time. A stream whose
+ * client stalls mid-write holds that one thread, until the container's write timeout fails the send, while its
+ * new events wait in its queue; other streams get other threads, and when all are busy their events wait too
+ * and the next heartbeat starts their drain.
+ * <p>
+ * Each event carries the activity id as its SSE id. A client reconnecting with {@code Last-Event-ID} first gets
+ * the activities stored after that id, up to {@link #MAX_REPLAY}; past that it gets a {@code reset} event and
+ * should reload the feed. An open stream gets the same event when its queue overflows and its events are shed.
+ * Ids come from a pooled sequence, so a write committing late, or from another replica's
+ * id block, can fall below an id the client has already seen and is then not replayed.
+ */
+@Service
+public class ActivityEventStream implements SmartLifecycle, DisposableBean {
+
+    static final int MAX_REPLAY = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityEventStream.class);
+
+    private final ActivityRepository activityRepository;
+    private final long timeoutMillis;
+    private final long reconnectMillis;
+    private final int queueCapacity;
+    private final Map<String, Set<Stream>> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private final ThreadPoolExecutor pool;
+    private final ScheduledExecutorService heartbeats;
+    private final Counter events;
+    private final Counter shed;
+    private volatile boolean running;
+
+    public ActivityEventStream(ActivityRepository activityRepository, MeterRegistry meterRegistry,
+            @Value("${app.activity.stream.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${app.activity.stream.heartbeat-ms:25000}") long heartbeatMillis,
+            @Value("${app.activity.stream.reconnect-ms:3000}") long reconnectMillis,
+            @Value("${app.activity.stream.threads:2}") int threads,
+            @Value("${app.activity.stream.max-threads:32}") int maxThreads,
+            @Value("${app.activity.stream.queue-capacity:1000}") int queueCapacity) {
+        this.activityRepository = activityRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.reconnectMillis = reconnectMillis;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        // No queue of its own: events wait in their stream's queue, and a drain that finds no thread free is
+        // started again by the next publish or heartbeat
+        this.pool = new ThreadPoolExecutor(Math.max(1, threads), Math.max(threads, maxThreads), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), daemonThreads("activity-stream-"));
+        this.pool.allowCoreThreadTimeOut(true);
+        ExecutorServiceMetrics.monitor(meterRegistry, pool, "activityStream");
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreads("activity-stream-heartbeat-"));
+        this.heartbeats = scheduler;
+        long interval = Math.max(1000, heartbeatMillis);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        Gauge.builder("activity.stream.connections", open, AtomicInteger::get)
+                .description("Open server-sent event streams")
+                .register(meterRegistry);
+        this.events = Counter.builder("activity.stream.events").register(meterRegistry);
+        this.shed = Counter.builder("activity.stream.shed")
+                .description("Events dropped because their stream's queue was full; the stream gets a reset instead")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for the user, replaying what was stored after {@code lastEventId} when one is given. The
+     * stream is registered before the replay is read, and holds live events back until the replay is sent.
+     */
+    public SseEmitter open(UserAccount user, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Stream stream = new Stream(user.getEmail(), emitter);
+        emitter.onCompletion(() -> remove(stream));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> remove(stream));
+        streams.computeIfAbsent(stream.email, email -> ConcurrentHashMap.newKeySet()).add(stream);
+        open.incrementAndGet();
+        synchronized (stream) {
+            try {
+                emitter.send(SseEmitter.event().reconnectTime(reconnectMillis).comment("connected"));
+                if (lastEventId != null) {
+                    replay(user, stream, lastEventId);
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // The container reports the broken connection itself, which completes the emitter
+                stream.closed = true;
+                remove(stream);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * Queues committed activities for the owner's open streams; a no-op when the owner has none.
+     */
+    public void publish(String email, List<ActivityResponse> activities) {
+        Set<Stream> targets = streams.get(email);
+        if (targets == null || targets.isEmpty() || activities.isEmpty()) {
+            return;
+        }
+        for (Stream stream : targets) {
+            if (stream.enqueue(activities)) {
+                drain(stream);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Ends every stream before the web server shuts down, which would otherwise wait out its grace period on
+     * them; clients reconnect, to another replica if need be, and resume from their last event.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        streams.values().forEach(set -> set.forEach(stream -> stream.emitter.complete()));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void replay(UserAccount user, Stream stream, long lastEventId) throws IOException {
+        List<ActivityResponse> missed = activityRepository.findResponsesAfterId(user, lastEventId, Limit.of(MAX_REPLAY + 1));
+        if (missed.size() > MAX_REPLAY) {
+            stream.emitter.send(reset());
+            return;
+        }
+        for (ActivityResponse activity : missed) {
+            stream.emitter.send(event(activity));
+            stream.replayed.add(activity.id());
+            stream.highestReplayed = Math.max(stream.highestReplayed, activity.id());
+            events.increment();
+        }
+    }
+
+    // Comments keep proxies from timing out idle streams and find clients that went away without closing; a
+    // stream busy sending is skipped, its events serve as heartbeats too
+    private void heartbeat() {
+        streams.values().forEach(set -> set.forEach(stream -> {
+            if (stream.ping()) {
+                drain(stream);
+            }
+        }));
+    }
+
+    private void drain(Stream stream) {
+        try {
+            pool.execute(stream::drain);
+        } catch (RejectedExecutionException ex) {
+            // Every thread is busy; the events stay queued and the next publish or heartbeat tries again
+            stream.idle();
+        }
+    }
+
+    private void remove(Stream stream) {
+        Set<Stream> set = streams.get(stream.email);
+        if (set != null && set.remove(stream)) {
+            open.decrementAndGet();
+            if (set.isEmpty()) {
+                streams.remove(stream.email, set);
+            }
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(ActivityResponse activity) {
+        return SseEmitter.event()
+                .id(String.valueOf(activity.id()))
+                .name("activity")
+                .data(activity, MediaType.APPLICATION_JSON);
+    }
+
+    private static SseEmitter.SseEventBuilder reset() {
+        return SseEmitter.event().name("reset").data("{}", MediaType.APPLICATION_JSON);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One open stream. Sends are serialized on the instance, as an emitter must not be written concurrently;
+     * the pending queue has its own lock, so publishers never wait for a send.
+     */
+    private final class Stream {
+
+        private final String email;
+        private final SseEmitter emitter;
+        // Ids sent by the replay, so a live event racing it is not sent twice; guarded by the instance
+        private final Set<Long> replayed = new HashSet<>();
+        private long highestReplayed;
+        // Guards the fields below
+        private final Object lock = new Object();
+        private final ArrayDeque<ActivityResponse> pending = new ArrayDeque<>();
+        // Set once events were shed; the reload the reset triggers covers everything queued until it is sent
+        private boolean resetPending;
+        private boolean pingPending;
+        private boolean draining;
+        private volatile boolean closed;
+
+        Stream(String email, SseEmitter emitter) {
+            this.email = email;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues the events, or sheds everything queued in favour of a reset when they do not fit. Returns true
+         * when the caller has to start a drain.
+         */
+        boolean enqueue(List<ActivityResponse> activities) {
+            synchronized (lock) {
+                if (closed) {
+                    return false;
+                }
+                if (!resetPending) {
+                    if (pending.size() + activities.size() > queueCapacity) {
+                        // A connected client never asks for what it missed, so shed events would be lost; it reloads instead
+                        log.warn("Activity stream for {} is behind, dropped {} events", email, pending.size() + activities.size());
+                        shed.increment(pending.size() + activities.size());
+                        pending.clear();
+                        resetPending = true;
+                    } else {
+                        pending.addAll(activities);
+                    }
+                }
+                return start();
+            }
+        }
+
+        /**
+         * Asks for a heartbeat comment unless the stream is busy sending. Returns true when the caller has to
+         * start a drain.
+         */
+        boolean ping() {
+            synchronized (lock) {
+                if (closed || draining) {
+                    return false;
+                }
+                pingPending = true;
+                return start();
+            }
+        }
+
+        // Called when no drain could be started, so the next publish or heartbeat starts one
+        void idle() {
+            synchronized (lock) {
+                draining = false;
+            }
+        }
+
+        void drain() {
+            while (true) {
+                List<ActivityResponse> batch;
+                boolean reset;
+                boolean ping;
+                synchronized (lock) {
+                    if (closed || (pending.isEmpty() && !resetPending && !pingPending)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending);
+                    pending.clear();
+                    reset = resetPending;
+                    ping = pingPending;
+                    resetPending = false;
+                    pingPending = false;
+                }
+                if (reset) {
+                    sendReset();
+                } else if (!batch.isEmpty()) {
+                    send(batch);
+                } else if (ping) {
+                    sendPing();
+                }
+            }
+        }
+
+        private boolean start() {
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        synchronized void send(List<ActivityResponse> activities) {
+            for (ActivityResponse activity : activities) {
+                if (closed) {
+                    return;
+                }
+                if (!replayed.isEmpty()) {
+                    if (replayed.remove(activity.id())) {
+                        continue;
+                    }
+                    // Live ids past everything replayed mean the replay and the live events no longer overlap
+                    if (activity.id() > highestReplayed) {
+                        replayed.clear();
+                    }
+                }
+                try {
+                    emitter.send(event(activity));
+                    events.increment();
+                } catch (IOException | IllegalStateException ex) {
+                    fail(ex);
+                }
+            }
+        }
+
+        private synchronized void sendReset() {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(ActivityEventStream.reset());
+            } catch (IOException | IllegalStateException ex) {
+                fail(ex);
+            }
+        }
+
+        private synchronized void sendPing() {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException ex) {
+                fail(ex);
+            }
+        }
+
+        // The container reports the broken connection itself, which completes the emitter
+        private void fail(Exception ex) {
+            log.debug("Activity stream for {} closed: {}", email, ex.getMessage());
+            closed = true;
+            remove(this);
+        }
+    }
+}
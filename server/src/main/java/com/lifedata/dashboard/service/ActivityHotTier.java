@@ -0,0 +1,444 @@
+package com.lifedata.dashboard.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityPoint;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * In-memory columnar copy of recently used users' activities, so aggregates run as loops over primitive arrays
+ * instead of SQL round trips. A user's series is loaded in the background on first use, appended to once a write
+ * commits and evicted LRU once the total footprint exceeds the memory budget. Methods return null (or fall back to
+ * SQL) when the tier is off, the user does not fit or the load has not finished, so requests never wait for a load.
+ * <p>
+ * Each series carries the user's {@code data_version} its rows reflect. A commit on this node advances it only from
+ * the version right before its own; a reader whose user entity is newer than the series, because another replica
+ * wrote or a commit hook has not run yet, drops it and reads SQL while it reloads.
+ */
+@Component
+public class ActivityHotTier implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityHotTier.class);
+    private static final String CACHE_NAME = "activityHotTier";
+    private static final int LOAD_QUEUE_CAPACITY = 256;
+    // Users found over the budget are not counted again for a while; their row count only grows meanwhile
+    private static final int OVERSIZED_CAPACITY = 10_000;
+    private static final long OVERSIZED_RECHECK_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final ActivityRepository activityRepository;
+    private final ActivityArchive archive;
+    private final UserAccountRepository userRepository;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, ActivitySeries> series = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Long> footprints = new HashMap<>();
+    // Loads in flight by user id, guarded like the series map; a write to the user marks its load stale
+    private final Map<Long, PendingLoad> loads = new HashMap<>();
+    // Recheck deadline (System.nanoTime) by user id of users over the budget, guarded like the series map
+    private final LinkedHashMap<Long, Long> oversizedUsers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > OVERSIZED_CAPACITY;
+        }
+    };
+    private final ExecutorService loader;
+    private long totalBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter staleSeries;
+    private final Counter oversized;
+    private final DistributionSummary userBytes;
+
+    public ActivityHotTier(ActivityRepository activityRepository, ActivityArchive archive,
+            UserAccountRepository userRepository, MeterRegistry meterRegistry,
+            @Value("${app.activity.hot-tier.enabled:true}") boolean enabled,
+            @Value("${app.activity.hot-tier.max-megabytes:64}") long maxMegabytes,
+            @Value("${app.activity.hot-tier.load-threads:2}") int loadThreads) {
+        this.activityRepository = activityRepository;
+        this.archive = archive;
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.maxBytes = Math.max(1, maxMegabytes) * 1024 * 1024;
+        if (enabled) {
+            int size = Math.max(1, loadThreads);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(LOAD_QUEUE_CAPACITY), daemonThreads());
+            pool.allowCoreThreadTimeOut(true);
+            this.loader = ExecutorServiceMetrics.monitor(meterRegistry, pool, "activityHotTierLoads");
+        } else {
+            this.loader = null;
+        }
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "size").register(meterRegistry);
+        this.staleSeries = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "stale").register(meterRegistry);
+        this.oversized = Counter.builder("activity.hot_tier.oversized").register(meterRegistry);
+        // Per-user footprint as a distribution; a gauge tagged by user id would grow without bound
+        this.userBytes = DistributionSummary.builder("activity.hot_tier.user.bytes")
+                .baseUnit("bytes")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, ActivityHotTier::size).tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("activity.hot_tier.bytes", this, ActivityHotTier::totalBytes).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Same result as {@code ActivityRepository.sumValue} over stored and archived activities, served from memory
+     * when the user is resident.
+     */
+    public double sumValue(UserAccount user, ActivityType type, Instant from, Instant to) {
+        ActivitySeries resident = series(user);
+        if (resident == null) {
+            return activityRepository.sumValue(user, type, from, to) + archive.sumValue(user, type, from, to);
+        }
+        synchronized (resident) {
+            return resident.sumValue(type.ordinal(), from.toEpochMilli(), to.toEpochMilli());
+        }
+    }
+
+    /**
+     * First and last local day with activity, or null when the user is not resident; a miss starts loading the user.
+     * Both days are null for a resident user without activities.
+     */
+    LocalDate[] dayRange(UserAccount user) {
+        ActivitySeries resident = series(user);
+        if (resident == null) {
+            return null;
+        }
+        synchronized (resident) {
+            if (resident.size() == 0) {
+                return new LocalDate[2];
+            }
+            return new LocalDate[] {LocalDate.ofEpochDay(resident.minDay()), LocalDate.ofEpochDay(resident.maxDay())};
+        }
+    }
+
+    double[] sumByType(UserAccount user, LocalDate from, LocalDate to) {
+        ActivitySeries resident = series(user);
+        if (resident == null) {
+            return null;
+        }
+        synchronized (resident) {
+            return resident.sumByType((int) from.toEpochDay(), (int) to.toEpochDay());
+        }
+    }
+
+    double[] sumByStat(UserAccount user, LocalDate from, LocalDate to) {
+        ActivitySeries resident = series(user);
+        if (resident == null) {
+            return null;
+        }
+        synchronized (resident) {
+            return resident.sumByStat((int) from.toEpochDay(), (int) to.toEpochDay());
+        }
+    }
+
+    /**
+     * Daily totals per type, with the grid clamped to the days that actually hold activity.
+     */
+    DailyGrid sumByTypeAndDay(UserAccount user, LocalDate from, LocalDate to) {
+        ActivitySeries resident = series(user);
+        if (resident == null) {
+            return null;
+        }
+        synchronized (resident) {
+            int fromDay = (int) Math.max(from.toEpochDay(), resident.minDay());
+            int toDay = (int) Math.min(to.toEpochDay(), resident.maxDay());
+            if (resident.size() == 0 || fromDay > toDay) {
+                return DailyGrid.EMPTY;
+            }
+            return new DailyGrid(LocalDate.ofEpochDay(fromDay), resident.sumByTypeAndDay(fromDay, toDay));
+        }
+    }
+
+    public void append(UserAccount user, Activity activity, long dataVersion) {
+        appendAll(user, List.of(activity), dataVersion);
+    }
+
+    /**
+     * Adds just-saved activities, written at {@code dataVersion}, to the user's series once the transaction
+     * commits, so readers never see rows that may still roll back.
+     */
+    public void appendAll(UserAccount user, List<Activity> activities, long dataVersion) {
+        if (enabled) {
+            afterCommit(user.getId(), activities, dataVersion);
+        }
+    }
+
+    /**
+     * Moves the user's series to {@code dataVersion} once a write that changed no activities commits.
+     */
+    public void advance(Long userId, long dataVersion) {
+        if (enabled && userId != null) {
+            afterCommit(userId, List.of(), dataVersion);
+        }
+    }
+
+    /**
+     * Drops the user's series; loads running concurrently are not installed either.
+     */
+    public void evict(Long userId) {
+        synchronized (series) {
+            markLoadStale(userId);
+            oversizedUsers.remove(userId);
+            if (series.remove(userId) != null) {
+                account(userId, 0);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (series) {
+            return series.size();
+        }
+    }
+
+    public long totalBytes() {
+        synchronized (series) {
+            return totalBytes;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    private ActivitySeries series(UserAccount user) {
+        if (!enabled || user.getId() == null) {
+            return null;
+        }
+        Long userId = user.getId();
+        ZoneId zone = RollupService.zoneFor(user);
+        long dataVersion = DataVersionService.versionOf(user);
+        PendingLoad pending;
+        synchronized (series) {
+            ActivitySeries resident = series.get(userId);
+            if (resident != null && resident.zone().equals(zone) && resident.dataVersion() >= dataVersion) {
+                hits.increment();
+                return resident;
+            }
+            misses.increment();
+            if (resident != null) {
+                series.remove(userId);
+                account(userId, 0);
+                staleSeries.increment();
+            }
+            Long recheckAt = oversizedUsers.get(userId);
+            if (recheckAt != null && recheckAt - System.nanoTime() > 0) {
+                return null;
+            }
+            if (loads.containsKey(userId)) {
+                return null;
+            }
+            pending = new PendingLoad();
+            loads.put(userId, pending);
+        }
+        try {
+            loader.execute(() -> load(user, zone, pending));
+        } catch (RejectedExecutionException ex) {
+            synchronized (series) {
+                loads.remove(userId, pending);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the user's stored and archived activities into a new series and installs it unless a write to the
+     * user overlapped the read. Users over the budget are turned away by their row count, before anything is read,
+     * and remembered so later reads do not count them again.
+     * <p>
+     * Every activity write bumps {@code data_version} in its own transaction, so the version is read before and
+     * after the rows: when both match, the rows are exactly that version whatever the isolation level.
+     */
+    private void load(UserAccount user, ZoneId zone, PendingLoad pending) {
+        Long userId = user.getId();
+        try {
+            long archived = archive.count(user);
+            long rows = activityRepository.countByUser(user) + archived;
+            if (rows * ActivitySeries.BYTES_PER_ROW > maxBytes) {
+                oversized.increment();
+                synchronized (series) {
+                    oversizedUsers.put(userId, System.nanoTime() + OVERSIZED_RECHECK_NANOS);
+                }
+                return;
+            }
+            Long dataVersion = userRepository.findDataVersion(userId);
+            if (dataVersion == null) {
+                return;
+            }
+            List<ActivityPoint> points = activityRepository.findPoints(user);
+            ActivitySeries loaded = new ActivitySeries(zone, dataVersion, (int) (points.size() + archived));
+            for (ActivityPoint point : points) {
+                loaded.append(point.getOccurredAt().toEpochMilli(),
+                        (int) LocalDate.ofInstant(point.getOccurredAt(), zone).toEpochDay(),
+                        point.getType().ordinal(),
+                        point.getRpgStat().ordinal(),
+                        point.getTotal());
+            }
+            if (archived > 0) {
+                archive.forEach(user, activity -> loaded.append(activity.occurredAt().toEpochMilli(),
+                        (int) LocalDate.ofInstant(activity.occurredAt(), zone).toEpochDay(),
+                        activity.type().ordinal(),
+                        RollupService.effectiveStat(activity.rpgStat(), activity.type()).ordinal(),
+                        activity.value() != null ? activity.value() : 1.0));
+            }
+            if (!dataVersion.equals(userRepository.findDataVersion(userId))) {
+                return;
+            }
+            userBytes.record(loaded.footprintBytes());
+            synchronized (series) {
+                if (!pending.stale && loads.get(userId) == pending) {
+                    series.put(userId, loaded);
+                    account(userId, loaded.footprintBytes());
+                    trim();
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Loading user {} into the activity hot tier failed", userId, ex);
+        } finally {
+            synchronized (series) {
+                loads.remove(userId, pending);
+            }
+        }
+    }
+
+    private void afterCommit(Long userId, List<Activity> activities, long dataVersion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(userId, activities, dataVersion);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed(userId, activities, dataVersion);
+            }
+        });
+    }
+
+    private void committed(Long userId, List<Activity> activities, long dataVersion) {
+        ActivitySeries resident;
+        synchronized (series) {
+            // Loads that overlapped the transaction may have read around the rows; make them discard
+            markLoadStale(userId);
+            resident = series.get(userId);
+        }
+        if (resident == null) {
+            return;
+        }
+        boolean current;
+        long footprint;
+        synchronized (resident) {
+            if (resident.dataVersion() >= dataVersion) {
+                // Loaded after the commit, so the rows are in already
+                return;
+            }
+            // Only the version right before this write is known to lack nothing but these rows
+            current = resident.dataVersion() == dataVersion - 1;
+            if (current) {
+                ZoneId zone = resident.zone();
+                for (Activity activity : activities) {
+                    resident.append(activity.getOccurredAt().toEpochMilli(),
+                            (int) LocalDate.ofInstant(activity.getOccurredAt(), zone).toEpochDay(),
+                            activity.getType().ordinal(),
+                            RollupService.effectiveStat(activity.getRpgStat(), activity.getType()).ordinal(),
+                            activity.getValue() != null ? activity.getValue() : 1.0);
+                }
+                resident.dataVersion(dataVersion);
+            }
+            footprint = resident.footprintBytes();
+        }
+        synchronized (series) {
+            if (series.get(userId) != resident) {
+                return;
+            }
+            if (current) {
+                account(userId, footprint);
+                trim();
+            } else {
+                series.remove(userId);
+                account(userId, 0);
+                staleSeries.increment();
+            }
+        }
+    }
+
+    // Callers hold the series monitor
+    private void markLoadStale(Long userId) {
+        PendingLoad pending = loads.get(userId);
+        if (pending != null) {
+            pending.stale = true;
+        }
+    }
+
+    private void account(Long userId, long footprint) {
+        Long previous = footprint > 0 ? footprints.put(userId, footprint) : footprints.remove(userId);
+        totalBytes += footprint - (previous != null ? previous : 0L);
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Long, ActivitySeries>> eldest = series.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Long userId = eldest.next().getKey();
+            eldest.remove();
+            account(userId, 0);
+            sizeEvictions.increment();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "activity-hot-tier-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PendingLoad {
+        private boolean stale;
+    }
+
+    /**
+     * Daily totals as a [type ordinal][day - firstDay] grid; NaN marks a day without activity of that type.
+     */
+    record DailyGrid(LocalDate firstDay, double[][] totals) {
+        static final DailyGrid EMPTY = new DailyGrid(null, new double[0][]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.lifedata.dashboard.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.lifedata.dashboard.model.Activity;
+
+/**
+ * Moves the activity id sequence past ids handed out by the former auto-increment column. Runs once the schema
+ * is in place but before the web server and schedulers start, and only ever moves the sequence forward.
+ */
+@Component
+public class ActivityIdSequenceAligner implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityIdSequenceAligner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ActivityIdSequenceAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Fails startup when the sequence cannot be moved: ids handed out below existing rows would make every
+     * activity insert fail on the primary key.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from activities", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // Pooled ids are handed out below the sequence value, so keep a whole block of headroom
+        long target = maxId + Activity.ID_ALLOCATION_SIZE;
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (align(product, target)) {
+            log.info("Moved activities_seq to {} past existing activity ids", target);
+        }
+    }
+
+    private boolean align(String product, long target) {
+        switch (product) {
+            case "MySQL", "MariaDB" -> {
+                if (jdbcTemplate.update("update activities_seq set next_val = ? where next_val < ?", target, target) > 0) {
+                    return true;
+                }
+                Integer rows = jdbcTemplate.queryForObject("select count(*) from activities_seq", Integer.class);
+                if (rows != null && rows == 0) {
+                    jdbcTemplate.update("insert into activities_seq (next_val) values (?)", target);
+                    return true;
+                }
+                return false;
+            }
+            case "H2" -> {
+                Long current = jdbcTemplate.queryForObject(
+                        "select base_value from information_schema.sequences where sequence_name = 'ACTIVITIES_SEQ'", Long.class);
+                if (current != null && current >= target) {
+                    return false;
+                }
+                jdbcTemplate.execute("alter sequence activities_seq restart with " + target);
+                return true;
+            }
+            case "PostgreSQL" -> {
+                Long current = jdbcTemplate.queryForObject("select last_value from activities_seq", Long.class);
+                if (current != null && current >= target) {
+                    return false;
+                }
+                jdbcTemplate.queryForObject("select setval('activities_seq', ?)", Long.class, target);
+                return true;
+            }
+            default -> {
+                log.warn("Unknown database {}; activities_seq left unchanged", product);
+                return false;
+            }
+        }
+    }
+}
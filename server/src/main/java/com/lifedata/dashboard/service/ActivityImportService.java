@@ -0,0 +1,289 @@
+package com.lifedata.dashboard.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lifedata.dashboard.dto.ActivityImportError;
+import com.lifedata.dashboard.dto.ActivityImportResponse;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.exception.BadRequestException;
+import com.lifedata.dashboard.model.UserAccount;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Bulk import of CSV or NDJSON uploads. The body is read one record at a time and rows are inserted in batches of
+ * {@code app.activity.import.batch-size}, each in its own transaction, so neither the upload nor the import as a
+ * whole is held in memory. Rows that fail to parse or validate are reported and skipped; a batch the database
+ * rejects is retried row by row so only the offending rows are lost. Goals are re-summed once at the end.
+ */
+@Service
+public class ActivityImportService {
+
+    static final int MAX_REPORTED_ERRORS = 100;
+    static final int MAX_RECORD_CHARS = 64 * 1024;
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+    // Header names are matched ignoring case and underscores, so the export's snake_case header reads back as is
+    private static final Map<String, String> CSV_COLUMNS = csvColumns();
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityImportService.class);
+
+    private final ActivityService activityService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+    private final Counter importedRows;
+    private final Counter duplicateRows;
+    private final Counter rejectedRows;
+    private final DistributionSummary throughput;
+    private final Timer duration;
+
+    public ActivityImportService(ActivityService activityService, ObjectMapper objectMapper, Validator validator,
+            MeterRegistry meterRegistry, @Value("${app.activity.import.batch-size:1000}") int batchSize) {
+        this.activityService = activityService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = Math.max(1, batchSize);
+        this.importedRows = Counter.builder("activity.import.rows").tag("result", "imported").register(meterRegistry);
+        this.duplicateRows = Counter.builder("activity.import.rows").tag("result", "duplicate").register(meterRegistry);
+        this.rejectedRows = Counter.builder("activity.import.rows").tag("result", "rejected").register(meterRegistry);
+        this.throughput = DistributionSummary.builder("activity.import.throughput")
+                .baseUnit("rows/s")
+                .description("Rows read per second, per import")
+                .register(meterRegistry);
+        this.duration = Timer.builder("activity.import.duration").register(meterRegistry);
+    }
+
+    /**
+     * Imports a CSV upload whose first record is a header naming {@link ActivityRequest} fields; unknown columns,
+     * such as the export's {@code id}, are ignored and empty cells read as absent.
+     */
+    public ActivityImportResponse importCsv(UserAccount user, InputStream body) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(scanner(body), MAX_RECORD_CHARS);
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new BadRequestException("CSV upload is empty");
+        }
+        List<String> columns = header.stream()
+                .map(name -> CSV_COLUMNS.get(normalize(name)))
+                .toList();
+        if (!columns.contains("type")) {
+            throw new BadRequestException("CSV header has no type column");
+        }
+        return run(user, run -> {
+            List<String> record;
+            while ((record = next(run, reader::next)) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                long row = ++run.rows;
+                Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < record.size() && i < columns.size(); i++) {
+                    if (columns.get(i) != null && !record.get(i).isEmpty()) {
+                        fields.put(columns.get(i), record.get(i));
+                    }
+                }
+                ActivityRequest request;
+                try {
+                    request = objectMapper.convertValue(fields, ActivityRequest.class);
+                } catch (IllegalArgumentException ex) {
+                    run.reject(row, "Unreadable value: " + rootMessage(ex));
+                    continue;
+                }
+                run.add(row, request);
+            }
+        });
+    }
+
+    /**
+     * Imports an NDJSON upload, one {@link ActivityRequest} object per line; blank lines are skipped.
+     */
+    public ActivityImportResponse importNdjson(UserAccount user, InputStream body) throws IOException {
+        CharScanner scanner = scanner(body);
+        StringBuilder line = new StringBuilder();
+        return run(user, run -> {
+            while (next(run, () -> scanner.readLine(line, MAX_RECORD_CHARS)) != null) {
+                if (line.toString().isBlank()) {
+                    continue;
+                }
+                long row = ++run.rows;
+                ActivityRequest request;
+                try {
+                    request = objectMapper.readValue(line.toString(), ActivityRequest.class);
+                } catch (JsonProcessingException ex) {
+                    run.reject(row, "Unreadable JSON: " + ex.getOriginalMessage());
+                    continue;
+                }
+                run.add(row, request);
+            }
+        });
+    }
+
+    private ActivityImportResponse run(UserAccount user, RowSource source) throws IOException {
+        Import run = new Import(user);
+        long started = System.nanoTime();
+        try {
+            source.read(run);
+            run.flush();
+        } finally {
+            // Committed batches stay committed even if the upload broke off, so goals must see them either way
+            if (run.imported > 0) {
+                activityService.finishImport(user);
+            }
+            long elapsed = System.nanoTime() - started;
+            duration.record(elapsed, TimeUnit.NANOSECONDS);
+            if (run.rows > 0) {
+                throughput.record(run.rows * 1e9 / Math.max(elapsed, 1));
+            }
+            log.info("Imported {} of {} rows for user {} ({} duplicates, {} rejected) in {} ms", run.imported,
+                    run.rows, user.getId(), run.duplicates, run.rejectedCount, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+        return run.response();
+    }
+
+    /**
+     * Reads the next record, turning a malformed one into a final error: past it the input cannot be resynchronized.
+     */
+    private static <T> T next(Import run, RecordRead<T> read) throws IOException {
+        try {
+            return read.next();
+        } catch (IllegalArgumentException ex) {
+            run.reject(++run.rows, ex.getMessage() + "; import stopped here");
+            return null;
+        }
+    }
+
+    private static CharScanner scanner(InputStream body) {
+        return new CharScanner(new InputStreamReader(body, StandardCharsets.UTF_8), READ_BUFFER_CHARS);
+    }
+
+    private static Map<String, String> csvColumns() {
+        Map<String, String> columns = new HashMap<>();
+        for (RecordComponent component : ActivityRequest.class.getRecordComponents()) {
+            columns.put(normalize(component.getName()), component.getName());
+        }
+        return columns;
+    }
+
+    private static String normalize(String name) {
+        return name.strip().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Jackson's own message without the source location, which means nothing for a converted CSV record
+    private static String rootMessage(Throwable ex) {
+        Throwable root = ex;
+        while (root.getCause() != null && root.getCause() != root) {
+            if (root instanceof JsonProcessingException json) {
+                return json.getOriginalMessage();
+            }
+            root = root.getCause();
+        }
+        return root instanceof JsonProcessingException json ? json.getOriginalMessage() : root.getMessage();
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        void read(Import run) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordRead<T> {
+        T next() throws IOException;
+    }
+
+    /**
+     * State of one import: the pending batch, keyed by row number, and the running counts.
+     */
+    private final class Import {
+
+        private final UserAccount user;
+        private final Map<Long, ActivityRequest> batch = new LinkedHashMap<>();
+        private final List<ActivityImportError> rejected = new ArrayList<>();
+        private long rejectedCount;
+        private long rows;
+        private long imported;
+        private long duplicates;
+
+        Import(UserAccount user) {
+            this.user = user;
+        }
+
+        void add(long row, ActivityRequest request) {
+            Set<ConstraintViolation<ActivityRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(row, violations.stream()
+                        .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            batch.put(row, request);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                record(batch.size(), activityService.importBatch(user, List.copyOf(batch.values())));
+            } catch (RuntimeException ex) {
+                log.debug("Import batch for user {} failed, retrying row by row", user.getId(), ex);
+                batch.forEach((row, request) -> {
+                    try {
+                        record(1, activityService.importBatch(user, List.of(request)));
+                    } catch (RuntimeException rowFailure) {
+                        reject(row, "Not stored: " + rootMessage(rowFailure));
+                    }
+                });
+            }
+            batch.clear();
+        }
+
+        void reject(long row, String message) {
+            rejectedCount++;
+            rejectedRows.increment();
+            if (rejected.size() < MAX_REPORTED_ERRORS) {
+                rejected.add(new ActivityImportError(row, message));
+            }
+        }
+
+        private void record(int submitted, int inserted) {
+            imported += inserted;
+            duplicates += submitted - inserted;
+            importedRows.increment(inserted);
+            duplicateRows.increment(submitted - inserted);
+        }
+
+        ActivityImportResponse response() {
+            return new ActivityImportResponse(rows, imported, duplicates, rejectedCount, List.copyOf(rejected));
+        }
+    }
+}
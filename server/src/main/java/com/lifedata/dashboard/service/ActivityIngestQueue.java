@@ -0,0 +1,397 @@
+package com.lifedata.dashboard.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lifedata.dashboard.dto.ActivityAcceptedResponse;
+import com.lifedata.dashboard.dto.ActivityBatchRequest;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Write-behind path for single activity writes. Validated requests go into a bounded in-memory queue and the
+ * caller gets an id back right away; writer threads drain the queue and commit everything they took in one
+ * transaction, using the batch insert path per user. A full queue rejects with 429 instead of blocking.
+ * <p>
+ * Accepted writes are only dropped for errors in the row itself, such as a constraint violation or a deleted user.
+ * Transient database errors (lost connections, lock timeouts) are retried with exponential backoff; what still
+ * fails after the last attempt is spilled like a shutdown leftover.
+ * <p>
+ * Starts before and stops after the web server. On shutdown the writers drain for a bounded time and whatever
+ * is left is spilled to NDJSON files, which are written through on the next startup before traffic is accepted.
+ */
+@Component
+public class ActivityIngestQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityIngestQueue.class);
+    private static final String SPILL_PREFIX = "activity-ingest-";
+    private static final String SPILL_SUFFIX = ".ndjson";
+    private static final long INITIAL_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final ActivityService activityService;
+    private final UserAccountRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int writers;
+    private final int maxGroupSize;
+    private final long drainTimeoutMillis;
+    private final int retryAttempts;
+    private final Path spillDirectory;
+    private final BlockingQueue<Entry> queue;
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private final Timer latency;
+    private final DistributionSummary groupSize;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter retried;
+    private final Counter spilled;
+    private volatile boolean running;
+    private volatile long drainDeadline = Long.MAX_VALUE;
+
+    public ActivityIngestQueue(ActivityService activityService, UserAccountRepository userRepository,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${app.activity.ingest.async.enabled:false}") boolean enabled,
+            @Value("${app.activity.ingest.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.activity.ingest.writers:2}") int writers,
+            @Value("${app.activity.ingest.max-group-size:500}") int maxGroupSize,
+            @Value("${app.activity.ingest.drain-timeout-ms:10000}") long drainTimeoutMillis,
+            @Value("${app.activity.ingest.retry-attempts:5}") int retryAttempts,
+            @Value("${app.activity.ingest.spill-dir:data/ingest-spill}") String spillDirectory) {
+        this.activityService = activityService;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.writers = Math.max(1, writers);
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.drainTimeoutMillis = Math.max(0, drainTimeoutMillis);
+        this.retryAttempts = Math.max(1, retryAttempts);
+        this.spillDirectory = Paths.get(spillDirectory);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.latency = Timer.builder("activity.ingest.latency")
+                .description("Time from accepting a queued activity to its commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("activity.ingest.group.size")
+                .description("Activities committed per writer transaction")
+                .register(meterRegistry);
+        this.accepted = Counter.builder("activity.ingest.accepted").register(meterRegistry);
+        this.rejected = Counter.builder("activity.ingest.rejected").register(meterRegistry);
+        this.failed = Counter.builder("activity.ingest.failed").register(meterRegistry);
+        this.retried = Counter.builder("activity.ingest.retried").register(meterRegistry);
+        this.spilled = Counter.builder("activity.ingest.spilled").register(meterRegistry);
+        Gauge.builder("activity.ingest.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues an already validated request. Throws 429 when the queue is full and 503 while shutting down.
+     */
+    public ActivityAcceptedResponse submit(UserAccount user, ActivityRequest request) {
+        if (!enabled || !running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Activity ingest is not accepting writes");
+        }
+        Instant acceptedAt = Instant.now();
+        Entry entry = new Entry(UUID.randomUUID(), user.getId(), acceptedAt, request.withDefaultOccurredAt(acceptedAt));
+        if (!queue.offer(entry)) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Activity ingest queue is full");
+        }
+        accepted.increment();
+        return new ActivityAcceptedResponse(entry.id(), acceptedAt);
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        replaySpills();
+        if (enabled) {
+            drainDeadline = Long.MAX_VALUE;
+            running = true;
+            for (int i = 1; i <= writers; i++) {
+                Thread thread = new Thread(this::drain, "activity-ingest-" + i);
+                writerThreads.add(thread);
+                thread.start();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        for (Thread thread : writerThreads) {
+            try {
+                // Writers finish the group they hold, so this waits at most one commit past the deadline
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        writerThreads.clear();
+        List<Entry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Before the web server starts accepting requests and after it has stopped.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        List<Entry> group = new ArrayList<>(maxGroupSize);
+        while (running || (!queue.isEmpty() && System.nanoTime() < drainDeadline)) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                writeWithRetry(group);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.warn("Activity ingest writer failed: {}", ex.getMessage(), ex);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the group, backing off and retrying the entries that hit a transient error. Whatever is left after
+     * the last attempt, or once the shutdown drain deadline has passed, is spilled for the next startup.
+     */
+    private void writeWithRetry(List<Entry> group) throws InterruptedException {
+        List<Entry> pending = write(group);
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            if (attempt == retryAttempts || (!running && System.nanoTime() >= drainDeadline)) {
+                spill(pending);
+                return;
+            }
+            retried.increment(pending.size());
+            log.warn("{} queued activities hit a transient database error; retrying in {} ms", pending.size(), backoff);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ex) {
+                spill(pending);
+                throw ex;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            pending = write(pending);
+        }
+    }
+
+    /**
+     * Commits the group in one transaction. If that fails for a reason other than a transient error, retries per
+     * user and then per activity so one bad row only loses itself. Returns the entries to try again later.
+     */
+    private List<Entry> write(List<Entry> group) {
+        Map<Long, List<Entry>> byUser = new LinkedHashMap<>();
+        for (Entry entry : group) {
+            byUser.computeIfAbsent(entry.userId(), id -> new ArrayList<>()).add(entry);
+        }
+        Map<Long, UserAccount> users = new LinkedHashMap<>();
+        try {
+            userRepository.findAllById(byUser.keySet()).forEach(user -> users.put(user.getId(), user));
+        } catch (Exception ex) {
+            // Nothing about the rows is known to be wrong yet, so keep all of them
+            log.warn("Could not load users for {} queued activities: {}", group.size(), ex.getMessage());
+            return new ArrayList<>(group);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> byUser.forEach((userId, entries) -> insert(users.get(userId), entries)));
+            committed(group);
+            return List.of();
+        } catch (Exception ex) {
+            if (isTransient(ex)) {
+                return new ArrayList<>(group);
+            }
+            log.warn("Group commit of {} queued activities failed, retrying individually: {}", group.size(), ex.getMessage());
+        }
+        List<Entry> retry = new ArrayList<>();
+        byUser.forEach((userId, entries) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(users.get(userId), entries));
+                committed(entries);
+            } catch (Exception ex) {
+                if (isTransient(ex)) {
+                    retry.addAll(entries);
+                    return;
+                }
+                for (Entry entry : entries) {
+                    try {
+                        // Outside a transaction of ours, so the batch path can retry a lost external key race itself
+                        insert(users.get(userId), List.of(entry));
+                        committed(List.of(entry));
+                    } catch (Exception single) {
+                        if (isTransient(single)) {
+                            retry.add(entry);
+                        } else {
+                            failed.increment();
+                            log.warn("Dropped queued activity {} for user {}: {}", entry.id(), userId, single.getMessage());
+                        }
+                    }
+                }
+            }
+        });
+        return retry;
+    }
+
+    /**
+     * Whether the failure lies with the database connection or with contention rather than with the rows, so the
+     * same write can succeed later.
+     */
+    static boolean isTransient(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insert(UserAccount user, List<Entry> entries) {
+        if (user == null) {
+            throw new IllegalStateException("User no longer exists");
+        }
+        for (int from = 0; from < entries.size(); from += ActivityBatchRequest.MAX_SIZE) {
+            List<Entry> chunk = entries.subList(from, Math.min(entries.size(), from + ActivityBatchRequest.MAX_SIZE));
+            activityService.addActivities(user, chunk.stream().map(Entry::request).toList());
+        }
+    }
+
+    private void committed(List<Entry> entries) {
+        Instant now = Instant.now();
+        groupSize.record(entries.size());
+        for (Entry entry : entries) {
+            latency.record(Duration.between(entry.acceptedAt(), now));
+        }
+    }
+
+    private void spill(List<Entry> entries) {
+        // Writers may spill at the same moment, so the name carries the first entry's id as well
+        Path file = spillDirectory.resolve(SPILL_PREFIX + System.currentTimeMillis() + "-" + entries.get(0).id() + SPILL_SUFFIX);
+        try {
+            Files.createDirectories(spillDirectory);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (Entry entry : entries) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+            }
+            spilled.increment(entries.size());
+            log.info("Spilled {} queued activities to {}", entries.size(), file);
+        } catch (IOException ex) {
+            log.error("Could not spill {} queued activities to {}; they are lost", entries.size(), file, ex);
+        }
+    }
+
+    /**
+     * Writes spilled activities from an earlier shutdown synchronously, whether or not async ingest is enabled now.
+     * A file is deleted once all of its rows have been committed or dropped as invalid; rows that still hit a
+     * transient error are spilled to a new file first.
+     */
+    private void replaySpills() {
+        if (!Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, SPILL_PREFIX + "*" + SPILL_SUFFIX)) {
+            for (Path file : files) {
+                List<Entry> entries = new ArrayList<>();
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            entries.add(objectMapper.readValue(line, Entry.class));
+                        }
+                    }
+                }
+                List<Entry> left = new ArrayList<>();
+                for (int from = 0; from < entries.size(); from += maxGroupSize) {
+                    left.addAll(write(entries.subList(from, Math.min(entries.size(), from + maxGroupSize))));
+                }
+                if (!left.isEmpty()) {
+                    spill(left);
+                }
+                Files.delete(file);
+                log.info("Replayed {} spilled activities from {}", entries.size(), file);
+            }
+        } catch (IOException ex) {
+            log.error("Could not replay spilled activities from {}", spillDirectory, ex);
+        }
+    }
+
+    record Entry(UUID id, Long userId, Instant acceptedAt, ActivityRequest request) {}
+}
@@ -0,0 +1,154 @@
+package com.lifedata.dashboard.service;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+
+/**
+ * One user's activities as parallel primitive columns: occurrence time, local epoch day, type ordinal,
+ * effective stat ordinal and value (null values stored as 1.0, as in the SQL sums). Rows are in arrival
+ * order, not time order; every aggregate is a full scan. Callers must hold the series' monitor.
+ */
+final class ActivitySeries {
+
+    private static final int INITIAL_CAPACITY = 16;
+    // Per row: long + int + byte + byte + double
+    static final int BYTES_PER_ROW = Long.BYTES + Integer.BYTES + 2 + Double.BYTES;
+    // Object headers, array headers and the zone reference, roughly
+    private static final int FIXED_OVERHEAD = 128;
+
+    static final int TYPE_COUNT = ActivityType.values().length;
+    static final int STAT_COUNT = RpgStat.values().length;
+
+    private final ZoneId zone;
+    // The user's data_version the rows reflect; volatile so the tier can check it without taking the monitor
+    private volatile long dataVersion;
+    private long[] epochMilli;
+    private int[] epochDay;
+    private byte[] type;
+    private byte[] stat;
+    private double[] value;
+    private int size;
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+
+    ActivitySeries(ZoneId zone, long dataVersion, int expectedRows) {
+        this.zone = zone;
+        this.dataVersion = dataVersion;
+        int capacity = Math.max(INITIAL_CAPACITY, expectedRows);
+        this.epochMilli = new long[capacity];
+        this.epochDay = new int[capacity];
+        this.type = new byte[capacity];
+        this.stat = new byte[capacity];
+        this.value = new double[capacity];
+    }
+
+    ZoneId zone() {
+        return zone;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long dataVersion() {
+        return dataVersion;
+    }
+
+    void dataVersion(long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    int minDay() {
+        return minDay;
+    }
+
+    int maxDay() {
+        return maxDay;
+    }
+
+    long footprintBytes() {
+        return FIXED_OVERHEAD + (long) epochMilli.length * BYTES_PER_ROW;
+    }
+
+    void append(long occurredAtMilli, int day, int typeOrdinal, int statOrdinal, double rowValue) {
+        if (size == epochMilli.length) {
+            int capacity = epochMilli.length + (epochMilli.length >> 1);
+            epochMilli = Arrays.copyOf(epochMilli, capacity);
+            epochDay = Arrays.copyOf(epochDay, capacity);
+            type = Arrays.copyOf(type, capacity);
+            stat = Arrays.copyOf(stat, capacity);
+            value = Arrays.copyOf(value, capacity);
+        }
+        epochMilli[size] = occurredAtMilli;
+        epochDay[size] = day;
+        type[size] = (byte) typeOrdinal;
+        stat[size] = (byte) statOrdinal;
+        value[size] = rowValue;
+        size++;
+        if (day < minDay) minDay = day;
+        if (day > maxDay) maxDay = day;
+    }
+
+    /**
+     * Sum of values of one type with fromMilli <= occurredAt <= toMilli, matching {@code ActivityRepository.sumValue}.
+     */
+    double sumValue(int typeOrdinal, long fromMilli, long toMilli) {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            long t = epochMilli[i];
+            if (type[i] == typeOrdinal && t >= fromMilli && t <= toMilli) {
+                sum += value[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Per-type totals over local days [fromDay, toDay], indexed by type ordinal; NaN marks a type with no rows.
+     */
+    double[] sumByType(int fromDay, int toDay) {
+        return sumByColumn(type, TYPE_COUNT, fromDay, toDay);
+    }
+
+    /**
+     * Per-stat totals over local days [fromDay, toDay], indexed by stat ordinal; NaN marks a stat with no rows.
+     */
+    double[] sumByStat(int fromDay, int toDay) {
+        return sumByColumn(stat, STAT_COUNT, fromDay, toDay);
+    }
+
+    /**
+     * Daily totals as a [type][day - fromDay] grid over [fromDay, toDay]; NaN marks a day with no rows of that type.
+     */
+    double[][] sumByTypeAndDay(int fromDay, int toDay) {
+        double[][] grid = new double[TYPE_COUNT][toDay - fromDay + 1];
+        for (double[] row : grid) {
+            Arrays.fill(row, Double.NaN);
+        }
+        for (int i = 0; i < size; i++) {
+            int day = epochDay[i];
+            if (day >= fromDay && day <= toDay) {
+                double[] row = grid[type[i]];
+                int offset = day - fromDay;
+                row[offset] = Double.isNaN(row[offset]) ? value[i] : row[offset] + value[i];
+            }
+        }
+        return grid;
+    }
+
+    private double[] sumByColumn(byte[] column, int buckets, int fromDay, int toDay) {
+        double[] totals = new double[buckets];
+        Arrays.fill(totals, Double.NaN);
+        for (int i = 0; i < size; i++) {
+            int day = epochDay[i];
+            if (day >= fromDay && day <= toDay) {
+                int bucket = column[i];
+                totals[bucket] = Double.isNaN(totals[bucket]) ? value[i] : totals[bucket] + value[i];
+            }
+        }
+        return totals;
+    }
+}
@@ -1,34 +1,53 @@
 package com.lifedata.dashboard.service;
 
-import java.time.DayOfWeek;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.lifedata.dashboard.dto.ActivityBatchResponse;
+import com.lifedata.dashboard.dto.ActivityCursor;
+import com.lifedata.dashboard.dto.ActivityPage;
 import com.lifedata.dashboard.dto.ActivityRequest;
 import com.lifedata.dashboard.dto.ActivityResponse;
 import com.lifedata.dashboard.model.Activity;
 import com.lifedata.dashboard.model.ActivityType;
-import com.lifedata.dashboard.model.Goal;
-import com.lifedata.dashboard.model.GoalPeriod;
 import com.lifedata.dashboard.model.RpgStat;
 import com.lifedata.dashboard.model.UserAccount;
 import com.lifedata.dashboard.repository.ActivityRepository;
-import com.lifedata.dashboard.repository.GoalRepository;
 
 @Service
 public class ActivityService {
 
     private final ActivityRepository activityRepository;
-    private final SimpMessagingTemplate messagingTemplate;
-    private final GoalRepository goalRepository;
+    private final LiveUpdatePublisher liveUpdatePublisher;
+    private final GoalProgressUpdater goalProgressUpdater;
+    private final RollupService rollupService;
+    private final StreakService streakService;
+    private final DashboardSummaryCache summaryCache;
+    private final DataVersionService dataVersionService;
+    private final ActivityHotTier hotTier;
+    private final ActivityArchive archive;
+    private final TransactionTemplate transactionTemplate;
+
+    public static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_FEED_PAGE_SIZE = 50;
+    // Each retry of a batch that lost an external key race skips the keys stored by the winner
+    private static final int MAX_KEY_CONFLICT_ATTEMPTS = 3;
 
         private static final Map<ActivityType, RpgStat> DEFAULT_STAT_BY_TYPE = Map.of(
             ActivityType.GITHUB_COMMITS, RpgStat.DEX,
@@ -38,14 +57,167 @@ public class ActivityService {
             ActivityType.DSA, RpgStat.WIS,
             ActivityType.CUSTOM, RpgStat.VIT);
 
-    public ActivityService(ActivityRepository activityRepository, SimpMessagingTemplate messagingTemplate, GoalRepository goalRepository) {
+    public ActivityService(ActivityRepository activityRepository, LiveUpdatePublisher liveUpdatePublisher, GoalProgressUpdater goalProgressUpdater,
+            RollupService rollupService, StreakService streakService, DashboardSummaryCache summaryCache,
+            DataVersionService dataVersionService, ActivityHotTier hotTier, ActivityArchive archive,
+            PlatformTransactionManager transactionManager) {
         this.activityRepository = activityRepository;
-        this.messagingTemplate = messagingTemplate;
-        this.goalRepository = goalRepository;
+        this.liveUpdatePublisher = liveUpdatePublisher;
+        this.goalProgressUpdater = goalProgressUpdater;
+        this.rollupService = rollupService;
+        this.streakService = streakService;
+        this.summaryCache = summaryCache;
+        this.dataVersionService = dataVersionService;
+        this.hotTier = hotTier;
+        this.archive = archive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * Stores the activity, or returns the one already stored under the same external key. Two concurrent writes
+     * with the same key both pass the lookup; the loser fails on uq_activities_user_external_key, its transaction
+     * rolls back and it answers with the winner's row instead.
+     */
     public ActivityResponse addActivity(UserAccount user, ActivityRequest request) {
-        Activity activity = Activity.builder()
+        try {
+            return transactionTemplate.execute(status -> insert(user, request));
+        } catch (DataIntegrityViolationException ex) {
+            if (request.externalKey() == null) {
+                throw ex;
+            }
+            return activityRepository.findByUserAndExternalKey(user, request.externalKey())
+                    .map(ActivityService::toResponse)
+                    .orElseThrow(() -> ex);
+        }
+    }
+
+    private ActivityResponse insert(UserAccount user, ActivityRequest request) {
+        if (request.externalKey() != null) {
+            Optional<Activity> existing = activityRepository.findByUserAndExternalKey(user, request.externalKey());
+            if (existing.isPresent()) {
+                return toResponse(existing.get());
+            }
+            Optional<ActivityResponse> archived = archive.findByExternalKey(user, request.externalKey());
+            if (archived.isPresent()) {
+                return archived.get();
+            }
+        }
+        // Flushed right away so a duplicate key fails before rollups, streaks and goals are touched
+        Activity saved = activityRepository.saveAndFlush(toEntity(user, request));
+        rollupService.record(user, saved);
+        streakService.record(user, saved);
+        goalProgressUpdater.apply(user, List.of(saved));
+        summaryCache.evict(user.getId());
+        hotTier.append(user, saved, dataVersionService.bumpForActivities(user.getId()));
+        ActivityResponse response = toResponse(saved);
+        liveUpdatePublisher.activityAdded(user, response);
+        return response;
+    }
+
+    /**
+     * Inserts the activities as JDBC batches, then updates rollups, streaks and goals once for the whole batch
+     * and publishes a single batch event instead of one message per activity. Requests whose external key is
+     * already stored (or repeated within the batch) are skipped; the response lists only the new activities.
+     * A batch that loses an external key to a concurrent write is rolled back and runs again, as described at
+     * {@link #retryingKeyConflicts}.
+     */
+    public ActivityBatchResponse addActivities(UserAccount user, List<ActivityRequest> requests) {
+        return retryingKeyConflicts(requests, () -> insertAll(user, requests));
+    }
+
+    private ActivityBatchResponse insertAll(UserAccount user, List<ActivityRequest> requests) {
+        List<ActivityRequest> fresh = withoutKnownExternalKeys(user, requests);
+        if (fresh.isEmpty()) {
+            return new ActivityBatchResponse(0, List.of());
+        }
+        // Flushed right away so a duplicate key fails before rollups, streaks and goals are touched
+        List<Activity> saved = activityRepository.saveAllAndFlush(fresh.stream().map(request -> toEntity(user, request)).toList());
+        rollupService.recordAll(user, saved);
+        streakService.recordAll(user, saved);
+        goalProgressUpdater.apply(user, saved);
+        summaryCache.evict(user.getId());
+        hotTier.appendAll(user, saved, dataVersionService.bumpForActivities(user.getId()));
+        List<ActivityResponse> responses = saved.stream().map(ActivityService::toResponse).collect(Collectors.toList());
+        ActivityBatchResponse batch = new ActivityBatchResponse(responses.size(), responses);
+        liveUpdatePublisher.activitiesAdded(user, batch);
+        return batch;
+    }
+
+    /**
+     * Import path: inserts one batch like {@link #addActivities} and keeps rollups, streaks and the hot tier in step,
+     * but leaves goals and cached views to {@link #finishImport}, which runs once per import. Returns the number
+     * of activities inserted.
+     */
+    public int importBatch(UserAccount user, List<ActivityRequest> requests) {
+        return retryingKeyConflicts(requests, () -> importAll(user, requests));
+    }
+
+    private int importAll(UserAccount user, List<ActivityRequest> requests) {
+        List<ActivityRequest> fresh = withoutKnownExternalKeys(user, requests);
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        List<Activity> saved = activityRepository.saveAllAndFlush(fresh.stream().map(request -> toEntity(user, request)).toList());
+        rollupService.recordAll(user, saved);
+        streakService.recordAll(user, saved);
+        // Bumped per batch so resident series, here and on other replicas, stay checkable against the version
+        hotTier.appendAll(user, saved, dataVersionService.bumpForActivities(user.getId()));
+        return saved.size();
+    }
+
+    /**
+     * Re-sums the user's goals once over everything an import inserted and invalidates cached views. Imported
+     * history is not announced on the live topics.
+     */
+    public void finishImport(UserAccount user) {
+        goalProgressUpdater.reconcile(user);
+        summaryCache.evict(user.getId());
+        dataVersionService.bump(user.getId());
+    }
+
+    /**
+     * Runs a batch write in its own transaction. Two batches that share an external key can both pass the lookup;
+     * the one that fails on uq_activities_user_external_key rolls back and runs again, and the keys the other
+     * stored are then skipped like any known key. Inside a caller's transaction the failed write cannot be
+     * repeated, so the violation is left to the caller.
+     */
+    private <T> T retryingKeyConflicts(List<ActivityRequest> requests, Supplier<T> write) {
+        boolean retryable = !TransactionSynchronizationManager.isActualTransactionActive()
+                && requests.stream().anyMatch(request -> request.externalKey() != null);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> write.get());
+            } catch (DataIntegrityViolationException ex) {
+                if (!retryable || attempt >= MAX_KEY_CONFLICT_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private List<ActivityRequest> withoutKnownExternalKeys(UserAccount user, List<ActivityRequest> requests) {
+        Set<String> keys = new HashSet<>();
+        for (ActivityRequest request : requests) {
+            if (request.externalKey() != null) {
+                keys.add(request.externalKey());
+            }
+        }
+        if (keys.isEmpty()) {
+            return requests;
+        }
+        Set<String> seen = new HashSet<>(activityRepository.findExistingExternalKeys(user, keys));
+        seen.addAll(archive.findExistingExternalKeys(user, keys));
+        List<ActivityRequest> fresh = new ArrayList<>(requests.size());
+        for (ActivityRequest request : requests) {
+            if (request.externalKey() == null || seen.add(request.externalKey())) {
+                fresh.add(request);
+            }
+        }
+        return fresh;
+    }
+
+    private Activity toEntity(UserAccount user, ActivityRequest request) {
+        return Activity.builder()
                 .user(user)
                 .type(request.type())
                 .rpgStat(resolveRpgStat(request))
@@ -61,71 +233,71 @@ public class ActivityService {
                 .likes(request.likes())
                 .comments(request.comments())
                 .shares(request.shares())
+                .externalKey(request.externalKey())
                 .occurredAt(request.occurredAt() != null ? request.occurredAt() : Instant.now())
                 .build();
-        Activity saved = activityRepository.save(activity);
-        updateGoalProgress(user, saved);
-        ActivityResponse response = toResponse(saved);
-        messagingTemplate.convertAndSend("/topic/activity", response);
-        return response;
     }
 
-    public List<ActivityResponse> feed(UserAccount user, int limit) {
-        return activityRepository.findTop50ByUserOrderByOccurredAtDesc(user).stream()
-                .limit(Math.max(1, Math.min(limit, 50)))
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public ActivityPage feed(UserAccount user, int limit, String cursor) {
+        return page(user, null, Math.min(limit, MAX_FEED_PAGE_SIZE), ActivityCursor.decode(cursor), null);
     }
 
-    public List<ActivityResponse> recent(UserAccount user) {
+    /**
+     * The last 30 days, newest first; the last page ends at the first older activity.
+     */
+    @Transactional(readOnly = true)
+    public ActivityPage recent(UserAccount user, int limit, String cursor) {
         Instant from = Instant.now().minus(30, ChronoUnit.DAYS);
-        return activityRepository.findByUserAndOccurredAtBetween(user, from, Instant.now())
-                .stream().map(this::toResponse).collect(Collectors.toList());
+        return page(user, null, limit, ActivityCursor.decode(cursor), from);
     }
 
-    public List<ActivityResponse> byType(UserAccount user, ActivityType type) {
-        return activityRepository.findByUserAndType(user, type)
-                .stream().map(this::toResponse).collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public ActivityPage byType(UserAccount user, ActivityType type, int limit, String cursor) {
+        return page(user, type, limit, ActivityCursor.decode(cursor), null);
     }
 
-    private void updateGoalProgress(UserAccount user, Activity activity) {
-        if (activity.getType() == null) {
-            return;
+    private ActivityPage page(UserAccount user, ActivityType type, int limit, ActivityCursor after, Instant notBefore) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells whether there is a next page without a count query
+        Limit fetch = Limit.of(size + 1);
+        List<ActivityResponse> rows;
+        if (after == null) {
+            rows = type == null
+                    ? activityRepository.findResponsePage(user, fetch)
+                    : activityRepository.findResponsePageByType(user, type, fetch);
+        } else {
+            rows = type == null
+                    ? activityRepository.findResponsePageAfter(user, after.occurredAt(), after.id(), fetch)
+                    : activityRepository.findResponsePageAfterByType(user, type, after.occurredAt(), after.id(), fetch);
         }
-        List<Goal> goals = goalRepository.findByUserAndActivityType(user, activity.getType());
-        if (goals.isEmpty()) {
-            return;
+        List<ActivityResponse> candidates = new ArrayList<>(rows);
+        // Archived rows rank after the stored ones, except for backdated writes; read them only when they can reach this page
+        Instant lastArchived = archive.lastArchivedAt(user);
+        if (lastArchived != null
+                && (rows.size() <= size || !lastArchived.isBefore(rows.get(size).occurredAt()))
+                && (notBefore == null || !lastArchived.isBefore(notBefore))) {
+            candidates.addAll(archive.pageAfter(user, type, after, size + 1));
+            candidates.sort(ActivityArchive.NEWEST_FIRST);
         }
-        ZoneId zone = ZoneId.of(user.getTimezone() != null ? user.getTimezone() : ZoneId.systemDefault().getId());
-        Instant now = Instant.now();
-        for (Goal goal : goals) {
-            Instant start = startForPeriod(goal.getPeriod(), zone);
-            Instant end = now;
-            if (goal.getStartDate() != null) {
-                start = goal.getStartDate().atStartOfDay(zone).toInstant();
-            }
-            if (goal.getEndDate() != null) {
-                end = goal.getEndDate().plusDays(1).atStartOfDay(zone).toInstant();
+        boolean more = candidates.size() > size;
+        List<ActivityResponse> items = new ArrayList<>(Math.min(candidates.size(), size));
+        for (ActivityResponse activity : candidates.subList(0, Math.min(candidates.size(), size))) {
+            if (notBefore != null && activity.occurredAt().isBefore(notBefore)) {
+                more = false;
+                break;
             }
-            double sum = activityRepository.findByUserAndTypeAndOccurredAtBetween(user, activity.getType(), start, end)
-                    .stream().mapToDouble(a -> a.getValue() != null ? a.getValue() : 1.0).sum();
-            goal.setCurrentValue(sum);
+            items.add(activity);
         }
-        goalRepository.saveAll(goals);
-    }
-
-    private Instant startForPeriod(GoalPeriod period, ZoneId zone) {
-        LocalDate today = LocalDate.now(zone);
-        return switch (period) {
-            case DAILY -> today.atStartOfDay(zone).toInstant();
-            case WEEKLY -> today.with(DayOfWeek.MONDAY).atStartOfDay(zone).toInstant();
-            case MONTHLY -> today.withDayOfMonth(1).atStartOfDay(zone).toInstant();
-            case QUARTERLY -> today.withMonth(((today.getMonthValue() - 1) / 3) * 3 + 1).withDayOfMonth(1).atStartOfDay(zone).toInstant();
-            case CUSTOM -> today.atStartOfDay(zone).toInstant();
-        };
+        String next = null;
+        if (more) {
+            ActivityResponse last = items.get(items.size() - 1);
+            next = new ActivityCursor(last.occurredAt(), last.id()).encode();
+        }
+        return new ActivityPage(items, next);
     }
 
-    private ActivityResponse toResponse(Activity activity) {
+    static ActivityResponse toResponse(Activity activity) {
         return new ActivityResponse(
                 activity.getId(),
                 activity.getType(),
@@ -21,6 +21,7 @@ import com.lifedata.dashboard.dto.PasswordChangeRequest;
 import com.lifedata.dashboard.dto.PasswordResetConfirmRequest;
 import com.lifedata.dashboard.dto.PasswordResetRequest;
 import com.lifedata.dashboard.dto.SignupRequest;
+import com.lifedata.dashboard.exception.BadRequestException;
 import com.lifedata.dashboard.model.Role;
 import com.lifedata.dashboard.model.UserAccount;
 import com.lifedata.dashboard.repository.UserAccountRepository;
@@ -71,7 +72,7 @@ public class AuthService {
     @Transactional
     public void changePassword(UserAccount user, PasswordChangeRequest request) {
         if (!passwordEncoder.matches(request.currentPassword(), user.getPasswordHash())) {
-            throw new IllegalArgumentException("Current password incorrect");
+            throw new BadRequestException("Current password incorrect");
         }
         user.setPasswordHash(passwordEncoder.encode(request.newPassword()));
         userRepository.save(user);
@@ -79,7 +80,7 @@ public class AuthService {
 
     @Transactional
     public String requestPasswordReset(PasswordResetRequest request) {
-        UserAccount user = userRepository.findByEmail(request.email()).orElseThrow(() -> new IllegalArgumentException("User not found"));
+        UserAccount user = userRepository.findByEmail(request.email()).orElseThrow(() -> new BadRequestException("User not found"));
         String token = UUID.randomUUID().toString();
         user.setPasswordResetToken(token);
         user.setPasswordResetExpiry(OffsetDateTime.now().plus(15, ChronoUnit.MINUTES));
@@ -90,9 +91,9 @@ public class AuthService {
     @Transactional
     public void confirmPasswordReset(PasswordResetConfirmRequest request) {
         UserAccount user = userRepository.findByPasswordResetToken(request.token())
-                .orElseThrow(() -> new IllegalArgumentException("Invalid token"));
+                .orElseThrow(() -> new BadRequestException("Invalid token"));
         if (user.getPasswordResetExpiry() == null || user.getPasswordResetExpiry().isBefore(OffsetDateTime.now())) {
-            throw new IllegalArgumentException("Token expired");
+            throw new BadRequestException("Token expired");
         }
         user.setPasswordHash(passwordEncoder.encode(request.newPassword()));
         user.setPasswordResetToken(null);
@@ -0,0 +1,76 @@
+package com.lifedata.dashboard.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Unsynchronized character buffer over a Reader for the import parsers. They scan runs of characters in the buffer
+ * and copy them in one append, instead of paying for a synchronized {@code Reader.read()} per character.
+ */
+final class CharScanner {
+
+    private final Reader reader;
+    final char[] buffer;
+    int pos;
+    int limit;
+
+    CharScanner(Reader reader, int bufferChars) {
+        this.reader = reader;
+        this.buffer = new char[bufferChars];
+    }
+
+    /**
+     * Makes sure at least one character is buffered at {@code pos}, returning false at the end of input.
+     */
+    boolean fill() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * The next character without consuming it, or -1 at the end of input.
+     */
+    int peek() throws IOException {
+        return fill() ? buffer[pos] : -1;
+    }
+
+    /**
+     * Reads one line into {@code line}, returning it, or null at the end of input. Lines end at LF or CRLF; one
+     * longer than {@code maxChars} throws IllegalArgumentException.
+     */
+    StringBuilder readLine(StringBuilder line, int maxChars) throws IOException {
+        line.setLength(0);
+        boolean read = false;
+        while (fill()) {
+            read = true;
+            int end = pos;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            if (line.length() + end - pos > maxChars) {
+                throw new IllegalArgumentException("Line is longer than " + maxChars + " characters");
+            }
+            line.append(buffer, pos, end - pos);
+            if (end < limit) {
+                pos = end + 1;
+                break;
+            }
+            pos = end;
+        }
+        if (!read) {
+            return null;
+        }
+        if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line;
+    }
+}
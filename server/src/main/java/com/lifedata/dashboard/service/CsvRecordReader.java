@@ -0,0 +1,104 @@
+package com.lifedata.dashboard.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: comma separated, CRLF or LF line ends, double-quoted fields that may
+ * contain delimiters and line breaks, quotes escaped by doubling. Memory is bounded by the longest record, which
+ * is capped; a longer one throws IllegalArgumentException, as does a quote left open at the end of input. Runs of
+ * plain characters are copied out of the scanner's buffer in one go.
+ */
+final class CsvRecordReader {
+
+    private final CharScanner input;
+    private final int maxRecordChars;
+    private final StringBuilder field = new StringBuilder();
+    private boolean eof;
+
+    CsvRecordReader(CharScanner input, int maxRecordChars) {
+        this.input = input;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * The next record's fields, or null at the end of input. A blank line comes back as a single empty field.
+     */
+    List<String> next() throws IOException {
+        if (eof) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        int chars = 0;
+        while (true) {
+            if (!input.fill()) {
+                eof = true;
+                if (quoted) {
+                    throw new IllegalArgumentException("Quoted field is not closed before the end of input");
+                }
+                if (chars == 0) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            char[] buffer = input.buffer;
+            int start = input.pos;
+            int end = start;
+            if (quoted) {
+                while (end < input.limit && buffer[end] != '"') {
+                    end++;
+                }
+            } else {
+                while (end < input.limit && !special(buffer[end])) {
+                    end++;
+                }
+            }
+            // The run plus the character that ended it, if any
+            chars += end - start + (end < input.limit ? 1 : 0);
+            if (chars > maxRecordChars) {
+                throw new IllegalArgumentException("Record is longer than " + maxRecordChars + " characters");
+            }
+            field.append(buffer, start, end - start);
+            input.pos = end;
+            if (end == input.limit) {
+                continue;
+            }
+            char c = buffer[input.pos++];
+            if (quoted) {
+                if (input.peek() == '"') {
+                    input.pos++;
+                    field.append('"');
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> quoted = true;
+                case ',' -> {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                }
+                case '\r' -> {
+                    if (input.peek() == '\n') {
+                        input.pos++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                default -> {
+                    fields.add(field.toString());
+                    return fields;
+                }
+            }
+        }
+    }
+
+    private static boolean special(char c) {
+        return c == '"' || c == ',' || c == '\r' || c == '\n';
+    }
+}
@@ -1,5 +1,7 @@
 package com.lifedata.dashboard.service;
 
+import java.security.Principal;
+
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -17,10 +19,31 @@ public class CurrentUserService {
     }
 
     public UserAccount currentUser() {
+        return userRepository.findByEmail(currentEmail()).orElseThrow();
+    }
+
+    /**
+     * The account behind an authenticated STOMP session, whose principal is named by email.
+     */
+    public UserAccount userFor(Principal principal) {
+        if (principal == null || principal.getName() == null) {
+            throw new IllegalStateException("Unauthenticated");
+        }
+        return userRepository.findByEmail(principal.getName()).orElseThrow();
+    }
+
+    /**
+     * The account a STOMP session was opened for, by the id kept with the session; fails once it was deleted.
+     */
+    public UserAccount userById(Long id) {
+        return userRepository.findById(id).orElseThrow(() -> new IllegalStateException("Unauthenticated"));
+    }
+
+    public String currentEmail() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || authentication.getName() == null) {
             throw new IllegalStateException("Unauthenticated");
         }
-        return userRepository.findByEmail(authentication.getName()).orElseThrow();
+        return authentication.getName();
     }
 }
@@ -0,0 +1,157 @@
+package com.lifedata.dashboard.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs the independent sections of a dashboard summary. When parallel mode is off every section runs inline on
+ * the request thread; otherwise sections go to a small bounded pool and are joined against a per-request deadline.
+ * A saturated pool runs the section on the caller, so overload degrades to the sequential path instead of failing.
+ * Each section is timed either way so the slowest one shows up in the metrics.
+ */
+@Component
+public class DashboardSectionExecutor implements DisposableBean {
+
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final long deadlineNanos;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Counter timeouts;
+
+    public DashboardSectionExecutor(MeterRegistry meterRegistry,
+            @Value("${app.dashboard.parallel.enabled:false}") boolean parallel,
+            @Value("${app.dashboard.parallel.threads:8}") int threads,
+            @Value("${app.dashboard.parallel.queue-capacity:256}") int queueCapacity,
+            @Value("${app.dashboard.parallel.deadline-ms:2000}") long deadlineMillis) {
+        this.meterRegistry = meterRegistry;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, deadlineMillis));
+        this.timeouts = Counter.builder("dashboard.summary.timeouts").register(meterRegistry);
+        if (parallel) {
+            int size = Math.max(1, threads);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemonThreads(), new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "dashboardSections");
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Starts a batch of sections for one summary; the deadline counts from this call.
+     */
+    public Batch start() {
+        return new Batch(System.nanoTime() + deadlineNanos);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> T timed(String section, Supplier<T> work) {
+        Timer timer = timers.computeIfAbsent(section, name -> Timer.builder("dashboard.section.duration")
+                .tag("section", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        return timer.record(work);
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-section-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public final class Batch {
+
+        private final long deadline;
+        private final List<Future<?>> pending = new ArrayList<>();
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public <T> Section<T> fork(String name, Supplier<T> work) {
+            if (executor == null) {
+                return new Section<>(this, null, timed(name, work));
+            }
+            Future<T> future = executor.submit(() -> timed(name, work));
+            pending.add(future);
+            return new Section<>(this, future, null);
+        }
+
+        private <T> T await(Future<T> future) {
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | CancellationException ex) {
+                cancelAll();
+                timeouts.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Dashboard summary timed out");
+            } catch (InterruptedException ex) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Dashboard summary interrupted");
+            } catch (ExecutionException ex) {
+                cancelAll();
+                if (ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+
+        private void cancelAll() {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    public static final class Section<T> {
+
+        private final Batch batch;
+        private final Future<T> future;
+        private final T value;
+
+        private Section(Batch batch, Future<T> future, T value) {
+            this.batch = batch;
+            this.future = future;
+            this.value = value;
+        }
+
+        /**
+         * Waits for the section within what is left of the batch deadline; a miss cancels the whole batch.
+         */
+        public T join() {
+            return future == null ? value : batch.await(future);
+        }
+    }
+}
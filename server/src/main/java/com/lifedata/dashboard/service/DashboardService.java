@@ -2,10 +2,10 @@ package com.lifedata.dashboard.service;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.EnumMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,88 +13,220 @@ import java.util.Set;
 
 import org.springframework.stereotype.Service;
 
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.dto.DashboardDelta;
+import com.lifedata.dashboard.dto.DashboardQuery;
 import com.lifedata.dashboard.dto.DashboardSummary;
-import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityStreak;
 import com.lifedata.dashboard.model.ActivityType;
 import com.lifedata.dashboard.model.Goal;
 import com.lifedata.dashboard.model.RpgStat;
+import com.lifedata.dashboard.model.TrendGranularity;
 import com.lifedata.dashboard.model.UserAccount;
-import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.ActivityDailyRollupRepository;
+import com.lifedata.dashboard.repository.ActivityTypeTotal;
+import com.lifedata.dashboard.repository.DailyTypeTotal;
 import com.lifedata.dashboard.repository.GoalRepository;
+import com.lifedata.dashboard.repository.RollupDayRange;
+import com.lifedata.dashboard.repository.RpgStatTotal;
+import com.lifedata.dashboard.service.DashboardSectionExecutor.Section;
 
 @Service
 public class DashboardService {
 
-    private final ActivityRepository activityRepository;
+    private final ActivityDailyRollupRepository rollupRepository;
     private final GoalRepository goalRepository;
+    private final StreakService streakService;
+    private final DashboardSummaryCache summaryCache;
+    private final DashboardSectionExecutor sectionExecutor;
+    private final ActivityHotTier hotTier;
 
-    public DashboardService(ActivityRepository activityRepository, GoalRepository goalRepository) {
-        this.activityRepository = activityRepository;
+    public DashboardService(ActivityDailyRollupRepository rollupRepository, GoalRepository goalRepository,
+            StreakService streakService, DashboardSummaryCache summaryCache, DashboardSectionExecutor sectionExecutor,
+            ActivityHotTier hotTier) {
+        this.rollupRepository = rollupRepository;
         this.goalRepository = goalRepository;
+        this.streakService = streakService;
+        this.summaryCache = summaryCache;
+        this.sectionExecutor = sectionExecutor;
+        this.hotTier = hotTier;
     }
 
     public DashboardSummary summary(UserAccount user) {
-        List<Activity> activities = activityRepository.findByUser(user);
-        List<Goal> goals = goalRepository.findByUser(user);
+        return summary(user, DashboardQuery.ALL_TIME).summary();
+    }
+
+    /**
+     * The summary at the {@code data_version} the user entity was read with, or newer.
+     */
+    public DashboardSummaryCache.VersionedSummary summary(UserAccount user, DashboardQuery query) {
+        return summaryCache.get(user.getId(), DataVersionService.versionOf(user), query, () -> compute(user, query));
+    }
 
+    /**
+     * The parts of the all-time summary that writes of the given types can change: their breakdown totals, streaks
+     * and goals, plus the productivity score and RPG stats, which add up across types. Skips the trends and the
+     * other types' streaks and goals, so it costs a fraction of {@link #summary}.
+     */
+    public DashboardDelta delta(UserAccount user, Set<ActivityType> types, int writes, List<ActivityResponse> activities) {
+        LocalDate[] window = window(user, DashboardQuery.ALL_TIME);
+        Map<ActivityType, Double> totals = typeTotals(user, window[0], window[1]);
         Map<String, Double> breakdown = new java.util.HashMap<>();
-        Map<ActivityType, Double> totals = new EnumMap<>(ActivityType.class);
-        for (Activity activity : activities) {
-            totals.merge(activity.getType(), activity.getValue() != null ? activity.getValue() : 1.0, Double::sum);
+        for (ActivityType type : types) {
+            breakdown.put(type.name(), totals.getOrDefault(type, 0.0));
         }
-        totals.forEach((type, value) -> breakdown.put(type.name(), value));
-
         double productivityScore = totals.values().stream().mapToDouble(Double::doubleValue).sum();
+        List<DashboardSummary.Streak> streaks = buildStreaks(user).stream()
+                .filter(streak -> types.contains(ActivityType.valueOf(streak.activityType())))
+                .toList();
+        List<DashboardSummary.GoalProgress> goals = buildGoalProgress(goalRepository.findByUser(user).stream()
+                .filter(goal -> types.contains(goal.getActivityType()))
+                .toList());
+        return new DashboardDelta(writes, productivityScore, breakdown,
+                buildRpgStats(statTotals(user, window[0], window[1])), streaks, goals, activities);
+    }
 
-        List<DashboardSummary.ActivityTrend> trends = buildTrends(activities);
-        List<DashboardSummary.Streak> streaks = buildStreaks(activities, user);
+    private DashboardSummary compute(UserAccount user, DashboardQuery query) {
+        LocalDate[] window = window(user, query);
+        LocalDate windowFrom = window[0];
+        LocalDate windowTo = window[1];
+        TrendGranularity granularity = query.granularity() != null
+                ? query.granularity()
+                : TrendGranularity.forSpan(windowFrom, windowTo);
+
+        // Sections only share the resolved window, so each one issues its own query; milestones and the
+        // productivity score are derived from the breakdown totals and need no query of their own.
+        DashboardSectionExecutor.Batch batch = sectionExecutor.start();
+        Section<Map<ActivityType, Double>> totalsSection = batch.fork("breakdown", () -> typeTotals(user, windowFrom, windowTo));
+        Section<List<DashboardSummary.ActivityTrend>> trendsSection = batch.fork("trends",
+                () -> buildTrends(dailyTotals(user, windowFrom, windowTo), granularity));
+        Section<List<DashboardSummary.Streak>> streaksSection = batch.fork("streaks", () -> buildStreaks(user));
+        Section<List<DashboardSummary.GoalProgress>> goalsSection = batch.fork("goals",
+                () -> buildGoalProgress(goalRepository.findByUser(user)));
+        Section<Map<String, Double>> rpgStatsSection = batch.fork("rpgStats",
+                () -> buildRpgStats(statTotals(user, windowFrom, windowTo)));
+
+        Map<ActivityType, Double> totals = totalsSection.join();
+        Map<String, Double> breakdown = new java.util.HashMap<>();
+        totals.forEach((type, value) -> breakdown.put(type.name(), value));
+        double productivityScore = totals.values().stream().mapToDouble(Double::doubleValue).sum();
         List<DashboardSummary.Milestone> milestones = buildMilestones(totals);
-        List<DashboardSummary.GoalProgress> goalProgress = buildGoalProgress(goals);
-        Map<String, Double> rpgStats = buildRpgStats(activities);
 
-        return new DashboardSummary(productivityScore, breakdown, rpgStats, trends, streaks, milestones, goalProgress);
+        return new DashboardSummary(productivityScore, breakdown, rpgStatsSection.join(), trendsSection.join(),
+                streaksSection.join(), milestones, goalsSection.join());
+    }
+
+    // Open ends of the query default to the user's first and last day with activity (or today)
+    private LocalDate[] window(UserAccount user, DashboardQuery query) {
+        LocalDate from = query.from();
+        LocalDate to = query.to();
+        // A miss here also starts loading the user into the hot tier; until it lands the rollups answer
+        LocalDate[] days = hotTier.dayRange(user);
+        if (from == null || to == null) {
+            if (days == null) {
+                RollupDayRange range = rollupRepository.findDayRange(user);
+                days = new LocalDate[] {range.getFirstDay(), range.getLastDay()};
+            }
+            LocalDate today = LocalDate.now(RollupService.zoneFor(user));
+            if (from == null) from = days[0] != null ? days[0] : today;
+            if (to == null) to = days[1] != null && days[1].isAfter(from) ? days[1] : from;
+        }
+        return new LocalDate[] {from, to};
+    }
+
+    // The three lookups below read the hot tier when the user is resident and the daily rollups otherwise
+
+    private Map<ActivityType, Double> typeTotals(UserAccount user, LocalDate from, LocalDate to) {
+        Map<ActivityType, Double> totals = new EnumMap<>(ActivityType.class);
+        double[] resident = hotTier.sumByType(user, from, to);
+        if (resident != null) {
+            for (ActivityType type : ActivityType.values()) {
+                if (!Double.isNaN(resident[type.ordinal()])) {
+                    totals.put(type, resident[type.ordinal()]);
+                }
+            }
+            return totals;
+        }
+        for (ActivityTypeTotal total : rollupRepository.sumByType(user, from, to)) {
+            totals.put(total.getType(), total.getTotal());
+        }
+        return totals;
     }
 
-    private List<DashboardSummary.ActivityTrend> buildTrends(List<Activity> activities) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd")
-                .withZone(ZoneId.systemDefault());
-        Map<ActivityType, Map<String, Double>> grouped = new EnumMap<>(ActivityType.class);
-        for (Activity activity : activities) {
-            String day = formatter.format(activity.getOccurredAt());
-            grouped.computeIfAbsent(activity.getType(), t -> new java.util.HashMap<>())
-                    .merge(day, activity.getValue() != null ? activity.getValue() : 1.0, Double::sum);
+    private Map<RpgStat, Double> statTotals(UserAccount user, LocalDate from, LocalDate to) {
+        Map<RpgStat, Double> totals = new EnumMap<>(RpgStat.class);
+        double[] resident = hotTier.sumByStat(user, from, to);
+        if (resident != null) {
+            for (RpgStat stat : RpgStat.values()) {
+                if (!Double.isNaN(resident[stat.ordinal()])) {
+                    totals.put(stat, resident[stat.ordinal()]);
+                }
+            }
+            return totals;
         }
+        for (RpgStatTotal total : rollupRepository.sumByStat(user, from, to)) {
+            totals.merge(total.getRpgStat(), total.getTotal(), Double::sum);
+        }
+        return totals;
+    }
+
+    private ActivityHotTier.DailyGrid dailyTotals(UserAccount user, LocalDate from, LocalDate to) {
+        ActivityHotTier.DailyGrid resident = hotTier.sumByTypeAndDay(user, from, to);
+        if (resident != null) {
+            return resident;
+        }
+        List<DailyTypeTotal> rows = rollupRepository.sumByDayAndType(user, from, to);
+        if (rows.isEmpty()) {
+            return ActivityHotTier.DailyGrid.EMPTY;
+        }
+        LocalDate first = rows.stream().map(DailyTypeTotal::getDay).min(LocalDate::compareTo).orElseThrow();
+        LocalDate last = rows.stream().map(DailyTypeTotal::getDay).max(LocalDate::compareTo).orElseThrow();
+        double[][] grid = new double[ActivityType.values().length][(int) (last.toEpochDay() - first.toEpochDay()) + 1];
+        for (double[] row : grid) {
+            Arrays.fill(row, Double.NaN);
+        }
+        for (DailyTypeTotal row : rows) {
+            grid[row.getType().ordinal()][(int) (row.getDay().toEpochDay() - first.toEpochDay())] = row.getTotal();
+        }
+        return new ActivityHotTier.DailyGrid(first, grid);
+    }
+
+    private List<DashboardSummary.ActivityTrend> buildTrends(ActivityHotTier.DailyGrid daily, TrendGranularity granularity) {
         List<DashboardSummary.ActivityTrend> trends = new ArrayList<>();
-        grouped.forEach((type, dayMap) -> {
-            List<DashboardSummary.TrendPoint> points = dayMap.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(e -> new DashboardSummary.TrendPoint(e.getKey(), e.getValue()))
+        if (daily.totals().length == 0) {
+            return trends;
+        }
+        for (ActivityType type : ActivityType.values()) {
+            double[] days = daily.totals()[type.ordinal()];
+            // Days are walked in order, so buckets fill in order
+            Map<LocalDate, Double> buckets = new LinkedHashMap<>();
+            for (int offset = 0; offset < days.length; offset++) {
+                if (!Double.isNaN(days[offset])) {
+                    buckets.merge(granularity.bucketStart(daily.firstDay().plusDays(offset)), days[offset], Double::sum);
+                }
+            }
+            if (buckets.isEmpty()) {
+                continue;
+            }
+            List<DashboardSummary.TrendPoint> points = buckets.entrySet().stream()
+                    .map(e -> new DashboardSummary.TrendPoint(granularity.label(e.getKey()), e.getValue()))
                     .toList();
             trends.add(new DashboardSummary.ActivityTrend(type.name(), points));
-        });
+        }
         return trends;
     }
 
-    private List<DashboardSummary.Streak> buildStreaks(List<Activity> activities, UserAccount user) {
+    private List<DashboardSummary.Streak> buildStreaks(UserAccount user) {
         ZoneId zone = ZoneId.of(user.getTimezone() != null ? user.getTimezone() : ZoneId.systemDefault().getId());
-        Map<ActivityType, Set<LocalDate>> datesByType = new EnumMap<>(ActivityType.class);
-        for (Activity activity : activities) {
-            LocalDate day = LocalDate.ofInstant(activity.getOccurredAt(), zone);
-            datesByType.computeIfAbsent(activity.getType(), t -> new HashSet<>()).add(day);
-        }
-        List<DashboardSummary.Streak> streaks = new ArrayList<>();
         LocalDate today = LocalDate.now(zone);
-        datesByType.forEach((type, dates) -> {
-            int length = 0;
-            LocalDate cursor = today;
-            while (dates.contains(cursor)) {
-                length++;
-                cursor = cursor.minusDays(1);
-            }
+        List<DashboardSummary.Streak> streaks = new ArrayList<>();
+        for (ActivityStreak streak : streakService.streaks(user)) {
+            int length = StreakService.currentLength(streak, today);
             if (length > 0) {
-                streaks.add(new DashboardSummary.Streak(type.name(), length));
+                streaks.add(new DashboardSummary.Streak(streak.getType().name(), length, streak.getLongestLength()));
             }
-        });
+        }
+        streaks.sort(Comparator.comparing(DashboardSummary.Streak::activityType));
         return streaks;
     }
 
@@ -110,20 +242,7 @@ public class DashboardService {
         return milestones;
     }
 
-    private Map<String, Double> buildRpgStats(List<Activity> activities) {
-        Map<RpgStat, Double> totals = new EnumMap<>(RpgStat.class);
-        for (RpgStat stat : RpgStat.values()) {
-            totals.put(stat, 0.0);
-        }
-        for (Activity activity : activities) {
-            RpgStat stat = activity.getRpgStat() != null ? activity.getRpgStat() : defaultStatForType(activity.getType());
-            if (stat == null) {
-                continue;
-            }
-            double value = activity.getValue() != null ? activity.getValue() : 1.0;
-            totals.merge(stat, value, Double::sum);
-        }
-
+    private Map<String, Double> buildRpgStats(Map<RpgStat, Double> totals) {
         Map<String, Double> shaped = new LinkedHashMap<>();
         for (RpgStat stat : RpgStat.values()) {
             shaped.put(stat.name(), totals.getOrDefault(stat, 0.0));
@@ -131,18 +250,6 @@ public class DashboardService {
         return shaped;
     }
 
-    private RpgStat defaultStatForType(ActivityType type) {
-        if (type == null) return null;
-        return switch (type) {
-            case GITHUB_COMMITS -> RpgStat.DEX;
-            case STUDY -> RpgStat.INT;
-            case GYM -> RpgStat.STR;
-            case LINKEDIN_POST -> RpgStat.CHA;
-            case DSA -> RpgStat.WIS;
-            case CUSTOM -> RpgStat.VIT;
-        };
-    }
-
     private List<DashboardSummary.GoalProgress> buildGoalProgress(List<Goal> goals) {
         List<DashboardSummary.GoalProgress> progress = new ArrayList<>();
         for (Goal goal : goals) {
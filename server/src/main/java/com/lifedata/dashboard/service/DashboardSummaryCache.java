@@ -0,0 +1,196 @@
+package com.lifedata.dashboard.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.lifedata.dashboard.dto.DashboardQuery;
+import com.lifedata.dashboard.dto.DashboardSummary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded LRU of computed dashboard summaries keyed by user id, with a TTL so day rollover is picked up.
+ * Each user keeps a few recently requested windows; the size bound counts summaries across all users and evicts
+ * the least recently used user first. Writers evict explicitly; a summary computed while the same user's entry was
+ * evicted is never stored.
+ * <p>
+ * Eviction only reaches this node, and only once the write commits, so every entry also carries the user's
+ * {@code data_version} it was built at. A reader passes the version it just read; an older entry is rebuilt, which
+ * keeps a summary from outliving a write made on another replica.
+ */
+@Component
+public class DashboardSummaryCache {
+
+    private static final String CACHE_NAME = "dashboardSummary";
+    private static final int WINDOWS_PER_USER = 8;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<Long, UserEntries> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int size;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expirations;
+    private final Counter staleEntries;
+    private final Counter explicitEvictions;
+
+    public DashboardSummaryCache(MeterRegistry meterRegistry,
+            @Value("${app.dashboard.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.dashboard.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "size").register(meterRegistry);
+        this.expirations = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "expired").register(meterRegistry);
+        this.staleEntries = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "stale").register(meterRegistry);
+        this.explicitEvictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "explicit").register(meterRegistry);
+        Gauge.builder("cache.size", this, DashboardSummaryCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * The cached summary when it was built at {@code dataVersion} or later, otherwise the loader's, stored under
+     * {@code dataVersion}. The loader must read nothing older than that version.
+     */
+    public VersionedSummary get(Long userId, long dataVersion, DashboardQuery query, Supplier<DashboardSummary> loader) {
+        long now = System.nanoTime();
+        UserEntries user;
+        long version;
+        synchronized (entries) {
+            user = entries.computeIfAbsent(userId, id -> new UserEntries());
+            Entry entry = user.windows.get(query);
+            if (entry != null) {
+                if (now - entry.createdAt() < ttlNanos && entry.summary().dataVersion() >= dataVersion) {
+                    hits.increment();
+                    return entry.summary();
+                }
+                user.windows.remove(query);
+                size--;
+                (entry.summary().dataVersion() < dataVersion ? staleEntries : expirations).increment();
+            }
+            version = user.version;
+            user.loading++;
+        }
+        misses.increment();
+        VersionedSummary summary;
+        try {
+            summary = new VersionedSummary(loader.get(), dataVersion);
+        } catch (RuntimeException | Error ex) {
+            synchronized (entries) {
+                user.loading--;
+                dropIfUnused(userId, user);
+            }
+            throw ex;
+        }
+        synchronized (entries) {
+            user.loading--;
+            // A user trimmed away meanwhile may have been evicted without a version bump, so only store into the
+            // entry the load started from
+            if (user.version == version && entries.get(userId) == user) {
+                if (user.windows.put(query, new Entry(summary, now)) == null) {
+                    size++;
+                }
+                Iterator<DashboardQuery> eldest = user.windows.keySet().iterator();
+                while (user.windows.size() > WINDOWS_PER_USER) {
+                    eldest.next();
+                    eldest.remove();
+                    size--;
+                }
+                trim();
+            } else {
+                dropIfUnused(userId, user);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Drops the user's summary now and, when called inside a transaction, again once it commits,
+     * so a read racing the write cannot re-populate the cache with pre-commit data.
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evictNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Number of cached summaries across all users.
+     */
+    public int size() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    private void evictNow(Long userId) {
+        synchronized (entries) {
+            UserEntries user = entries.get(userId);
+            if (user == null) {
+                return;
+            }
+            user.version++;
+            if (!user.windows.isEmpty()) {
+                size -= user.windows.size();
+                user.windows.clear();
+                explicitEvictions.increment();
+            }
+            dropIfUnused(userId, user);
+        }
+    }
+
+    /**
+     * Removes a user without summaries once no load is in flight; while one is, the entry carries the version
+     * that load is checked against.
+     */
+    private void dropIfUnused(Long userId, UserEntries user) {
+        if (user.loading == 0 && user.windows.isEmpty() && entries.get(userId) == user) {
+            entries.remove(userId);
+        }
+    }
+
+    private void trim() {
+        Iterator<UserEntries> eldest = entries.values().iterator();
+        while (size > maxEntries && eldest.hasNext()) {
+            UserEntries user = eldest.next();
+            if (user.windows.isEmpty()) {
+                continue;
+            }
+            size -= user.windows.size();
+            eldest.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    private static final class UserEntries {
+        private final LinkedHashMap<DashboardQuery, Entry> windows = new LinkedHashMap<>(4, 0.75f, true);
+        private long version;
+        private int loading;
+    }
+
+    private record Entry(VersionedSummary summary, long createdAt) {}
+
+    /**
+     * A summary and the user's {@code data_version} it reflects at least; the version is what its ETag names.
+     */
+    public record VersionedSummary(DashboardSummary summary, long dataVersion) {}
+}
@@ -0,0 +1,73 @@
+package com.lifedata.dashboard.service;
+
+import java.time.LocalDate;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+/**
+ * Monotonic per-user version of everything the dashboard, goal list and feed are built from.
+ * Writers bump it after their changes; readers turn it into a strong ETag without touching the data itself.
+ * <p>
+ * A reader takes the version from the user entity it loaded before reading anything else, so the body it then
+ * builds is at least that new and never goes out under a tag it does not match.
+ */
+@Service
+public class DataVersionService {
+
+    private final UserAccountRepository userRepository;
+    private final ActivityHotTier hotTier;
+
+    public DataVersionService(UserAccountRepository userRepository, ActivityHotTier hotTier) {
+        this.userRepository = userRepository;
+        this.hotTier = hotTier;
+    }
+
+    /**
+     * For writes that change no activities. Joins the caller's transaction when there is one, so the new version
+     * commits together with the write; the user's hot-tier series moves along once it does.
+     */
+    @Transactional
+    public void bump(Long userId) {
+        if (userId != null) {
+            hotTier.advance(userId, bumpForActivities(userId));
+        }
+    }
+
+    /**
+     * For activity writes, which hand the returned version to the hot tier together with their rows. The
+     * increment holds the row lock, so no other write can have moved the version before it is read back.
+     */
+    @Transactional
+    public long bumpForActivities(Long userId) {
+        if (userId == null) {
+            return 0L;
+        }
+        userRepository.incrementDataVersion(userId);
+        return userRepository.findDataVersion(userId);
+    }
+
+    /**
+     * ETag for the user's data at the given version, e.g. {@code "7-42"}.
+     */
+    public String etag(UserAccount user, long dataVersion) {
+        return "\"" + user.getId() + "-" + dataVersion + "\"";
+    }
+
+    /**
+     * ETag that also changes at the user's local midnight, for views such as streaks that depend on "today".
+     */
+    public String dailyEtag(UserAccount user, long dataVersion) {
+        return "\"" + user.getId() + "-" + dataVersion + "-" + LocalDate.now(RollupService.zoneFor(user)) + "\"";
+    }
+
+    /**
+     * The version the entity was loaded at; entities built in memory count as version 0.
+     */
+    public static long versionOf(UserAccount user) {
+        return user.getDataVersion() != null ? user.getDataVersion() : 0L;
+    }
+}
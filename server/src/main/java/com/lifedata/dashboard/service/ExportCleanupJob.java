@@ -0,0 +1,39 @@
+package com.lifedata.dashboard.service;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ExportCleanupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportCleanupJob.class);
+
+    private final ExportJobService exportJobService;
+
+    public ExportCleanupJob(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    // Finished and failed exports are kept for app.export.ttl-hours; this removes their rows and files afterwards
+    @Scheduled(cron = "${app.export.cleanup.cron:0 15 * * * *}")
+    public void purge() {
+        int purged = exportJobService.purgeExpired(Instant.now());
+        if (purged > 0) {
+            log.info("Deleted {} expired exports", purged);
+        }
+    }
+
+    // Keeps this node's claims alive and takes over jobs whose node stopped renewing its lease
+    @Scheduled(fixedDelayString = "${app.export.heartbeat-ms:20000}", initialDelayString = "${app.export.heartbeat-ms:20000}")
+    public void heartbeat() {
+        exportJobService.renewLeases();
+        int recovered = exportJobService.recover();
+        if (recovered > 0) {
+            log.info("Took over {} exports without a live claim", recovered);
+        }
+    }
+}
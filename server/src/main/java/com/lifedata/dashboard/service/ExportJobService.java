@@ -0,0 +1,595 @@
+package com.lifedata.dashboard.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.dto.ExportJobResponse;
+import com.lifedata.dashboard.model.ExportChunk;
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.ExportJob;
+import com.lifedata.dashboard.model.ExportStatus;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.ExportChunkRepository;
+import com.lifedata.dashboard.repository.ExportJobRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs exports in the background on a small bounded pool. A job writes part files under its own directory, one
+ * per archived month and one per {@code chunk-rows} stored activities, each fsynced and recorded with its SHA-256
+ * and the position reached before the next one starts. Finished parts are joined into one file that stays
+ * downloadable until the job expires.
+ * <p>
+ * A job is worked on by the node that claimed it, with a conditional update that records the node and a lease.
+ * The node renews the lease while the job runs, and every write to the job first checks that the claim still
+ * holds. When the job is interrupted, by shutdown or a crash, the same node picks it up on its next start, or any
+ * node once the lease has lapsed, and it continues after its last intact part.
+ * <p>
+ * A job is not a snapshot: activities written or archived while it runs may be left out or appear twice.
+ * Files live on local disk, so with several nodes the export directory has to be shared.
+ */
+@Service
+public class ExportJobService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportJobService.class);
+    private static final List<ExportStatus> ACTIVE = List.of(ExportStatus.QUEUED, ExportStatus.RUNNING);
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final ExportService exportService;
+    private final ActivityArchive archive;
+    private final ActivityRepository activityRepository;
+    private final ExportJobRepository jobRepository;
+    private final ExportChunkRepository chunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final int workers;
+    private final int queueCapacity;
+    private final int chunkRows;
+    private final Duration ttl;
+    private final String nodeId;
+    private final Duration lease;
+    // Jobs queued or running on this node, so a recovery pass does not queue them twice
+    private final Set<String> local = ConcurrentHashMap.newKeySet();
+    private final Timer duration;
+    private final Counter completed;
+    private final Counter failed;
+    private volatile ExecutorService executor;
+    private volatile boolean running;
+
+    public ExportJobService(ExportService exportService, ActivityArchive archive, ActivityRepository activityRepository,
+            ExportJobRepository jobRepository, ExportChunkRepository chunkRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.export.dir:data/exports}") String directory,
+            @Value("${app.export.workers:1}") int workers,
+            @Value("${app.export.queue-capacity:100}") int queueCapacity,
+            @Value("${app.export.chunk-rows:50000}") int chunkRows,
+            @Value("${app.export.ttl-hours:24}") long ttlHours,
+            @Value("${app.export.node-id:}") String nodeId,
+            @Value("${app.export.lease-seconds:60}") long leaseSeconds) {
+        this.exportService = exportService;
+        this.archive = archive;
+        this.activityRepository = activityRepository;
+        this.jobRepository = jobRepository;
+        this.chunkRepository = chunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Chunk manifests commit on their own while the read-only cursor transaction is still open
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.directory = Paths.get(directory);
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.chunkRows = Math.max(1, chunkRows);
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.lease = Duration.ofSeconds(Math.max(5, leaseSeconds));
+        this.duration = Timer.builder("export.job.duration").register(meterRegistry);
+        this.completed = Counter.builder("export.jobs").tag("result", "completed").register(meterRegistry);
+        this.failed = Counter.builder("export.jobs").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Queues an export of the user's activities, or returns the one already queued or running for that format.
+     * Throws 429 when the queue is full and 503 while shutting down.
+     */
+    public ExportJobResponse submit(UserAccount user, ExportFormat format) {
+        ExportJob active = jobRepository.findFirstByUserAndFormatAndStatusIn(user, format, ACTIVE).orElse(null);
+        if (active != null) {
+            return toResponse(active);
+        }
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Exports are not accepting jobs");
+        }
+        Instant now = Instant.now();
+        ExportJob job = jobRepository.save(ExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .user(user)
+                .format(format)
+                .status(ExportStatus.QUEUED)
+                .rowCount(0L)
+                .bytes(0L)
+                .owner(nodeId)
+                .leaseUntil(now.plus(lease))
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        if (!enqueue(job.getId())) {
+            jobRepository.delete(job);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Export queue is full");
+        }
+        return toResponse(job);
+    }
+
+    public ExportJobResponse get(UserAccount user, String id) {
+        return toResponse(find(user, id));
+    }
+
+    /**
+     * The joined file of a completed job; 409 while the job is still queued or running, or when it failed.
+     */
+    public Download download(UserAccount user, String id) {
+        ExportJob job = find(user, id);
+        if (job.getStatus() != ExportStatus.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Export is " + job.getStatus().name().toLowerCase());
+        }
+        return new Download(result(job), job.getBytes(), job.getSha256(), job.getFormat());
+    }
+
+    /**
+     * Deletes jobs past their expiry together with their files. Returns the number of jobs removed.
+     */
+    public int purgeExpired(Instant now) {
+        int purged = 0;
+        for (ExportJob job : jobRepository.findByExpiresAtBefore(now)) {
+            try {
+                FileSystemUtils.deleteRecursively(directory.resolve(job.getId()));
+                transactionTemplate.executeWithoutResult(status -> {
+                    chunkRepository.deleteFrom(job, 0);
+                    jobRepository.deleteById(job.getId());
+                });
+                purged++;
+            } catch (Exception ex) {
+                log.warn("Could not delete expired export {}: {}", job.getId(), ex.getMessage());
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Extends the lease on every active job this node holds. Called well within the lease period.
+     */
+    public int renewLeases() {
+        Instant until = Instant.now().plus(lease);
+        Integer renewed = transactionTemplate.execute(status -> jobRepository.renewLeases(ACTIVE, nodeId, until));
+        return renewed != null ? renewed : 0;
+    }
+
+    /**
+     * Queues the active jobs that nobody holds a live lease on: this node's own from before a restart, and those of
+     * nodes that stopped renewing. Each is claimed again before it runs, so two nodes recovering the same job at
+     * once run it only once. Returns the number of jobs queued.
+     */
+    public int recover() {
+        if (!running) {
+            return 0;
+        }
+        int queued = 0;
+        for (String id : jobRepository.findClaimableIds(ACTIVE, nodeId, Instant.now())) {
+            if (local.contains(id)) {
+                continue;
+            }
+            if (!enqueue(id)) {
+                log.warn("Export queue full; job {} waits for the next recovery pass", id);
+                break;
+            }
+            queued++;
+        }
+        return queued;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Starts the workers and queues the jobs left without a live claim, including those this node was running
+     * when it stopped.
+     */
+    @Override
+    public void start() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreads());
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "exportJobs");
+        running = true;
+        recover();
+    }
+
+    /**
+     * Interrupts running jobs; they stay marked as running and resume after their last intact part when this node
+     * starts again or another node takes them over.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        ExecutorService pool = executor;
+        if (pool == null) {
+            return;
+        }
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private boolean enqueue(String id) {
+        if (!local.add(id)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    local.remove(id);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            local.remove(id);
+            return false;
+        }
+    }
+
+    private void run(String id) {
+        Instant claimedAt = Instant.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                jobRepository.claim(id, ACTIVE, nodeId, claimedAt, claimedAt.plus(lease)));
+        if (claimed == null || claimed == 0) {
+            log.debug("Export {} is held by another node or no longer active", id);
+            return;
+        }
+        ExportJob job = jobRepository.findById(id).orElse(null);
+        if (job == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            save(job, () -> job.setStatus(ExportStatus.RUNNING));
+            if (export(job)) {
+                duration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                completed.increment();
+            }
+        } catch (ClaimLostException ex) {
+            log.info("Export {} was taken over by another node; stopping here", id);
+        } catch (Exception ex) {
+            if (!running || Thread.currentThread().isInterrupted()) {
+                log.info("Export {} interrupted; it resumes once it is claimed again", id);
+                return;
+            }
+            log.warn("Export {} failed: {}", id, ex.getMessage(), ex);
+            String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+            try {
+                save(job, () -> {
+                    Instant now = Instant.now();
+                    job.setStatus(ExportStatus.FAILED);
+                    job.setError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+                    job.setExpiresAt(now.plus(ttl));
+                });
+                failed.increment();
+            } catch (ClaimLostException lost) {
+                log.info("Export {} was taken over by another node; leaving it to that node", id);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes and saves the job in one transaction, after checking with a conditional update that
+     * this node still holds the job, which also extends the lease. The job row stays locked until the commit, so
+     * no other node can take the job over in between. Throws {@link ClaimLostException} when the claim is gone.
+     */
+    private void save(ExportJob job, Runnable changes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            Instant until = now.plus(lease);
+            if (jobRepository.claim(job.getId(), ACTIVE, nodeId, now, until) == 0) {
+                throw new ClaimLostException(job.getId());
+            }
+            changes.run();
+            job.setOwner(nodeId);
+            job.setLeaseUntil(until);
+            job.setUpdatedAt(now);
+            jobRepository.save(job);
+        });
+    }
+
+    /**
+     * Writes the parts still missing and joins them. Returns false when stopped before the job could finish.
+     */
+    private boolean export(ExportJob job) throws IOException {
+        Path jobDirectory = directory.resolve(job.getId());
+        Files.createDirectories(jobDirectory);
+        List<ExportChunk> chunks = intactChunks(job);
+        ExportChunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        UserAccount user = job.getUser();
+        if (last == null || last.getLastId() == null) {
+            LocalDate done = last != null ? last.getArchiveMonth() : null;
+            for (LocalDate month : archive.months(user)) {
+                if (done != null && !month.isAfter(done)) {
+                    continue;
+                }
+                if (!running) {
+                    return false;
+                }
+                ExportChunk chunk = writeChunk(job, chunks.size(), month, false, rows -> archive.forEach(user, month, rows));
+                if (chunk != null) {
+                    chunks.add(chunk);
+                    last = chunk;
+                }
+            }
+        }
+        while (true) {
+            if (!running) {
+                return false;
+            }
+            ExportChunk after = last;
+            LocalDate archiveMonth = last != null ? last.getArchiveMonth() : null;
+            ExportChunk chunk = readOnlyTemplate.execute(status -> writeStoredChunk(job, chunks.size(), archiveMonth, after));
+            if (chunk == null) {
+                break;
+            }
+            chunks.add(chunk);
+            last = chunk;
+            if (chunk.getRowCount() < chunkRows) {
+                break;
+            }
+        }
+        join(job, chunks);
+        return true;
+    }
+
+    private ExportChunk writeStoredChunk(ExportJob job, int seq, LocalDate archiveMonth, ExportChunk after) {
+        try {
+            return writeChunk(job, seq, archiveMonth, true, rows -> {
+                try (Stream<ActivityResponse> stored = after != null && after.getLastId() != null
+                        ? activityRepository.streamResponsesAfter(job.getUser(), after.getLastOccurredAt(), after.getLastId(), Limit.of(chunkRows))
+                        : activityRepository.streamResponses(job.getUser(), Limit.of(chunkRows))) {
+                    stored.forEach(rows);
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes one part file and commits its manifest entry. Returns null for an empty part after the first, which
+     * is not kept. For stored rows the position is the last row written.
+     */
+    private ExportChunk writeChunk(ExportJob job, int seq, LocalDate archiveMonth, boolean stored,
+            Consumer<Consumer<ActivityResponse>> source) throws IOException {
+        Path part = part(job, seq);
+        MessageDigest digest = sha256();
+        ActivityResponse[] lastRow = new ActivityResponse[1];
+        long rows;
+        long bytes;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+            rows = exportService.write(job.getFormat(), seq == 0, out, consumer -> source.accept(row -> {
+                consumer.accept(row);
+                lastRow[0] = row;
+            }));
+            channel.force(true);
+            bytes = channel.size();
+        }
+        if (rows == 0 && seq > 0) {
+            Files.deleteIfExists(part);
+            return null;
+        }
+        ExportChunk chunk = ExportChunk.builder()
+                .job(job)
+                .seq(seq)
+                .rowCount(rows)
+                .bytes(bytes)
+                .sha256(HexFormat.of().formatHex(digest.digest()))
+                .archiveMonth(archiveMonth)
+                .lastOccurredAt(stored && lastRow[0] != null ? lastRow[0].occurredAt() : null)
+                .lastId(stored && lastRow[0] != null ? lastRow[0].id() : null)
+                .build();
+        save(job, () -> {
+            chunkRepository.save(chunk);
+            job.setRowCount(job.getRowCount() + rows);
+            job.setBytes(job.getBytes() + bytes);
+        });
+        return chunk;
+    }
+
+    /**
+     * Committed chunks whose part files are still intact, in order. Anything from the first missing or damaged
+     * part on is dropped from the manifest and written again.
+     */
+    private List<ExportChunk> intactChunks(ExportJob job) throws IOException {
+        List<ExportChunk> chunks = new ArrayList<>(chunkRepository.findByJobOrderBySeqAsc(job));
+        int intact = 0;
+        while (intact < chunks.size() && chunks.get(intact).getSeq() == intact && matches(part(job, intact), chunks.get(intact), null)) {
+            intact++;
+        }
+        if (intact < chunks.size()) {
+            log.warn("Export {}: part {} is missing or damaged, rewriting from there", job.getId(), intact);
+            int from = intact;
+            chunks.subList(from, chunks.size()).clear();
+            save(job, () -> {
+                chunkRepository.deleteFrom(job, from);
+                job.setRowCount(chunks.stream().mapToLong(ExportChunk::getRowCount).sum());
+                job.setBytes(chunks.stream().mapToLong(ExportChunk::getBytes).sum());
+            });
+        }
+        return chunks;
+    }
+
+    /**
+     * Checks every part once more while hashing the whole, then appends them to the result file with
+     * {@link FileChannel#transferTo}, which the kernel can do without copying through user space.
+     */
+    private void join(ExportJob job, List<ExportChunk> chunks) throws IOException {
+        MessageDigest whole = sha256();
+        for (ExportChunk chunk : chunks) {
+            if (!matches(part(job, chunk.getSeq()), chunk, whole)) {
+                throw new IOException("Export part " + chunk.getSeq() + " changed before it could be joined");
+            }
+        }
+        Path result = result(job);
+        long size;
+        try (FileChannel out = FileChannel.open(result, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ExportChunk chunk : chunks) {
+                try (FileChannel in = FileChannel.open(part(job, chunk.getSeq()), StandardOpenOption.READ)) {
+                    long position = 0;
+                    while (position < chunk.getBytes()) {
+                        position += in.transferTo(position, chunk.getBytes() - position, out);
+                    }
+                }
+            }
+            out.force(true);
+            size = out.size();
+        }
+        String sha256 = HexFormat.of().formatHex(whole.digest());
+        save(job, () -> {
+            Instant now = Instant.now();
+            job.setStatus(ExportStatus.COMPLETED);
+            job.setBytes(size);
+            job.setSha256(sha256);
+            job.setCompletedAt(now);
+            job.setExpiresAt(now.plus(ttl));
+        });
+        for (ExportChunk chunk : chunks) {
+            Files.deleteIfExists(part(job, chunk.getSeq()));
+        }
+    }
+
+    private static boolean matches(Path part, ExportChunk chunk, MessageDigest whole) throws IOException {
+        if (!Files.isRegularFile(part) || Files.size(part) != chunk.getBytes()) {
+            return false;
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(part), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (whole != null) {
+                    whole.update(buffer, 0, read);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest()).equals(chunk.getSha256());
+    }
+
+    private ExportJob find(UserAccount user, String id) {
+        return jobRepository.findByIdAndUser(id, user)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Export not found"));
+    }
+
+    private Path part(ExportJob job, int seq) {
+        return directory.resolve(job.getId()).resolve(String.format("part-%05d.%s", seq, job.getFormat().extension()));
+    }
+
+    private Path result(ExportJob job) {
+        return directory.resolve(job.getId()).resolve("activities." + job.getFormat().extension());
+    }
+
+    private static ExportJobResponse toResponse(ExportJob job) {
+        String downloadUrl = job.getStatus() == ExportStatus.COMPLETED ? "/api/export/jobs/" + job.getId() + "/download" : null;
+        return new ExportJobResponse(job.getId(), job.getFormat(), job.getStatus(), job.getRowCount(), job.getBytes(),
+                job.getSha256(), job.getError(), job.getCreatedAt(), job.getCompletedAt(), job.getExpiresAt(), downloadUrl);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static ThreadFactory workerThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "export-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Thrown when another node has taken the job over; the job is left to that node without being marked failed.
+     */
+    private static final class ClaimLostException extends IllegalStateException {
+
+        ClaimLostException(String id) {
+            super("Export " + id + " is claimed by another node");
+        }
+    }
+
+    /**
+     * A completed export on disk, with the checksum clients can verify it against.
+     */
+    public record Download(Path file, long length, String sha256, ExportFormat format) {}
+}
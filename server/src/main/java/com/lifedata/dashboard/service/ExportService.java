@@ -1,21 +1,230 @@
 package com.lifedata.dashboard.service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lifedata.dashboard.dto.ActivityResponse;
 import com.lifedata.dashboard.dto.ExportResponse;
+import com.lifedata.dashboard.model.ExportFormat;
 import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
+/**
+ * Writes a user's activities, archived months first and then stored rows, straight to an output stream. Stored
+ * rows come from a fetch-size-bounded cursor and each row is written as soon as it is read, so memory stays flat
+ * regardless of how many rows a user has; only one archived month is held at a time.
+ * <p>
+ * A streamed download holds its cursor, and with it a pooled connection, for as long as the client takes to read
+ * it, so at most {@code app.export.stream.max-concurrent} run at once; callers reserve a slot with
+ * {@link #tryStartStream()} and turn clients away while none is free. Background export jobs are not limited here.
+ */
 @Service
 public class ExportService {
 
-    public ExportResponse exportCsv(UserAccount user) {
-        // Placeholder: in production, stream CSV to object storage and return signed URL.
-        String link = "https://example.com/downloads/activities.csv";
-        return new ExportResponse("Export started", link);
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+    private static final String CSV_HEADER = "id,type,rpg_stat,description,value,metadata,occurred_at,platform,repository,"
+            + "difficulty,time_spent_minutes,sets_completed,reps_completed,likes,comments,shares";
+
+    private final ActivityRepository activityRepository;
+    private final ActivityArchive archive;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore streams;
+    private final Counter streamsRejected;
+
+    public ExportService(ActivityRepository activityRepository, ActivityArchive archive, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry, @Value("${app.export.stream.max-concurrent:4}") int maxStreams) {
+        this.activityRepository = activityRepository;
+        this.archive = archive;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        int permits = Math.max(1, maxStreams);
+        this.streams = new Semaphore(permits);
+        Gauge.builder("activity.export.streams", streams, semaphore -> permits - semaphore.availablePermits())
+                .description("Streamed exports in progress")
+                .register(meterRegistry);
+        this.streamsRejected = Counter.builder("activity.export.streams.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Reserves a slot for a streamed export; false when all are taken. A caller that got one must hand it back
+     * with {@link #finishStream()} once the export has ended, however it ended.
+     */
+    public boolean tryStartStream() {
+        if (streams.tryAcquire()) {
+            return true;
+        }
+        streamsRejected.increment();
+        return false;
+    }
+
+    public void finishStream() {
+        streams.release();
+    }
+
+    /**
+     * Writes every activity of the user in the given format and returns the number of rows. The output is flushed
+     * but not closed. Holds a read-only transaction, and with it a connection, until the last row is written.
+     */
+    @Transactional(readOnly = true)
+    public long export(UserAccount user, ExportFormat format, OutputStream out) throws IOException {
+        long count = write(format, true, out, rows -> {
+            archive.forEach(user, rows);
+            try (Stream<ActivityResponse> stored = activityRepository.streamResponses(user, Limit.unlimited())) {
+                stored.forEach(rows);
+            }
+        });
+        Counter.builder("activity.export.rows").tag("format", format.extension()).register(meterRegistry).increment(count);
+        return count;
+    }
+
+    /**
+     * Writes the rows the source hands to its consumer, preceded by the CSV header when {@code header} is set, and
+     * returns their number. The output is flushed but not closed. Export jobs write each chunk through this.
+     */
+    long write(ExportFormat format, boolean header, OutputStream out, Consumer<Consumer<ActivityResponse>> source)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        RowWriter rows = format == ExportFormat.CSV ? new CsvRowWriter(writer, header) : new NdjsonRowWriter(writer);
+        long count;
+        try {
+            source.accept(rows);
+            count = rows.finish();
+        } catch (UncheckedIOException ex) {
+            // Usually the client went away; surface the original failure to the container
+            throw ex.getCause();
+        }
+        writer.flush();
+        return count;
     }
 
     public ExportResponse sendEmailDigest(UserAccount user) {
         // Placeholder: enqueue email digest job.
         return new ExportResponse("Email digest scheduled", null);
     }
+
+    private abstract static class RowWriter implements Consumer<ActivityResponse> {
+
+        long count;
+
+        @Override
+        public void accept(ActivityResponse activity) {
+            try {
+                write(activity);
+                count++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        abstract void write(ActivityResponse activity) throws IOException;
+
+        long finish() throws IOException {
+            return count;
+        }
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer, boolean header) throws IOException {
+            this.writer = writer;
+            if (header) {
+                writer.write(CSV_HEADER);
+                writer.write("\r\n");
+            }
+        }
+
+        @Override
+        void write(ActivityResponse a) throws IOException {
+            writer.write(String.valueOf(a.id()));
+            field(a.type());
+            field(a.rpgStat());
+            field(a.description());
+            field(a.value());
+            field(a.metadata());
+            field(a.occurredAt());
+            field(a.platform());
+            field(a.repository());
+            field(a.difficulty());
+            field(a.timeSpentMinutes());
+            field(a.setsCompleted());
+            field(a.repsCompleted());
+            field(a.likes());
+            field(a.comments());
+            field(a.shares());
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: quote fields containing a delimiter, quote or line break, doubling embedded quotes
+        private void field(Object value) throws IOException {
+            writer.write(',');
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter extends RowWriter {
+
+        private final Writer writer;
+        private final SequenceWriter sequence;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            // Flushing after every value would push each row to the socket; the buffered writer batches instead
+            this.sequence = objectMapper.writerFor(ActivityResponse.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(writer);
+        }
+
+        @Override
+        void write(ActivityResponse activity) throws IOException {
+            sequence.write(activity);
+        }
+
+        @Override
+        long finish() throws IOException {
+            sequence.flush();
+            if (count > 0) {
+                writer.write('\n');
+            }
+            return count;
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package com.lifedata.dashboard.service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.Goal;
+import com.lifedata.dashboard.model.GoalPeriod;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.GoalProgressRepository;
+import com.lifedata.dashboard.repository.GoalRepository;
+
+/**
+ * Keeps {@code Goal.currentValue} in step with activity writes. Each goal remembers the start of the window its
+ * value covers; while that still matches, a write only adds its value with an atomic increment. When the window
+ * has moved on, the writer re-sums the new window once. All updates are conditional single-row UPDATEs, so
+ * concurrent writers for one user serialize on the goal row instead of overwriting each other.
+ */
+@Service
+public class GoalProgressUpdater {
+
+    private static final double EPSILON = 1e-9;
+
+    private final GoalRepository goalRepository;
+    private final GoalProgressRepository goalProgressRepository;
+    private final ActivityRepository activityRepository;
+    private final ActivityArchive archive;
+
+    public GoalProgressUpdater(GoalRepository goalRepository, GoalProgressRepository goalProgressRepository,
+            ActivityRepository activityRepository, ActivityArchive archive) {
+        this.goalRepository = goalRepository;
+        this.goalProgressRepository = goalProgressRepository;
+        this.activityRepository = activityRepository;
+        this.archive = archive;
+    }
+
+    /**
+     * Applies just-saved activities to the goals whose current window contains their occurrence time.
+     * Must run in the transaction that inserted them, so a re-sum includes them.
+     */
+    @Transactional
+    public void apply(UserAccount user, List<Activity> activities) {
+        Map<ActivityType, List<Activity>> byType = new EnumMap<>(ActivityType.class);
+        for (Activity activity : activities) {
+            byType.computeIfAbsent(activity.getType(), type -> new ArrayList<>()).add(activity);
+        }
+        ZoneId zone = RollupService.zoneFor(user);
+        Instant now = Instant.now();
+        byType.forEach((type, typed) -> {
+            for (Goal goal : goalRepository.findByUserAndActivityType(user, type)) {
+                Window window = window(goal, zone, now);
+                double delta = 0.0;
+                boolean inWindow = false;
+                for (Activity activity : typed) {
+                    if (window.contains(activity.getOccurredAt())) {
+                        delta += activity.getValue() != null ? activity.getValue() : 1.0;
+                        inWindow = true;
+                    }
+                }
+                if (inWindow) {
+                    applyDelta(user, goal, window, delta);
+                }
+            }
+        });
+    }
+
+    /**
+     * Re-sums every goal of the user that has drifted from its activities, e.g. after an import that bypassed the
+     * deltas. Goals tracked by manual progress entries are left alone. Returns the number of goals repaired.
+     */
+    @Transactional
+    public int reconcile(UserAccount user) {
+        return reconcile(user, true);
+    }
+
+    /**
+     * Re-sums only the goals whose window has moved on since their value was summed, such as a weekly goal on a
+     * Monday before any activity. A goal still in its window is kept exact by the deltas and costs no query.
+     * Returns the number of goals reset.
+     */
+    @Transactional
+    public int rollOver(UserAccount user) {
+        return reconcile(user, false);
+    }
+
+    private int reconcile(UserAccount user, boolean unmoved) {
+        ZoneId zone = RollupService.zoneFor(user);
+        Instant now = Instant.now();
+        int repaired = 0;
+        for (Goal goal : goalRepository.findByUser(user)) {
+            Window window = window(goal, zone, now);
+            boolean moved = !window.start().equals(goal.getProgressWindowStart());
+            if ((!moved && !unmoved) || goalProgressRepository.existsByGoal(goal)) {
+                continue;
+            }
+            double sum = sum(user, goal, window);
+            double observed = goal.getCurrentValue() != null ? goal.getCurrentValue() : -1.0;
+            if (!moved && Math.abs(observed - sum) < EPSILON) {
+                continue;
+            }
+            // Only replaces what was read; a write that landed meanwhile makes this a no-op until the next run
+            Instant observedStart = goal.getProgressWindowStart() != null ? goal.getProgressWindowStart() : Instant.EPOCH;
+            if (goalRepository.replaceProgress(goal.getId(), sum, window.start(), observed, observedStart, Instant.EPOCH) > 0) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    private void applyDelta(UserAccount user, Goal goal, Window window, double delta) {
+        if (goalRepository.incrementProgress(goal.getId(), delta, window.start()) > 0) {
+            return;
+        }
+        // The stored value belongs to an older window (or none): re-sum the current one, which includes this write.
+        // If another writer moved the goal to this window first, its sum cannot see this uncommitted write, so add it.
+        double sum = sum(user, goal, window);
+        if (goalRepository.resetProgress(goal.getId(), sum, window.start()) == 0) {
+            goalRepository.incrementProgress(goal.getId(), delta, window.start());
+        }
+    }
+
+    // Straight from the database rather than the hot tier, whose copy may not include this transaction's rows
+    private double sum(UserAccount user, Goal goal, Window window) {
+        return activityRepository.sumValue(user, goal.getActivityType(), window.start(), window.end())
+                + archive.sumValue(user, goal.getActivityType(), window.start(), window.end());
+    }
+
+    static Window window(Goal goal, ZoneId zone, Instant now) {
+        Instant start = goal.getStartDate() != null
+                ? goal.getStartDate().atStartOfDay(zone).toInstant()
+                : startForPeriod(goal.getPeriod(), zone, now);
+        Instant end = goal.getEndDate() != null ? goal.getEndDate().plusDays(1).atStartOfDay(zone).toInstant() : now;
+        return new Window(start, end);
+    }
+
+    private static Instant startForPeriod(GoalPeriod period, ZoneId zone, Instant now) {
+        LocalDate today = LocalDate.ofInstant(now, zone);
+        return switch (period) {
+            case DAILY -> today.atStartOfDay(zone).toInstant();
+            case WEEKLY -> today.with(DayOfWeek.MONDAY).atStartOfDay(zone).toInstant();
+            case MONTHLY -> today.withDayOfMonth(1).atStartOfDay(zone).toInstant();
+            case QUARTERLY -> today.withMonth(((today.getMonthValue() - 1) / 3) * 3 + 1).withDayOfMonth(1).atStartOfDay(zone).toInstant();
+            case CUSTOM -> today.atStartOfDay(zone).toInstant();
+        };
+    }
+
+    /**
+     * Inclusive [start, end] range, matching {@code ActivityRepository.sumValue}.
+     */
+    record Window(Instant start, Instant end) {
+        boolean contains(Instant instant) {
+            return !instant.isBefore(start) && !instant.isAfter(end);
+        }
+    }
+}
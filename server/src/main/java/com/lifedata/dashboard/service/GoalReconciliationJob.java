@@ -0,0 +1,58 @@
+package com.lifedata.dashboard.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@Component
+public class GoalReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(GoalReconciliationJob.class);
+
+    private final GoalProgressUpdater goalProgressUpdater;
+    private final UserAccountRepository userRepository;
+    private final DashboardSummaryCache summaryCache;
+    private final DataVersionService dataVersionService;
+
+    @Value("${app.goals.reconcile.enabled:true}")
+    private boolean enabled;
+
+    public GoalReconciliationJob(GoalProgressUpdater goalProgressUpdater, UserAccountRepository userRepository,
+            DashboardSummaryCache summaryCache, DataVersionService dataVersionService) {
+        this.goalProgressUpdater = goalProgressUpdater;
+        this.userRepository = userRepository;
+        this.summaryCache = summaryCache;
+        this.dataVersionService = dataVersionService;
+    }
+
+    // Goal values are maintained by deltas; this re-sums only goals whose window rolled over since, so goals
+    // still in their window, the vast majority on any given hour, never sum their activities or archive here
+    @Scheduled(cron = "${app.goals.reconcile.cron:0 5 * * * *}")
+    public void reconcile() {
+        if (!enabled) {
+            log.trace("Goal reconciliation disabled");
+            return;
+        }
+        int repaired = 0;
+        for (UserAccount user : userRepository.findAll()) {
+            try {
+                int fixed = goalProgressUpdater.rollOver(user);
+                if (fixed > 0) {
+                    summaryCache.evict(user.getId());
+                    dataVersionService.bump(user.getId());
+                    repaired += fixed;
+                }
+            } catch (Exception ex) {
+                log.warn("Goal reconciliation failed for user {}: {}", user.getId(), ex.getMessage(), ex);
+            }
+        }
+        if (repaired > 0) {
+            log.info("Goal reconciliation repaired {} goals", repaired);
+        }
+    }
+}
@@ -12,11 +12,11 @@ import org.springframework.stereotype.Service;
 import com.lifedata.dashboard.dto.GoalHistoryResponse;
 import com.lifedata.dashboard.dto.GoalRequest;
 import com.lifedata.dashboard.dto.GoalResponse;
+import com.lifedata.dashboard.exception.BadRequestException;
 import com.lifedata.dashboard.model.Goal;
 import com.lifedata.dashboard.model.GoalPeriod;
 import com.lifedata.dashboard.model.GoalProgress;
 import com.lifedata.dashboard.model.UserAccount;
-import com.lifedata.dashboard.repository.ActivityRepository;
 import com.lifedata.dashboard.repository.GoalProgressRepository;
 import com.lifedata.dashboard.repository.GoalRepository;
 
@@ -24,13 +24,18 @@ import com.lifedata.dashboard.repository.GoalRepository;
 public class GoalService {
 
     private final GoalRepository goalRepository;
-    private final ActivityRepository activityRepository;
     private final GoalProgressRepository goalProgressRepository;
+    private final DashboardSummaryCache summaryCache;
+    private final DataVersionService dataVersionService;
+    private final ActivityHotTier hotTier;
 
-    public GoalService(GoalRepository goalRepository, ActivityRepository activityRepository, GoalProgressRepository goalProgressRepository) {
+    public GoalService(GoalRepository goalRepository, GoalProgressRepository goalProgressRepository,
+            DashboardSummaryCache summaryCache, DataVersionService dataVersionService, ActivityHotTier hotTier) {
         this.goalRepository = goalRepository;
-        this.activityRepository = activityRepository;
         this.goalProgressRepository = goalProgressRepository;
+        this.summaryCache = summaryCache;
+        this.dataVersionService = dataVersionService;
+        this.hotTier = hotTier;
     }
 
     public GoalResponse upsert(UserAccount user, GoalRequest request) {
@@ -50,6 +55,8 @@ public class GoalService {
 
         goal.setCurrentValue(computeCurrent(user, goal));
         Goal saved = goalRepository.save(goal);
+        summaryCache.evict(user.getId());
+        dataVersionService.bump(user.getId());
         return toResponse(saved);
     }
 
@@ -59,7 +66,7 @@ public class GoalService {
 
         public List<GoalHistoryResponse> history(UserAccount user, Long goalId) {
         Goal goal = goalRepository.findById(goalId).filter(g -> g.getUser().getId().equals(user.getId()))
-                    .orElseThrow(() -> new IllegalArgumentException("Goal not found"));
+                    .orElseThrow(() -> new BadRequestException("Goal not found"));
         return goalProgressRepository.findTop14ByGoalOrderByDateDesc(goal).stream()
                     .map(gp -> new GoalHistoryResponse(gp.getDate(), gp.getValue()))
                     .collect(Collectors.toList());
@@ -67,20 +74,28 @@ public class GoalService {
 
         public GoalHistoryResponse setProgress(UserAccount user, Long goalId, LocalDate date, double value) {
         Goal goal = goalRepository.findById(goalId).filter(g -> g.getUser().getId().equals(user.getId()))
-                    .orElseThrow(() -> new IllegalArgumentException("Goal not found"));
+                    .orElseThrow(() -> new BadRequestException("Goal not found"));
         LocalDate safeDate = date != null ? date : LocalDate.now();
         GoalProgress progress = goalProgressRepository.findByGoalAndDate(goal, safeDate)
                     .orElse(GoalProgress.builder().goal(goal).date(safeDate).value(0.0).build());
         progress.setValue(value);
         GoalProgress saved = goalProgressRepository.save(progress);
         goal.setCurrentValue(computeCurrent(user, goal));
+        // Not an activity sum over a known window, so the next activity write re-sums instead of adding to it
+        goal.setProgressWindowStart(null);
         goalRepository.save(goal);
+        summaryCache.evict(user.getId());
+        dataVersionService.bump(user.getId());
         return new GoalHistoryResponse(saved.getDate(), saved.getValue());
         }
 
     public void delete(Long id, UserAccount user) {
         goalRepository.findById(id).filter(goal -> goal.getUser().getId().equals(user.getId()))
-                .ifPresent(goalRepository::delete);
+                .ifPresent(goal -> {
+                    goalRepository.delete(goal);
+                    summaryCache.evict(user.getId());
+                    dataVersionService.bump(user.getId());
+                });
     }
 
     private GoalResponse toResponse(Goal goal) {
@@ -110,10 +125,7 @@ public class GoalService {
     }
 
     private double activitySum(UserAccount user, Goal goal, Instant start, Instant end) {
-        return activityRepository.findByUserAndTypeAndOccurredAtBetween(user, goal.getActivityType(), start, end)
-                .stream()
-                .mapToDouble(a -> a.getValue() != null ? a.getValue() : 1.0)
-                .sum();
+        return hotTier.sumValue(user, goal.getActivityType(), start, end);
     }
 
     private Instant startForPeriod(Goal goal, ZoneId zone) {
@@ -20,6 +20,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.lifedata.dashboard.dto.ActivityBatchRequest;
 import com.lifedata.dashboard.dto.ActivityRequest;
 import com.lifedata.dashboard.model.ActivityType;
 import com.lifedata.dashboard.model.UserAccount;
@@ -86,8 +87,8 @@ public class IntegrationsScheduler {
         }
         try {
             List<IntegrationEvent> events = fetchGitHubPushEvents();
-            persistEvents(user, events);
-            log.info("GitHub sync stored {} events", events.size());
+            int stored = persistEvents(user, events);
+            log.info("GitHub sync stored {} new of {} events", stored, events.size());
         } catch (Exception ex) {
             log.warn("GitHub sync failed: {}", ex.getMessage(), ex);
         }
@@ -109,8 +110,8 @@ public class IntegrationsScheduler {
         }
         try {
             List<IntegrationEvent> events = fetchLeetCodeAccepted();
-            persistEvents(user, events);
-            log.info("LeetCode sync stored {} events", events.size());
+            int stored = persistEvents(user, events);
+            log.info("LeetCode sync stored {} new of {} events", stored, events.size());
         } catch (Exception ex) {
             log.warn("LeetCode sync failed: {}", ex.getMessage(), ex);
         }
@@ -149,12 +150,17 @@ public class IntegrationsScheduler {
         });
     }
 
-    private void persistEvents(UserAccount user, List<IntegrationEvent> events) {
+    /**
+     * Stores events not seen before; the overlapping look-back windows re-fetch most events several times,
+     * and those are skipped by their external key. Returns the number of new activities.
+     */
+    private int persistEvents(UserAccount user, List<IntegrationEvent> events) {
         if (events.isEmpty()) {
-            return;
+            return 0;
         }
+        List<ActivityRequest> requests = new ArrayList<>();
         for (IntegrationEvent event : events) {
-            ActivityRequest request = new ActivityRequest(
+            requests.add(new ActivityRequest(
                     event.type(),
                     null,
                     event.description(),
@@ -169,9 +175,14 @@ public class IntegrationsScheduler {
                     null,
                     null,
                     null,
-                    null);
-            activityService.addActivity(user, request);
+                    null,
+                    event.externalKey()));
+        }
+        int stored = 0;
+        for (int from = 0; from < requests.size(); from += ActivityBatchRequest.MAX_SIZE) {
+            stored += activityService.addActivities(user, requests.subList(from, Math.min(requests.size(), from + ActivityBatchRequest.MAX_SIZE))).count();
         }
+        return stored;
     }
 
     private List<IntegrationEvent> fetchGitHubPushEvents() {
@@ -204,7 +215,9 @@ public class IntegrationsScheduler {
             String repo = node.path("repo").path("name").asText("");
             String ref = payload.path("ref").asText("");
             String desc = "GitHub push to " + repo + (ref.isEmpty() ? "" : " (" + ref.replace("refs/heads/", "") + ")") + " — " + commitCount + " commit" + (commitCount > 1 ? "s" : "");
-            events.add(new IntegrationEvent(ActivityType.GITHUB_COMMITS, desc, (double) commitCount, created, "github", repo, "ref=" + ref));
+            String eventId = node.path("id").asText("");
+            String key = eventId.isEmpty() ? null : "github:" + eventId;
+            events.add(new IntegrationEvent(ActivityType.GITHUB_COMMITS, desc, (double) commitCount, created, "github", repo, "ref=" + ref, key));
         }
         return events;
     }
@@ -236,7 +249,9 @@ public class IntegrationsScheduler {
             String difficulty = submission.path("status_display").asText("");
             String meta = submission.path("lang").asText("");
             String desc = "LeetCode AC: " + title;
-            events.add(new IntegrationEvent(ActivityType.DSA, desc, 1.0, when, "leetcode", null, "lang=" + meta + ", status=" + difficulty));
+            String submissionId = submission.path("id").asText("");
+            String key = submissionId.isEmpty() ? null : "leetcode:" + submissionId;
+            events.add(new IntegrationEvent(ActivityType.DSA, desc, 1.0, when, "leetcode", null, "lang=" + meta + ", status=" + difficulty, key));
         }
         return events;
     }
@@ -256,7 +271,8 @@ public class IntegrationsScheduler {
         return v == null || v.trim().isEmpty();
     }
 
-    private record IntegrationEvent(ActivityType type, String description, Double value, Instant occurredAt, String platform, String repository, String metadata) {
+    private record IntegrationEvent(ActivityType type, String description, Double value, Instant occurredAt, String platform, String repository, String metadata,
+            String externalKey) {
         IntegrationEvent {
             Objects.requireNonNull(type, "type");
             Objects.requireNonNull(description, "description");
@@ -0,0 +1,250 @@
+package com.lifedata.dashboard.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lifedata.dashboard.dto.ActivityBatchResponse;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.dto.DashboardDelta;
+import com.lifedata.dashboard.model.LiveUpdateMessage;
+import com.lifedata.dashboard.repository.LiveUpdateMessageRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Cross-node fan-out for live updates when several replicas share the database. With
+ * {@code app.websocket.outbox.enabled} set, every frame a node pushes to its own sessions is also written to the
+ * {@code live_update_outbox} table, in the transaction of the write that caused it where there is one, and every
+ * node polls the table and delivers the rows written by the other nodes to the sessions it holds.
+ * <p>
+ * Each node keeps its own high-water mark in memory, starting at the newest row when it boots. Identity values are
+ * handed out at insert but become visible at commit, so a row may show up after rows with higher ids: the mark only
+ * moves past a row once it has been seen for {@code app.websocket.outbox.grace-ms}, and rows above the mark are
+ * re-read on every poll, skipping the ones already relayed. A row committing more than the grace period after a
+ * higher one is not relayed. Rows older than {@code app.websocket.outbox.retention-ms} are pruned by every node.
+ */
+@Service
+public class LiveUpdateOutbox implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveUpdateOutbox.class);
+
+    private final LiveUpdateMessageRepository repository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ActivityEventStream eventStream;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long pollMillis;
+    private final long graceNanos;
+    private final Duration retention;
+    private final long pruneMillis;
+    private final int batchSize;
+    // Ids above the high-water mark that were already relayed or skipped, with when this node first saw them
+    private final ConcurrentNavigableMap<Long, Long> seen = new ConcurrentSkipListMap<>();
+    private final AtomicLong highWaterMark = new AtomicLong();
+    private final Counter relayed;
+    private final Counter pruned;
+    private ScheduledExecutorService scheduler;
+
+    public LiveUpdateOutbox(LiveUpdateMessageRepository repository, SimpMessagingTemplate messagingTemplate,
+            ActivityEventStream eventStream, ObjectMapper objectMapper, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.websocket.outbox.enabled:false}") boolean enabled,
+            @Value("${app.websocket.outbox.node-id:}") String nodeId,
+            @Value("${app.websocket.outbox.poll-ms:200}") long pollMillis,
+            @Value("${app.websocket.outbox.grace-ms:5000}") long graceMillis,
+            @Value("${app.websocket.outbox.retention-ms:300000}") long retentionMillis,
+            @Value("${app.websocket.outbox.prune-ms:60000}") long pruneMillis,
+            @Value("${app.websocket.outbox.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.messagingTemplate = messagingTemplate;
+        this.eventStream = eventStream;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.pollMillis = Math.max(10, pollMillis);
+        this.graceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, graceMillis));
+        // Rows must outlive the grace period, or a late commit could be pruned before any node relays it
+        this.retention = Duration.ofMillis(Math.max(retentionMillis, 2 * graceMillis + this.pollMillis));
+        this.pruneMillis = Math.max(1000, pruneMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.relayed = Counter.builder("live.outbox.relayed")
+                .description("Outbox rows from other nodes delivered to local sessions")
+                .register(meterRegistry);
+        this.pruned = Counter.builder("live.outbox.pruned").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Queues a frame for the other nodes. Joins the caller's transaction, so the row commits or rolls back with
+     * the write it announces; the caller delivers the frame to this node's sessions itself.
+     */
+    public void record(String userEmail, String destination, Object payload) {
+        if (!enabled) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            log.warn("Could not serialize live update for {}", destination, ex);
+            return;
+        }
+        repository.save(LiveUpdateMessage.builder()
+                .originNode(nodeId)
+                .userEmail(userEmail)
+                .destination(destination)
+                .payload(json)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        // Sessions on a node that just started have missed nothing worth replaying
+        highWaterMark.set(repository.maxId());
+        Gauge.builder("live.outbox.high.water.mark", highWaterMark, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("live.outbox.pending", seen, Map::size)
+                .description("Relayed rows still inside the grace period")
+                .register(meterRegistry);
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "live-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = ExecutorServiceMetrics.monitor(meterRegistry, pool, "liveOutbox");
+        scheduler.scheduleWithFixedDelay(this::pollSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::pruneSafely, pruneMillis, pruneMillis, TimeUnit.MILLISECONDS);
+        log.info("Live update outbox enabled on node {} from id {}", nodeId, highWaterMark.get());
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Relays rows committed since the last poll and moves the high-water mark past rows seen longer than the grace
+     * period. Returns the number of rows relayed.
+     */
+    int poll() {
+        int delivered = 0;
+        long cursor = highWaterMark.get();
+        List<LiveUpdateMessage> rows;
+        do {
+            rows = repository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, batchSize));
+            long now = System.nanoTime();
+            for (LiveUpdateMessage row : rows) {
+                cursor = row.getId();
+                if (seen.putIfAbsent(row.getId(), now) == null && !nodeId.equals(row.getOriginNode())) {
+                    delivered += relay(row) ? 1 : 0;
+                }
+            }
+        } while (rows.size() == batchSize);
+        long settled = System.nanoTime() - graceNanos;
+        for (Map.Entry<Long, Long> entry = seen.firstEntry();
+                entry != null && entry.getValue() - settled <= 0;
+                entry = seen.firstEntry()) {
+            highWaterMark.set(entry.getKey());
+            seen.remove(entry.getKey());
+        }
+        return delivered;
+    }
+
+    int prune() {
+        Instant cutoff = Instant.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> repository.deleteCreatedBefore(cutoff));
+        int count = deleted == null ? 0 : deleted;
+        pruned.increment(count);
+        return count;
+    }
+
+    private boolean relay(LiveUpdateMessage row) {
+        try {
+            JsonNode payload = objectMapper.readTree(row.getPayload());
+            messagingTemplate.convertAndSendToUser(row.getUserEmail(), row.getDestination(), payload);
+            // Event streams on this node get the activities too; a delta lists at most its newest ones
+            switch (row.getDestination()) {
+                case "/queue/activity" -> eventStream.publish(row.getUserEmail(),
+                        List.of(objectMapper.treeToValue(payload, ActivityResponse.class)));
+                case "/queue/activity-batch" -> eventStream.publish(row.getUserEmail(),
+                        objectMapper.treeToValue(payload, ActivityBatchResponse.class).activities());
+                case "/queue/dashboard" -> {
+                    // Newest first in a delta, oldest first on a stream
+                    List<ActivityResponse> activities = new ArrayList<>(
+                            objectMapper.treeToValue(payload, DashboardDelta.class).activities());
+                    Collections.reverse(activities);
+                    eventStream.publish(row.getUserEmail(), activities);
+                }
+                default -> { }
+            }
+            relayed.increment();
+            return true;
+        } catch (JsonProcessingException | RuntimeException ex) {
+            log.warn("Failed to relay live update {} from node {}", row.getId(), row.getOriginNode(), ex);
+            return false;
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException ex) {
+            log.warn("Live update outbox poll failed", ex);
+        }
+    }
+
+    private void pruneSafely() {
+        try {
+            int deleted = prune();
+            if (deleted > 0) {
+                log.debug("Pruned {} live update outbox rows", deleted);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Live update outbox prune failed", ex);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.lifedata.dashboard.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.lifedata.dashboard.dto.ActivityBatchResponse;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.dto.DashboardDelta;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Pushes activity writes to their owner's sessions. In {@code activity} mode every write is echoed as is on
+ * {@code /user/queue/activity} (or {@code /activity-batch}). In {@code delta} mode writes are collected per user
+ * once they commit, and {@code app.websocket.coalesce-window-ms} after the first one a single
+ * {@link DashboardDelta} goes out on {@code /user/queue/dashboard}, so a burst of integration events costs one
+ * small frame and one partial dashboard read instead of a message and a full summary per event.
+ * <p>
+ * With several replicas, {@link LiveUpdateOutbox} carries each frame to the sessions held by the other nodes. An
+ * activity echo is queued in the transaction of its write and reaches this node's sessions once that commits, so a
+ * rolled-back write is pushed nowhere; a delta is queued on its own once computed. Committed writes also go to the
+ * owner's {@link ActivityEventStream}s, whatever the mode.
+ */
+@Service
+public class LiveUpdatePublisher implements DisposableBean {
+
+    public enum PushMode { ACTIVITY, DELTA }
+
+    // Matches the default feed page, which is all a client shows of the new activities
+    private static final int MAX_DELTA_ACTIVITIES = 20;
+
+    private static final Logger log = LoggerFactory.getLogger(LiveUpdatePublisher.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final DashboardService dashboardService;
+    private final LiveUpdateOutbox outbox;
+    private final ActivityEventStream eventStream;
+    private final PushMode mode;
+    private final long windowMillis;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Counter frames;
+    private final DistributionSummary writesPerFrame;
+
+    public LiveUpdatePublisher(SimpMessagingTemplate messagingTemplate, DashboardService dashboardService,
+            LiveUpdateOutbox outbox, ActivityEventStream eventStream, MeterRegistry meterRegistry,
+            @Value("${app.websocket.push-mode:activity}") PushMode mode,
+            @Value("${app.websocket.coalesce-window-ms:250}") long windowMillis,
+            @Value("${app.websocket.push-threads:2}") int threads) {
+        this.messagingTemplate = messagingTemplate;
+        this.dashboardService = dashboardService;
+        this.outbox = outbox;
+        this.eventStream = eventStream;
+        this.mode = mode;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.frames = Counter.builder("live.push.frames").tag("mode", mode.name().toLowerCase(Locale.ROOT)).register(meterRegistry);
+        this.writesPerFrame = DistributionSummary.builder("live.push.coalesced.writes")
+                .description("Activity writes folded into one dashboard delta")
+                .register(meterRegistry);
+        if (mode == PushMode.DELTA) {
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Math.max(1, threads), daemonThreads());
+            pool.setRemoveOnCancelPolicy(true);
+            this.scheduler = ExecutorServiceMetrics.monitor(meterRegistry, pool, "livePush");
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public void activityAdded(UserAccount user, ActivityResponse activity) {
+        afterCommit(user, List.of(activity), echo(user.getEmail(), "/queue/activity", activity));
+    }
+
+    public void activitiesAdded(UserAccount user, ActivityBatchResponse batch) {
+        afterCommit(user, batch.activities(), echo(user.getEmail(), "/queue/activity-batch", batch));
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Event streams resume from the database and the delta is read back from it, so neither may run before the
+    // write is visible
+    private void afterCommit(UserAccount user, List<ActivityResponse> activities, Runnable echo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(user, activities, echo);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed(user, activities, echo);
+            }
+        });
+    }
+
+    private void committed(UserAccount user, List<ActivityResponse> activities, Runnable echo) {
+        echo.run();
+        eventStream.publish(user.getEmail(), activities);
+        if (mode == PushMode.DELTA) {
+            collect(user, activities);
+        }
+    }
+
+    private void collect(UserAccount user, List<ActivityResponse> activities) {
+        boolean[] opened = {false};
+        pending.compute(user.getId(), (id, current) -> {
+            Pending window = current != null ? current : new Pending(user);
+            opened[0] = current == null;
+            window.add(activities);
+            return window;
+        });
+        if (opened[0]) {
+            scheduler.schedule(() -> flush(user.getId()), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(Long userId) {
+        // Writes arriving from here on open the next window
+        Pending window = pending.remove(userId);
+        if (window == null) {
+            return;
+        }
+        try {
+            DashboardDelta delta = dashboardService.delta(window.user, window.types, window.writes,
+                    new ArrayList<>(window.activities));
+            send(window.user.getEmail(), "/queue/dashboard", delta);
+            writesPerFrame.record(window.writes);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to push dashboard delta for user {}", userId, ex);
+        }
+    }
+
+    // The outbox row joins the write's transaction; the returned push to this node's sessions runs after commit
+    private Runnable echo(String email, String destination, Object payload) {
+        if (mode != PushMode.ACTIVITY) {
+            return () -> { };
+        }
+        outbox.record(email, destination, payload);
+        return () -> sendLocal(email, destination, payload);
+    }
+
+    // Frames go to this node's sessions directly and, with the outbox enabled, to the other replicas through it
+    private void send(String email, String destination, Object payload) {
+        outbox.record(email, destination, payload);
+        sendLocal(email, destination, payload);
+    }
+
+    private void sendLocal(String email, String destination, Object payload) {
+        messagingTemplate.convertAndSendToUser(email, destination, payload);
+        frames.increment();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "live-push-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Writes of one user within the current window; only touched under the map's per-key lock until removed.
+     */
+    private static final class Pending {
+
+        private final UserAccount user;
+        private final Set<ActivityType> types = EnumSet.noneOf(ActivityType.class);
+        private final ArrayDeque<ActivityResponse> activities = new ArrayDeque<>();
+        private int writes;
+
+        Pending(UserAccount user) {
+            this.user = user;
+        }
+
+        void add(List<ActivityResponse> added) {
+            for (ActivityResponse activity : added) {
+                types.add(activity.type());
+                activities.addFirst(activity);
+                if (activities.size() > MAX_DELTA_ACTIVITIES) {
+                    activities.removeLast();
+                }
+                writes++;
+            }
+        }
+    }
+}
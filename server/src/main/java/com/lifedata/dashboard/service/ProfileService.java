@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -26,14 +27,22 @@ public class ProfileService {
 
     private final CurrentUserService currentUserService;
     private final UserAccountRepository userRepository;
+    private final RollupService rollupService;
+    private final DashboardSummaryCache summaryCache;
+    private final DataVersionService dataVersionService;
     private final Path uploadRoot;
     private final String publicBase;
 
     public ProfileService(CurrentUserService currentUserService, UserAccountRepository userRepository,
+                          RollupService rollupService, DashboardSummaryCache summaryCache,
+                          DataVersionService dataVersionService,
                           @Value("${app.upload.dir:uploads}") String uploadDir,
                           @Value("${app.upload.public-base:/uploads}") String publicBase) {
         this.currentUserService = currentUserService;
         this.userRepository = userRepository;
+        this.rollupService = rollupService;
+        this.summaryCache = summaryCache;
+        this.dataVersionService = dataVersionService;
         this.uploadRoot = Paths.get(uploadDir);
         this.publicBase = publicBase.endsWith("/") ? publicBase : publicBase + "/";
     }
@@ -47,6 +56,7 @@ public class ProfileService {
     @Transactional
     public ProfileResponse update(UpdateProfileRequest request) {
         UserAccount user = currentUserService.currentUser();
+        String previousTimezone = user.getTimezone();
         if (request.name() != null) user.setName(request.name());
         if (request.themePreference() != null) user.setThemePreference(request.themePreference());
         if (request.notificationsEnabled() != null) user.setNotificationsEnabled(request.notificationsEnabled());
@@ -59,6 +69,12 @@ public class ProfileService {
         if (request.avatarUrl() != null) user.setAvatarUrl(request.avatarUrl());
         if (request.gender() != null) user.setGender(request.gender());
         userRepository.save(user);
+        if (!Objects.equals(previousTimezone, user.getTimezone())) {
+            // Day buckets are keyed by the user's local date
+            rollupService.rebuild(user);
+            dataVersionService.bump(user.getId());
+        }
+        summaryCache.evict(user.getId());
         return toResponse(user);
     }
 
@@ -0,0 +1,59 @@
+package com.lifedata.dashboard.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@Component
+public class RollupBackfillJob {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupBackfillJob.class);
+
+    private final RollupService rollupService;
+    private final StreakService streakService;
+    private final UserAccountRepository userRepository;
+    private final DashboardSummaryCache summaryCache;
+    private final DataVersionService dataVersionService;
+
+    @Value("${app.rollup.backfill.enabled:true}")
+    private boolean enabled;
+
+    public RollupBackfillJob(RollupService rollupService, StreakService streakService, UserAccountRepository userRepository,
+            DashboardSummaryCache summaryCache, DataVersionService dataVersionService) {
+        this.rollupService = rollupService;
+        this.streakService = streakService;
+        this.userRepository = userRepository;
+        this.summaryCache = summaryCache;
+        this.dataVersionService = dataVersionService;
+    }
+
+    // Brings rollups and streaks in line with activities logged before those tables existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            log.debug("Rollup backfill disabled");
+            return;
+        }
+        int rebuilt = 0;
+        for (UserAccount user : userRepository.findAll()) {
+            try {
+                if (rollupService.backfillIfIncomplete(user) || streakService.backfillIfMissing(user)) {
+                    summaryCache.evict(user.getId());
+                    dataVersionService.bump(user.getId());
+                    rebuilt++;
+                }
+            } catch (Exception ex) {
+                log.warn("Rollup backfill failed for user {}: {}", user.getId(), ex.getMessage(), ex);
+            }
+        }
+        if (rebuilt > 0) {
+            log.info("Rollup backfill rebuilt rollups for {} users", rebuilt);
+        }
+    }
+}
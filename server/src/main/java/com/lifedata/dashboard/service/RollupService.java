@@ -0,0 +1,232 @@
+package com.lifedata.dashboard.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityDailyRollup;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityDailyRollupRepository;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.DailyActivityTotal;
+
+@Service
+public class RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupService.class);
+
+    private static final String UPSERT_ON_DUPLICATE_KEY = "insert into activity_daily_rollup "
+            + "(user_id, rollup_day, activity_type, rpg_stat, total_value, activity_count) values (?, ?, ?, ?, ?, ?) "
+            + "on duplicate key update total_value = total_value + values(total_value), "
+            + "activity_count = activity_count + values(activity_count)";
+    private static final String UPSERT_ON_CONFLICT = "insert into activity_daily_rollup "
+            + "(user_id, rollup_day, activity_type, rpg_stat, total_value, activity_count) values (?, ?, ?, ?, ?, ?) "
+            + "on conflict (user_id, rollup_day, activity_type, rpg_stat) do update set "
+            + "total_value = activity_daily_rollup.total_value + excluded.total_value, "
+            + "activity_count = activity_daily_rollup.activity_count + excluded.activity_count";
+    // Buckets are locked in this order, so two writers touching the same buckets cannot deadlock
+    private static final Comparator<RollupKey> LOCK_ORDER = Comparator.comparing(RollupKey::day)
+            .thenComparing(RollupKey::type)
+            .thenComparing(RollupKey::stat);
+
+    private final ActivityDailyRollupRepository rollupRepository;
+    private final ActivityRepository activityRepository;
+    private final StreakService streakService;
+    private final ActivityArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsertSql;
+
+    public RollupService(ActivityDailyRollupRepository rollupRepository, ActivityRepository activityRepository,
+            StreakService streakService, ActivityArchive archive, JdbcTemplate jdbcTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.activityRepository = activityRepository;
+        this.streakService = streakService;
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void record(UserAccount user, Activity activity) {
+        recordAll(user, List.of(activity));
+    }
+
+    /**
+     * Adds the activities to their day buckets with one upsert per distinct bucket. The upsert is a single statement,
+     * so concurrent first writes to a bucket add up instead of one of them failing on the unique key.
+     */
+    @Transactional
+    public void recordAll(UserAccount user, List<Activity> activities) {
+        ZoneId zone = zoneFor(user);
+        Map<RollupKey, double[]> deltas = new LinkedHashMap<>();
+        for (Activity activity : activities) {
+            RollupKey key = new RollupKey(LocalDate.ofInstant(activity.getOccurredAt(), zone), activity.getType(),
+                    effectiveStat(activity.getRpgStat(), activity.getType()));
+            double[] delta = deltas.computeIfAbsent(key, k -> new double[2]);
+            delta[0] += valueOf(activity);
+            delta[1]++;
+        }
+        List<RollupKey> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(LOCK_ORDER);
+        String sql = upsertSql();
+        if (sql == null) {
+            keys.forEach(key -> incrementOrInsert(user, key, deltas.get(key)));
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (RollupKey key : keys) {
+            double[] delta = deltas.get(key);
+            rows.add(new Object[] {user.getId(), key.day(), key.type().name(), key.stat().name(), delta[0],
+                    (long) delta[1]});
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    /**
+     * Fallback for databases without a known upsert; two first writes to the same bucket can still collide here.
+     */
+    private void incrementOrInsert(UserAccount user, RollupKey key, double[] delta) {
+        long count = (long) delta[1];
+        if (rollupRepository.increment(user, key.day(), key.type(), key.stat(), delta[0], count) == 0) {
+            rollupRepository.save(ActivityDailyRollup.builder()
+                    .user(user)
+                    .day(key.day())
+                    .type(key.type())
+                    .rpgStat(key.stat())
+                    .totalValue(delta[0])
+                    .activityCount(count)
+                    .build());
+        }
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            sql = switch (product) {
+                case "MySQL", "MariaDB", "H2" -> UPSERT_ON_DUPLICATE_KEY;
+                case "PostgreSQL" -> UPSERT_ON_CONFLICT;
+                default -> {
+                    log.warn("Unknown database {}; rollup buckets are upserted without a native statement", product);
+                    yield "";
+                }
+            };
+            upsertSql = sql;
+        }
+        return sql.isEmpty() ? null : sql;
+    }
+
+    /**
+     * Drops and recomputes every rollup row and streak for the user, e.g. after a timezone change moved the day buckets.
+     * Archived activities are bucketed from their segments.
+     */
+    @Transactional
+    public void rebuild(UserAccount user) {
+        rollupRepository.deleteByUser(user);
+        ZoneId zone = zoneFor(user);
+        Map<RollupKey, ActivityDailyRollup> buckets = new HashMap<>();
+        Instant first = activityRepository.findFirstOccurredAt(user);
+        if (first != null) {
+            Instant end = activityRepository.findLastOccurredAt(user).plusSeconds(1);
+            for (OffsetWindow window : offsetWindows(zone, first, end)) {
+                // A local day split by a DST transition shows up in two windows, hence the merge
+                for (DailyActivityTotal total : activityRepository.sumByDay(user, window.from(), window.to(), window.offsetSeconds())) {
+                    addToBucket(buckets, user, new RollupKey(total.getDay(), total.getType(), total.getRpgStat()),
+                            total.getTotal(), total.getCount());
+                }
+            }
+        }
+        archive.forEach(user, activity -> addToBucket(buckets, user,
+                new RollupKey(LocalDate.ofInstant(activity.occurredAt(), zone), activity.type(),
+                        effectiveStat(activity.rpgStat(), activity.type())),
+                activity.value() != null ? activity.value() : 1.0, 1));
+        rollupRepository.saveAll(new ArrayList<>(buckets.values()));
+        streakService.rebuild(user);
+        log.debug("Rebuilt {} rollup rows for user {}", buckets.size(), user.getId());
+    }
+
+    /**
+     * Rebuilds the user's rollups when they do not account for every stored activity.
+     */
+    @Transactional
+    public boolean backfillIfIncomplete(UserAccount user) {
+        long activities = activityRepository.countByUser(user) + archive.count(user);
+        if (rollupRepository.sumActivityCount(user) == activities) {
+            return false;
+        }
+        rebuild(user);
+        return true;
+    }
+
+    private static void addToBucket(Map<RollupKey, ActivityDailyRollup> buckets, UserAccount user, RollupKey key,
+            double total, long count) {
+        ActivityDailyRollup bucket = buckets.computeIfAbsent(key, k -> ActivityDailyRollup.builder()
+                .user(user)
+                .day(k.day())
+                .type(k.type())
+                .rpgStat(k.stat())
+                .totalValue(0.0)
+                .activityCount(0L)
+                .build());
+        bucket.setTotalValue(bucket.getTotalValue() + total);
+        bucket.setActivityCount(bucket.getActivityCount() + count);
+    }
+
+    /**
+     * Splits [from, to) into windows over which the zone keeps a constant UTC offset.
+     */
+    static List<OffsetWindow> offsetWindows(ZoneId zone, Instant from, Instant to) {
+        ZoneRules rules = zone.getRules();
+        List<OffsetWindow> windows = new ArrayList<>();
+        Instant cursor = from;
+        while (cursor.isBefore(to)) {
+            ZoneOffsetTransition next = rules.nextTransition(cursor);
+            Instant windowEnd = next == null || next.getInstant().isAfter(to) ? to : next.getInstant();
+            windows.add(new OffsetWindow(cursor, windowEnd, rules.getOffset(cursor).getTotalSeconds()));
+            cursor = windowEnd;
+        }
+        return windows;
+    }
+
+    static ZoneId zoneFor(UserAccount user) {
+        return ZoneId.of(user.getTimezone() != null ? user.getTimezone() : ZoneId.systemDefault().getId());
+    }
+
+    static RpgStat effectiveStat(RpgStat stat, ActivityType type) {
+        if (stat != null) return stat;
+        return switch (type) {
+            case GITHUB_COMMITS -> RpgStat.DEX;
+            case STUDY -> RpgStat.INT;
+            case GYM -> RpgStat.STR;
+            case LINKEDIN_POST -> RpgStat.CHA;
+            case DSA -> RpgStat.WIS;
+            case CUSTOM -> RpgStat.VIT;
+        };
+    }
+
+    private static double valueOf(Activity activity) {
+        return activity.getValue() != null ? activity.getValue() : 1.0;
+    }
+
+    record OffsetWindow(Instant from, Instant to, long offsetSeconds) {}
+
+    private record RollupKey(LocalDate day, ActivityType type, RpgStat stat) {}
+}
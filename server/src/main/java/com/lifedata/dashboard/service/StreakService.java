@@ -0,0 +1,195 @@
+package com.lifedata.dashboard.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityStreak;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityDailyRollupRepository;
+import com.lifedata.dashboard.repository.ActivityStreakRepository;
+
+@Service
+public class StreakService {
+
+    private static final Logger log = LoggerFactory.getLogger(StreakService.class);
+
+    private static final String INSERT_IGNORE = "insert ignore into activity_streaks "
+            + "(user_id, activity_type, current_length, last_active_day, longest_length) values (?, ?, 0, ?, 0)";
+    private static final String INSERT_ON_CONFLICT_NOTHING = "insert into activity_streaks "
+            + "(user_id, activity_type, current_length, last_active_day, longest_length) values (?, ?, 0, ?, 0) "
+            + "on conflict (user_id, activity_type) do nothing";
+
+    private final ActivityStreakRepository streakRepository;
+    private final ActivityDailyRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String insertSql;
+
+    public StreakService(ActivityStreakRepository streakRepository, ActivityDailyRollupRepository rollupRepository,
+            JdbcTemplate jdbcTemplate) {
+        this.streakRepository = streakRepository;
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Advances the streak for the activity's local day. Must run after the activity's rollup was recorded,
+     * since back-dated days outside the current run are resolved by replaying the rollup days.
+     */
+    @Transactional
+    public void record(UserAccount user, Activity activity) {
+        recordAll(user, List.of(activity));
+    }
+
+    /**
+     * Same as {@link #record} for many activities: each type's streak is loaded and saved once, its new days are
+     * applied in ascending order and at most one replay runs per type.
+     */
+    @Transactional
+    public void recordAll(UserAccount user, List<Activity> activities) {
+        ZoneId zone = RollupService.zoneFor(user);
+        Map<ActivityType, SortedSet<LocalDate>> daysByType = new EnumMap<>(ActivityType.class);
+        for (Activity activity : activities) {
+            daysByType.computeIfAbsent(activity.getType(), type -> new TreeSet<>())
+                    .add(LocalDate.ofInstant(activity.getOccurredAt(), zone));
+        }
+        daysByType.forEach((type, days) -> record(user, type, days));
+    }
+
+    private void record(UserAccount user, ActivityType type, SortedSet<LocalDate> days) {
+        ActivityStreak streak = lockOrCreate(user, type, days.first());
+        boolean changed = false;
+        boolean replay = false;
+        for (LocalDate day : days) {
+            if (streak == null) {
+                streak = ActivityStreak.builder()
+                        .user(user)
+                        .type(type)
+                        .currentLength(1)
+                        .lastActiveDay(day)
+                        .longestLength(1)
+                        .build();
+                changed = true;
+                continue;
+            }
+            LocalDate last = streak.getLastActiveDay();
+            LocalDate runStart = last.minusDays(streak.getCurrentLength() - 1L);
+            if (day.equals(last.plusDays(1))) {
+                streak.setCurrentLength(streak.getCurrentLength() + 1);
+                streak.setLastActiveDay(day);
+            } else if (day.isAfter(last)) {
+                streak.setCurrentLength(1);
+                streak.setLastActiveDay(day);
+            } else if (!day.isBefore(runStart)) {
+                continue;
+            } else {
+                // Back-dated outside the current run: it may extend the run backwards, bridge it to an
+                // older run, or only lengthen a past run, so replay the active days for this type.
+                replay = true;
+                continue;
+            }
+            streak.setLongestLength(Math.max(streak.getLongestLength(), streak.getCurrentLength()));
+            changed = true;
+        }
+        if (replay) {
+            replay(streak, rollupRepository.findActiveDays(user, type));
+            changed = true;
+        }
+        if (changed) {
+            streakRepository.save(streak);
+        }
+    }
+
+    /**
+     * Locks the user's streak row for the type. A missing row is first inserted as an empty run ending the day
+     * before {@code firstDay}, ignoring a row a concurrent writer inserted meanwhile, so both writers then queue on
+     * the same lock instead of one failing on uq_activity_streaks.
+     */
+    private ActivityStreak lockOrCreate(UserAccount user, ActivityType type, LocalDate firstDay) {
+        ActivityStreak streak = streakRepository.findForUpdate(user, type).orElse(null);
+        String sql = insertSql();
+        if (streak != null || sql == null) {
+            return streak;
+        }
+        jdbcTemplate.update(sql, user.getId(), type.name(), firstDay.minusDays(1));
+        return streakRepository.findForUpdate(user, type).orElse(null);
+    }
+
+    private String insertSql() {
+        String sql = insertSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            sql = switch (product) {
+                case "MySQL", "MariaDB", "H2" -> INSERT_IGNORE;
+                case "PostgreSQL" -> INSERT_ON_CONFLICT_NOTHING;
+                default -> {
+                    log.warn("Unknown database {}; first streak rows are inserted without a conflict guard", product);
+                    yield "";
+                }
+            };
+            insertSql = sql;
+        }
+        return sql.isEmpty() ? null : sql;
+    }
+
+    public List<ActivityStreak> streaks(UserAccount user) {
+        return streakRepository.findByUser(user);
+    }
+
+    /**
+     * Recomputes every streak for the user from the rollup days, e.g. after the day buckets moved.
+     */
+    @Transactional
+    public void rebuild(UserAccount user) {
+        streakRepository.deleteByUser(user);
+        for (ActivityType type : rollupRepository.findActiveTypes(user)) {
+            ActivityStreak streak = ActivityStreak.builder().user(user).type(type).longestLength(0).build();
+            replay(streak, rollupRepository.findActiveDays(user, type));
+            streakRepository.save(streak);
+        }
+    }
+
+    @Transactional
+    public boolean backfillIfMissing(UserAccount user) {
+        if (streakRepository.existsByUser(user) || rollupRepository.findActiveTypes(user).isEmpty()) {
+            return false;
+        }
+        rebuild(user);
+        return true;
+    }
+
+    /**
+     * Length of the run ending today; a run that ended before today no longer counts.
+     */
+    static int currentLength(ActivityStreak streak, LocalDate today) {
+        return today.equals(streak.getLastActiveDay()) ? streak.getCurrentLength() : 0;
+    }
+
+    private void replay(ActivityStreak streak, List<LocalDate> daysAscending) {
+        int run = 0;
+        int longest = 0;
+        LocalDate previous = null;
+        for (LocalDate day : daysAscending) {
+            run = previous != null && day.equals(previous.plusDays(1)) ? run + 1 : 1;
+            longest = Math.max(longest, run);
+            previous = day;
+        }
+        streak.setCurrentLength(run);
+        streak.setLastActiveDay(previous);
+        streak.setLongestLength(longest);
+    }
+}
@@ -0,0 +1,69 @@
+package com.lifedata.dashboard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.lifedata.dashboard.model.Role;
+import com.lifedata.dashboard.model.UserAccount;
+
+/**
+ * Shared fixtures for the integration tests: unique users, a fixed instant and a harness that starts writers
+ * together.
+ */
+public final class TestFixtures {
+
+    public static final Instant NOON = Instant.parse("2024-03-10T12:00:00Z");
+
+    private TestFixtures() {
+    }
+
+    /**
+     * A USER account with an email unique to this run; callers add what their test needs and save it.
+     */
+    public static UserAccount.UserAccountBuilder user(String prefix) {
+        return UserAccount.builder()
+                .name(prefix)
+                .email(prefix.toLowerCase() + "-" + System.nanoTime() + "@example.com")
+                .passwordHash("x")
+                .roles(Set.of(Role.USER));
+    }
+
+    /**
+     * Runs {@code task} on {@code writers} threads released at the same moment and waits for all of them.
+     */
+    public static void concurrently(int writers, Runnable task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                writes.add(CompletableFuture.runAsync(() -> {
+                    await(start);
+                    task.run();
+                }, pool));
+            }
+            start.countDown();
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.lifedata.dashboard.config;
+
+import static com.lifedata.dashboard.TestFixtures.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Session limits and their metrics: a session that promises heartbeats and goes quiet is reaped and counted, one
+ * that disconnects is not, and frames that find the outbound queue full are written by the publisher and counted.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.websocket.heartbeat-ms=200", "app.websocket.outbound-threads=1", "app.websocket.outbound-queue-capacity=1"})
+@ActiveProfiles("test")
+class WebSocketConfigTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final WebSocketStompClient stompClient = stompClient();
+
+    @AfterEach
+    void stop() {
+        stompClient.stop();
+    }
+
+    @Test
+    void silentSessionIsReapedAndCounted() throws Exception {
+        double reaped = reaped();
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        CountDownLatch closed = new CountDownLatch(1);
+        WebSocketSession session = new StandardWebSocketClient().execute(new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                frames.add(message.getPayload());
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+                closed.countDown();
+            }
+        }, new WebSocketHttpHeaders(), URI.create("ws://localhost:" + port + "/ws/websocket")).get(10, TimeUnit.SECONDS);
+
+        // Promises a heartbeat every 100 ms, then never sends another byte
+        session.sendMessage(new TextMessage("CONNECT\naccept-version:1.2\nheart-beat:100,0\nAuthorization:"
+                + bearer(user("Quiet")) + "\n\n\0"));
+
+        assertThat(frames.poll(10, TimeUnit.SECONDS)).startsWith("CONNECTED");
+        await(closed);
+        assertThat(reaped()).isEqualTo(reaped + 1);
+    }
+
+    @Test
+    void clientDisconnectIsNotCountedAsReaped() throws Exception {
+        double reaped = reaped();
+        StompSession session = connect(user("Leaving"));
+
+        session.disconnect();
+        Thread.sleep(1_000);
+
+        assertThat(reaped()).isEqualTo(reaped);
+    }
+
+    @Test
+    void framesFindingTheOutboundQueueFullAreCounted() throws Exception {
+        double saturated = meterRegistry.get("websocket.outbound.saturated").counter().count();
+        UserAccount user = user("Flooded");
+        StompSession session = connect(user);
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        session.subscribe("/user/queue/activity", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add((String) payload);
+            }
+        });
+        Thread.sleep(200);
+
+        for (int i = 0; i < 200; i++) {
+            messagingTemplate.convertAndSendToUser(user.getEmail(), "/queue/activity", "frame " + i);
+        }
+
+        // Nothing is dropped: a frame the pool cannot take is written by the publishing thread
+        for (int i = 0; i < 200; i++) {
+            assertThat(frames.poll(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThat(meterRegistry.get("websocket.outbound.saturated").counter().count()).isGreaterThan(saturated);
+        assertThat(meterRegistry.get("executor.completed").tag("name", "clientOutboundChannel").functionCounter().count())
+                .isPositive();
+        session.disconnect();
+    }
+
+    private double reaped() {
+        return meterRegistry.get("websocket.sessions.closed").tag("reason", "heartbeat").counter().count();
+    }
+
+    private StompSession connect(UserAccount user) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", bearer(user));
+        return stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+    }
+
+    private String bearer(UserAccount user) {
+        return "Bearer " + jwtService.generateToken(user.getEmail(), Map.of());
+    }
+
+    private UserAccount user(String prefix) {
+        return userRepository.save(TestFixtures.user(prefix).build());
+    }
+
+    private static WebSocketStompClient stompClient() {
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new StringMessageConverter() {
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return true;
+            }
+        });
+        client.setDefaultHeartbeat(new long[] {0, 0});
+        return client;
+    }
+}
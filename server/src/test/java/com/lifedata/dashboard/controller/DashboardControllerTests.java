@@ -0,0 +1,101 @@
+package com.lifedata.dashboard.controller;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+import com.lifedata.dashboard.service.ActivityService;
+
+/**
+ * The dashboard window: from/to bound the trends, granularity picks the bucket size, and a malformed or reversed
+ * window is a 400.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DashboardControllerTests {
+
+    private static final String GYM_PERIODS = "$.trends[?(@.label == 'GYM')].points[*].period";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private UserAccount user;
+
+    @BeforeEach
+    void activities() {
+        user = userRepository.save(TestFixtures.user("Window").timezone("UTC").build());
+        for (String day : new String[] {"2024-03-10", "2024-03-18", "2024-04-02"}) {
+            activityService.addActivity(user, new ActivityRequest(ActivityType.GYM, null, null, 1.0, null,
+                    Instant.parse(day + "T12:00:00Z"), null, null, null, null, null, null, null, null, null, null));
+        }
+    }
+
+    @Test
+    void granularityPicksTheBuckets() throws Exception {
+        mockMvc.perform(dashboard("from=2024-03-01&to=2024-04-30&granularity=month"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(GYM_PERIODS, contains("2024-03", "2024-04")));
+        mockMvc.perform(dashboard("from=2024-03-01&to=2024-04-30&granularity=Week"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(GYM_PERIODS, contains("2024-03-04", "2024-03-18", "2024-04-01")));
+    }
+
+    @Test
+    void withoutGranularityAShortWindowIsDaily() throws Exception {
+        mockMvc.perform(dashboard("from=2024-03-01&to=2024-04-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(GYM_PERIODS, contains("2024-03-10", "2024-03-18", "2024-04-02")));
+    }
+
+    @Test
+    void fromAndToBoundTheWindow() throws Exception {
+        mockMvc.perform(dashboard("from=2024-03-15&to=2024-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(GYM_PERIODS, contains("2024-03-18")))
+                .andExpect(jsonPath("$.breakdown.GYM").value(1.0));
+    }
+
+    @Test
+    void invalidWindowIsABadRequest() throws Exception {
+        for (String query : new String[] {"from=2024-04-01&to=2024-03-01", "granularity=hourly", "from=yesterday"}) {
+            mockMvc.perform(dashboard(query))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("bad_request"));
+        }
+    }
+
+    private MockHttpServletRequestBuilder dashboard(String query) {
+        return get("/api/dashboard?" + query)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateToken(user.getEmail(), Map.of()));
+    }
+}
@@ -0,0 +1,173 @@
+package com.lifedata.dashboard.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.ExportJob;
+import com.lifedata.dashboard.model.ExportStatus;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ExportJobRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+import com.lifedata.dashboard.service.ExportService;
+
+/**
+ * Range handling of completed export downloads: one satisfiable range gets 206, one past the end 416, and an
+ * If-Range that names another version of the file gets the whole file. Streamed exports are refused while every
+ * streaming slot is taken.
+ */
+@SpringBootTest(properties = "app.export.dir=target/test-exports")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportControllerTests {
+
+    private static final String CONTENT = "id,type\r\n1,GYM\r\n2,STUDY\r\n";
+    private static final String SHA256 = "0".repeat(64);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExportJobRepository jobRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private ExportService exportService;
+
+    private UserAccount user;
+    private String url;
+
+    @BeforeEach
+    void completedExport() throws Exception {
+        user = userRepository.save(TestFixtures.user("Download").build());
+        String id = UUID.randomUUID().toString();
+        Path directory = Files.createDirectories(Path.of("target/test-exports", id));
+        Files.writeString(directory.resolve("activities.csv"), CONTENT, StandardCharsets.UTF_8);
+        Instant now = Instant.now();
+        jobRepository.save(ExportJob.builder()
+                .id(id)
+                .user(user)
+                .format(ExportFormat.CSV)
+                .status(ExportStatus.COMPLETED)
+                .rowCount(2L)
+                .bytes((long) CONTENT.length())
+                .sha256(SHA256)
+                .createdAt(now)
+                .updatedAt(now)
+                .completedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .build());
+        url = "/api/export/jobs/" + id + "/download";
+    }
+
+    @Test
+    void withoutRangeTheWholeFileIsSent() throws Exception {
+        mockMvc.perform(download())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + SHA256 + "\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void singleRangeIsServedAsPartialContent() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=9-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 9-" + (CONTENT.length() - 1) + "/" + CONTENT.length()))
+                .andExpect(content().string(CONTENT.substring(9)));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=" + CONTENT.length() + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + CONTENT.length()))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void ifRangeMatchingTheChecksumKeepsTheRange() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "\"" + SHA256 + "\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("id"));
+    }
+
+    @Test
+    void staleIfRangeGetsTheWholeFile() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=0-1").header(HttpHeaders.IF_RANGE, "\"older\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void multipleRangesGetTheWholeFile() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void streamedExportIsRefusedWhileEverySlotIsTaken() throws Exception {
+        int taken = 0;
+        while (exportService.tryStartStream()) {
+            taken++;
+        }
+        try {
+            mockMvc.perform(get("/api/export/csv").header(HttpHeaders.AUTHORIZATION, bearer()))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+        } finally {
+            for (int i = 0; i < taken; i++) {
+                exportService.finishStream();
+            }
+        }
+
+        MvcResult started = mockMvc.perform(get("/api/export/csv").header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        // The finished export handed its slot back
+        assertThat(exportService.tryStartStream()).isTrue();
+        exportService.finishStream();
+    }
+
+    private String bearer() {
+        return "Bearer " + jwtService.generateToken(user.getEmail(), Map.of());
+    }
+
+    private MockHttpServletRequestBuilder download() {
+        return get(url).header(HttpHeaders.AUTHORIZATION, bearer());
+    }
+}
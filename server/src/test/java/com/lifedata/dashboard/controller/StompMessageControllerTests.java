@@ -0,0 +1,138 @@
+package com.lifedata.dashboard.controller;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityDailyRollupRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+
+/**
+ * Writes over a real STOMP session: the session keeps the account id from CONNECT, not the account, so changes
+ * to the account reach sessions that are already open.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class StompMessageControllerTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private ActivityDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private WebSocketStompClient stompClient;
+    private StompSession session;
+
+    @BeforeEach
+    void setUp() {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new StringMessageConverter() {
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return true;
+            }
+        });
+        stompClient.setDefaultHeartbeat(new long[] {0, 0});
+    }
+
+    @AfterEach
+    void disconnect() {
+        if (session != null) {
+            session.disconnect();
+        }
+        stompClient.stop();
+    }
+
+    @Test
+    void timezoneChangeAppliesToTheNextWriteOfAnOpenSession() throws Exception {
+        UserAccount user = userRepository.save(TestFixtures.user("Stomp").timezone("UTC").build());
+        connect(user);
+        BlockingQueue<String> acks = subscribe("/user/queue/acks");
+
+        send("/app/activities", activity("before"), "1");
+        assertThat(acks.poll(5, TimeUnit.SECONDS)).contains("\"ackId\":\"1\"");
+
+        // Noon UTC is already the next day at +14:00
+        UserAccount stored = userRepository.findById(user.getId()).orElseThrow();
+        stored.setTimezone("Pacific/Kiritimati");
+        userRepository.save(stored);
+
+        send("/app/activities", activity("after"), "2");
+        assertThat(acks.poll(5, TimeUnit.SECONDS)).contains("\"ackId\":\"2\"");
+
+        assertThat(rollupRepository.findActiveDays(user, ActivityType.GYM))
+                .containsExactly(LocalDate.parse("2024-03-10"), LocalDate.parse("2024-03-11"));
+    }
+
+    private void connect(UserAccount user) throws Exception {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + jwtService.generateToken(user.getEmail(), Map.of()));
+        session = stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+    }
+
+    private BlockingQueue<String> subscribe(String destination) throws Exception {
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add((String) payload);
+            }
+        });
+        // SUBSCRIBE is processed asynchronously; give the broker a moment before anything is sent
+        Thread.sleep(200);
+        return frames;
+    }
+
+    private void send(String destination, String json, String ackId) {
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.add(StompMessageController.ACK_ID_HEADER, ackId);
+        session.send(headers, json);
+    }
+
+    private static String activity(String description) {
+        return "{\"type\":\"GYM\",\"value\":1.0,\"description\":\"" + description + "\",\"occurredAt\":\"" + NOON + "\"}";
+    }
+}
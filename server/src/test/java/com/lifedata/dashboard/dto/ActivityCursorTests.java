@@ -0,0 +1,43 @@
+package com.lifedata.dashboard.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import com.lifedata.dashboard.exception.BadRequestException;
+
+class ActivityCursorTests {
+
+    @Test
+    void encodedCursorDecodesToItself() {
+        ActivityCursor cursor = new ActivityCursor(Instant.parse("2024-03-10T12:00:00.123456789Z"), 42L);
+
+        assertThat(cursor.encode()).matches("[A-Za-z0-9_-]+");
+        assertThat(ActivityCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void missingCursorMeansTheFirstPage() {
+        assertThat(ActivityCursor.decode(null)).isNull();
+        assertThat(ActivityCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    void tamperedCursorIsABadRequest() {
+        for (String token : new String[] {"not base64!", token("1.2"), token("1.2.3.4"), token("a.0.7"),
+                token("1.0.x"), token(Long.MAX_VALUE + ".0.1")}) {
+            assertThatThrownBy(() -> ActivityCursor.decode(token))
+                    .as(token)
+                    .isInstanceOf(BadRequestException.class);
+        }
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,176 @@
+package com.lifedata.dashboard.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+
+/**
+ * Runs the hot finders, captures the SQL Hibernate sends and checks H2's EXPLAIN plan for it, so a changed
+ * query or a dropped index shows up as a table scan here rather than in production latency.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.lifedata.dashboard.repository.RepositoryQueryPlanTests$CapturingInspector")
+@ActiveProfiles("test")
+class RepositoryQueryPlanTests {
+
+    private static final int SEED_ACTIVITIES = 2000;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private GoalRepository goalRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserAccount user;
+
+    /**
+     * H2 picks between indexes by cost; on empty tables every candidate costs the same, so give it a realistic
+     * spread of types and times plus fresh statistics.
+     */
+    @BeforeEach
+    void seed() {
+        user = userRepository.save(TestFixtures.user("Plan")
+                .passwordResetToken("token-" + System.nanoTime())
+                .build());
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from activities", Long.class);
+        ActivityType[] types = ActivityType.values();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= SEED_ACTIVITIES; i++) {
+            rows.add(new Object[] {maxId + i, user.getId(), types[i % types.length].name(),
+                    Timestamp.from(Instant.now().minus(i, ChronoUnit.HOURS))});
+        }
+        jdbcTemplate.batchUpdate("insert into activities (id, user_id, type, occurred_at) values (?, ?, ?, ?)", rows);
+        for (ActivityType type : types) {
+            jdbcTemplate.update("insert into goals (user_id, activity_type, name, period, target_value) values (?, ?, ?, 'WEEKLY', 10)",
+                    user.getId(), type.name(), type.name());
+        }
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void activityPagesSeekByUser() throws Exception {
+        assertSeeksOn("USER_ID", () -> activityRepository.findResponsePage(user, Limit.of(20)));
+        assertSeeksOn("USER_ID", () -> activityRepository.findResponsePageAfter(user, Instant.now(), 1L, Limit.of(20)));
+        assertSeeksOn("USER_ID", () -> activityRepository.findPoints(user));
+    }
+
+    @Test
+    void activityTypePagesAndSumsUseUserTypeOccurredIndex() throws Exception {
+        assertUsesIndex("idx_activities_user_type_occurred",
+                () -> activityRepository.findResponsePageByType(user, ActivityType.GYM, Limit.of(20)));
+        assertUsesIndex("idx_activities_user_type_occurred",
+                () -> activityRepository.findResponsePageAfterByType(user, ActivityType.GYM, Instant.now(), 1L, Limit.of(20)));
+        assertUsesIndex("idx_activities_user_type_occurred",
+                () -> activityRepository.sumValue(user, ActivityType.GYM, Instant.EPOCH, Instant.now()));
+    }
+
+    @Test
+    void streamResumeUsesUserIdIndex() throws Exception {
+        assertUsesIndex("idx_activities_user_id", () -> activityRepository.findResponsesAfterId(user, 1L, Limit.of(500)));
+    }
+
+    @Test
+    void externalKeyLookupsUseUniqueIndex() throws Exception {
+        assertUsesIndex("uq_activities_user_external_key",
+                () -> activityRepository.findExistingExternalKeys(user, List.of("github:1", "github:2")));
+    }
+
+    @Test
+    void goalLookupsUseUserTypeIndex() throws Exception {
+        assertUsesIndex("idx_goals_user_type", () -> goalRepository.findByUserAndActivityType(user, ActivityType.GYM));
+        assertSeeksOn("USER_ID", () -> goalRepository.findByUser(user));
+    }
+
+    @Test
+    void passwordResetLookupUsesTokenIndex() throws Exception {
+        assertUsesIndex("idx_users_password_reset_token", () -> userRepository.findByPasswordResetToken("token"));
+    }
+
+    private void assertUsesIndex(String index, Runnable finder) throws Exception {
+        String sql = capture(finder);
+        assertThat(explain(sql)).as("plan for %s", sql)
+                .containsIgnoringCase(index)
+                .doesNotContainIgnoringCase("tableScan");
+    }
+
+    /**
+     * For predicates on user_id alone H2 may pick the index it creates for the foreign key, which ties with the
+     * composite ones (MySQL reuses the composite instead), so only require an index seek on the column.
+     */
+    private void assertSeeksOn(String column, Runnable finder) throws Exception {
+        String sql = capture(finder);
+        assertThat(explain(sql)).as("plan for %s", sql)
+                .containsPattern("/\\* PUBLIC\\.\\w+: [^*]*\\b" + column + " = ")
+                .doesNotContainIgnoringCase("tableScan");
+    }
+
+    private String capture(Runnable finder) {
+        CapturingInspector.first = null;
+        finder.run();
+        assertThat(CapturingInspector.first).as("captured SQL").isNotNull();
+        return CapturingInspector.first;
+    }
+
+    private String explain(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            // The plan is chosen when the statement is prepared; bound values do not change it
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setObject(i, null);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        }
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        // The finder's own query; follow-up selects for eager collections come after it
+        static volatile String first;
+
+        @Override
+        public String inspect(String sql) {
+            if (first == null && sql.regionMatches(true, 0, "select", 0, 6)) {
+                first = sql;
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.lifedata.dashboard.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.service.ActivityService;
+
+/**
+ * STOMP sessions against the running server: CONNECT needs a valid bearer token, SUBSCRIBE is limited to
+ * {@code /user/...}, and a user's frames reach only that user's sessions.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class StompAuthChannelInterceptorTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final List<StompSession> sessions = new ArrayList<>();
+    private WebSocketStompClient stompClient;
+
+    @BeforeEach
+    void setUp() {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new StringMessageConverter() {
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return true;
+            }
+        });
+        stompClient.setDefaultHeartbeat(new long[] {0, 0});
+    }
+
+    @AfterEach
+    void disconnect() {
+        sessions.stream().filter(StompSession::isConnected).forEach(StompSession::disconnect);
+        stompClient.stop();
+    }
+
+    @Test
+    void connectWithoutATokenIsRejected() {
+        assertNeverConnects(connect(null));
+    }
+
+    @Test
+    void connectWithAnInvalidTokenIsRejected() {
+        String token = jwtService.generateToken(user("Forged").getEmail(), Map.of());
+
+        assertNeverConnects(connect("Bearer " + token.substring(0, token.length() - 4) + "AAAA"));
+    }
+
+    @Test
+    void subscribeOutsideUserDestinationsIsRefused() throws Exception {
+        StompSession session = connect(bearer(user("Subscriber"))).get(10, TimeUnit.SECONDS);
+        sessions.add(session);
+
+        BlockingQueue<String> frames = subscribe(session, "/queue/activity");
+        messagingTemplate.convertAndSend("/queue/activity", "broadcast");
+
+        assertThat(frames.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void usersOnlyReceiveTheirOwnFrames() throws Exception {
+        UserAccount alice = user("Alice");
+        UserAccount bob = user("Bob");
+        StompSession aliceSession = connect(bearer(alice)).get(10, TimeUnit.SECONDS);
+        StompSession bobSession = connect(bearer(bob)).get(10, TimeUnit.SECONDS);
+        sessions.add(aliceSession);
+        sessions.add(bobSession);
+        BlockingQueue<String> aliceOwn = subscribe(aliceSession, "/user/queue/activity");
+        // Naming another user in the destination still resolves to the subscriber's own session
+        BlockingQueue<String> aliceNamingBob = subscribe(aliceSession, "/user/" + bob.getEmail() + "/queue/activity");
+        BlockingQueue<String> bobOwn = subscribe(bobSession, "/user/queue/activity");
+
+        activityService.addActivity(bob, new ActivityRequest(ActivityType.GYM, null, "bob only", 1.0, null, null,
+                null, null, null, null, null, null, null, null, null, null));
+
+        assertThat(bobOwn.poll(5, TimeUnit.SECONDS)).contains("bob only");
+        assertThat(aliceOwn.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(aliceNamingBob.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private static void assertNeverConnects(CompletableFuture<StompSession> session) {
+        // The CONNECT is refused before the broker sees it, so no CONNECTED frame ever comes back
+        assertThatThrownBy(() -> session.get(2, TimeUnit.SECONDS))
+                .isInstanceOfAny(TimeoutException.class, ExecutionException.class);
+    }
+
+    private CompletableFuture<StompSession> connect(String authorization) {
+        StompHeaders connectHeaders = new StompHeaders();
+        if (authorization != null) {
+            connectHeaders.add("Authorization", authorization);
+        }
+        return stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {});
+    }
+
+    private BlockingQueue<String> subscribe(StompSession session, String destination) throws InterruptedException {
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add((String) payload);
+            }
+        });
+        // SUBSCRIBE is processed asynchronously; give the broker a moment before anything is published
+        Thread.sleep(200);
+        return frames;
+    }
+
+    private String bearer(UserAccount user) {
+        return "Bearer " + jwtService.generateToken(user.getEmail(), Map.of());
+    }
+
+    private UserAccount user(String prefix) {
+        return userRepository.save(TestFixtures.user(prefix).build());
+    }
+}
@@ -0,0 +1,148 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static com.lifedata.dashboard.TestFixtures.concurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivitySegment;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.ArchivedActivityKey;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.ActivitySegmentRepository;
+import com.lifedata.dashboard.repository.ArchivedActivityKeyRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@SpringBootTest(properties = {"app.activity.archive.dir=target/test-archive", "app.activity.archive.batch-size=3"})
+@ActiveProfiles("test")
+class ActivityArchiveJobTests {
+
+    @Autowired
+    private ActivityArchiveJob archiveJob;
+
+    @Autowired
+    private ActivityArchive archive;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private ActivitySegmentRepository segmentRepository;
+
+    @Autowired
+    private ArchivedActivityKeyRepository keyRepository;
+
+    @Test
+    void concurrentRunsMoveEachActivityOnce() throws Exception {
+        UserAccount user = userRepository.save(TestFixtures.user("Archive").timezone("UTC").build());
+        List<Activity> activities = new ArrayList<>();
+        for (int day = 0; day < 20; day++) {
+            activities.add(Activity.builder().user(user).type(ActivityType.GYM).value(1.0)
+                    .occurredAt(NOON.plus(Duration.ofDays(day))).build());
+        }
+        activityRepository.saveAll(activities);
+
+        concurrently(2, () -> archiveJob.archive(user, NOON.plus(Duration.ofDays(365))));
+
+        List<Long> archivedIds = new ArrayList<>();
+        archive.forEach(user, (ActivityResponse activity) -> archivedIds.add(activity.id()));
+        assertThat(archivedIds).doesNotHaveDuplicates().hasSize(20);
+        assertThat(archive.count(user)).isEqualTo(20);
+        assertThat(activityRepository.countByUser(user)).isZero();
+    }
+
+    @Test
+    void archivedExternalKeyStillDeduplicates() {
+        UserAccount user = userRepository.save(TestFixtures.user("ArchiveKey").timezone("UTC").build());
+        ActivityRequest request = new ActivityRequest(ActivityType.GITHUB_COMMITS, null, "push", 1.0, null, NOON,
+                null, null, null, null, null, null, null, null, null, "github:push:7");
+        ActivityResponse stored = activityService.addActivity(user, request);
+
+        archiveJob.archive(user, NOON.plus(Duration.ofDays(1)));
+
+        assertThat(activityService.addActivity(user, request).id()).isEqualTo(stored.id());
+        assertThat(activityService.addActivities(user, List.of(request)).count()).isZero();
+        assertThat(activityRepository.countByUser(user)).isZero();
+    }
+
+    @Test
+    void keyedLookupReadsOnlyItsAppendAndIgnoresAnUncommittedTail() throws Exception {
+        UserAccount user = userRepository.save(TestFixtures.user("ArchiveOffset").timezone("UTC").build());
+        List<ActivityResponse> stored = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            stored.add(activityService.addActivity(user, new ActivityRequest(ActivityType.GYM, null, "set " + day, 1.0,
+                    null, NOON.plus(Duration.ofHours(day)), null, null, null, null, null, null, null, null, null,
+                    "gym:" + day)));
+        }
+
+        // Batches of three: the month's segment gets three gzip members
+        archiveJob.archive(user, NOON.plus(Duration.ofDays(1)));
+
+        ArchivedActivityKey last = keyRepository.findByUserAndExternalKey(user, "gym:6").orElseThrow();
+        assertThat(last.getSegmentOffset()).isPositive();
+        assertThat(keyRepository.findByUserAndExternalKey(user, "gym:0").orElseThrow().getSegmentOffset()).isZero();
+
+        // A crashed append leaves bytes past the committed length
+        ActivitySegment segment = segmentRepository.findByUserAndMonth(user, ActivityArchive.monthOf(NOON)).orElseThrow();
+        Files.write(Path.of("target/test-archive").resolve(segment.getPath()), new byte[] {0x1f, (byte) 0x8b, 8, 0, 1},
+                StandardOpenOption.APPEND);
+
+        assertThat(archive.findByExternalKey(user, "gym:6")).contains(stored.get(6));
+        assertThat(archive.findByExternalKey(user, "gym:4")).contains(stored.get(4));
+        List<Long> archivedIds = new ArrayList<>();
+        archive.forEach(user, (ActivityResponse activity) -> archivedIds.add(activity.id()));
+        assertThat(archivedIds).containsExactlyElementsOf(stored.stream().map(ActivityResponse::id).toList());
+        assertThat(archive.sumValue(user, ActivityType.GYM, NOON, NOON.plus(Duration.ofHours(2)))).isEqualTo(3.0);
+    }
+
+    @Test
+    void pagesRunFromStoredIntoArchivedRowsAndInterleaveBackdatedWrites() {
+        UserAccount user = userRepository.save(TestFixtures.user("ArchivePages").timezone("UTC").build());
+        List<ActivityResponse> written = new ArrayList<>();
+        for (int day = 0; day < 6; day++) {
+            written.add(activityService.addActivity(user, gym(NOON.plus(Duration.ofDays(day)))));
+        }
+        archiveJob.archive(user, NOON.plus(Duration.ofDays(3)));
+        // Stored, yet older than the newest archived row
+        written.add(activityService.addActivity(user, gym(NOON.plus(Duration.ofHours(36)))));
+        assertThat(activityRepository.countByUser(user)).isEqualTo(4);
+
+        List<Long> newestFirst = written.stream().sorted(ActivityArchive.NEWEST_FIRST).map(ActivityResponse::id).toList();
+        for (int size = 1; size <= 4; size++) {
+            int limit = size;
+            assertThat(ActivityServiceTests.pageIds(cursor -> activityService.feed(user, limit, cursor)))
+                    .as("page size %d", size)
+                    .containsExactlyElementsOf(newestFirst);
+        }
+        assertThat(ActivityServiceTests.pageIds(cursor -> activityService.byType(user, ActivityType.STUDY, 2, cursor)))
+                .isEmpty();
+    }
+
+    private static ActivityRequest gym(Instant occurredAt) {
+        return new ActivityRequest(ActivityType.GYM, null, null, 1.0, null, occurredAt, null, null, null, null, null,
+                null, null, null, null, null);
+    }
+}
@@ -0,0 +1,178 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+
+/**
+ * Server-sent event streams read over HTTP: replay after Last-Event-ID, the reset that replaces a replay too long
+ * or a queue that overflowed, and replayed ids that a racing live event must not repeat.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "app.activity.stream.queue-capacity=4")
+@ActiveProfiles("test")
+class ActivityEventStreamTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ActivityEventStream eventStream;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<CompletableFuture<?>> open = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        open.forEach(request -> request.cancel(true));
+    }
+
+    @Test
+    void reconnectReplaysWhatWasStoredAfterTheLastEventId() throws Exception {
+        UserAccount user = user();
+        List<Long> ids = store(user, 3);
+
+        BlockingQueue<Event> events = connect(user, ids.get(0));
+
+        assertThat(next(events).id()).isEqualTo(String.valueOf(ids.get(1)));
+        assertThat(next(events).id()).isEqualTo(String.valueOf(ids.get(2)));
+    }
+
+    @Test
+    void replayLongerThanTheLimitIsAReset() throws Exception {
+        UserAccount user = user();
+        List<Long> ids = store(user, ActivityEventStream.MAX_REPLAY + 2);
+
+        BlockingQueue<Event> events = connect(user, ids.get(0));
+
+        assertThat(next(events).name()).isEqualTo("reset");
+    }
+
+    @Test
+    void liveEventAlreadyReplayedIsNotSentAgain() throws Exception {
+        UserAccount user = user();
+        List<Long> ids = store(user, 2);
+        BlockingQueue<Event> events = connect(user, ids.get(0));
+        assertThat(next(events).id()).isEqualTo(String.valueOf(ids.get(1)));
+
+        eventStream.publish(user.getEmail(), List.of(response(ids.get(1)), response(ids.get(1) + 1), response(ids.get(1))));
+
+        // The replayed id is skipped once; after a live id past the replay, ids are no longer filtered
+        assertThat(next(events).id()).isEqualTo(String.valueOf(ids.get(1) + 1));
+        assertThat(next(events).id()).isEqualTo(String.valueOf(ids.get(1)));
+    }
+
+    @Test
+    void overflowingQueueIsShedForAReset() throws Exception {
+        UserAccount user = user();
+        BlockingQueue<Event> events = connect(user, null);
+
+        eventStream.publish(user.getEmail(), List.of(response(1), response(2), response(3), response(4), response(5)));
+
+        assertThat(next(events).name()).isEqualTo("reset");
+        assertThat(events.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private BlockingQueue<Event> connect(UserAccount user, Long lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/activities/stream"))
+                .header("Authorization", "Bearer " + jwtService.generateToken(user.getEmail(), Map.of()))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        BlockingQueue<Boolean> connected = new LinkedBlockingQueue<>();
+        CompletableFuture<HttpResponse<Stream<String>>> response = client.sendAsync(request.build(),
+                HttpResponse.BodyHandlers.ofLines());
+        open.add(response);
+        open.add(response.thenAcceptAsync(lines -> parse(lines.body(), connected, events)));
+        assertThat(connected.poll(10, TimeUnit.SECONDS)).isTrue();
+        return events;
+    }
+
+    private static void parse(Stream<String> lines, BlockingQueue<Boolean> connected, BlockingQueue<Event> events) {
+        String[] current = new String[3];
+        lines.forEach(line -> {
+            if (line.startsWith(":connected")) {
+                connected.add(true);
+            } else if (line.startsWith("id:")) {
+                current[0] = line.substring(3);
+            } else if (line.startsWith("event:")) {
+                current[1] = line.substring(6);
+            } else if (line.startsWith("data:")) {
+                current[2] = line.substring(5);
+            } else if (line.isEmpty() && current[1] != null) {
+                events.add(new Event(current[0], current[1], current[2]));
+                current[0] = null;
+                current[1] = null;
+                current[2] = null;
+            }
+        });
+    }
+
+    private static Event next(BlockingQueue<Event> events) throws InterruptedException {
+        Event event = events.poll(5, TimeUnit.SECONDS);
+        assertThat(event).isNotNull();
+        return event;
+    }
+
+    private UserAccount user() {
+        return userRepository.save(TestFixtures.user("Stream").timezone("UTC").build());
+    }
+
+    private List<Long> store(UserAccount user, int count) {
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            activities.add(Activity.builder().user(user).type(ActivityType.GYM).value(1.0)
+                    .occurredAt(NOON.plus(Duration.ofMinutes(i))).build());
+        }
+        activityRepository.saveAll(activities);
+        return activityRepository.findResponsesAfterId(user, 0, Limit.of(count)).stream().map(ActivityResponse::id).toList();
+    }
+
+    private static ActivityResponse response(long id) {
+        return new ActivityResponse(id, ActivityType.GYM, null, "live", 1.0, null, NOON, null, null, null, null, null,
+                null, null, null, null);
+    }
+
+    private record Event(String id, String name, String data) {}
+}
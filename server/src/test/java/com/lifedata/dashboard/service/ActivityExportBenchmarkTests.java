@@ -0,0 +1,123 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+/**
+ * Opt-in benchmark, run with {@code mvn test -Dtest=ActivityExportBenchmarkTests -Dbenchmarks=true}.
+ * Exports 200k seeded activities to a discarding stream in each format and logs rows per second, bytes written
+ * and bytes allocated per row; the allocation rate staying flat as rows grow is what keeps the heap flat.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ActivityExportBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityExportBenchmarkTests.class);
+    private static final int ROWS = 200_000;
+    private static final int INSERT_BATCH = 5_000;
+    private static final int RUNS = 3;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportThroughput() throws IOException {
+        UserAccount user = seed();
+        export(user, ExportFormat.CSV, false);
+        for (ExportFormat format : ExportFormat.values()) {
+            for (boolean gzip : new boolean[] {false, true}) {
+                long bestNanos = Long.MAX_VALUE;
+                CountingOutputStream out = null;
+                long allocated = 0;
+                for (int i = 0; i < RUNS; i++) {
+                    long bytesBefore = allocatedBytes();
+                    long start = System.nanoTime();
+                    out = export(user, format, gzip);
+                    bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+                    allocated = allocatedBytes() - bytesBefore;
+                }
+                log.info("{}{}: {} rows/s, {} bytes written, {} bytes allocated/row", format, gzip ? "+gzip" : "",
+                        (long) (ROWS / (bestNanos / 1e9)), out.count, allocated / ROWS);
+            }
+        }
+    }
+
+    private CountingOutputStream export(UserAccount user, ExportFormat format, boolean gzip) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        if (gzip) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+            assertThat(exportService.export(user, format, compressed)).isEqualTo(ROWS);
+            compressed.finish();
+        } else {
+            assertThat(exportService.export(user, format, out)).isEqualTo(ROWS);
+        }
+        return out;
+    }
+
+    private UserAccount seed() {
+        UserAccount user = userRepository.save(TestFixtures.user("Export-Bench").name("Bench").build());
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from activities", Long.class);
+        ActivityType[] types = ActivityType.values();
+        Instant now = Instant.now();
+        for (int from = 1; from <= ROWS; from += INSERT_BATCH) {
+            List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+            for (int i = from; i < from + INSERT_BATCH && i <= ROWS; i++) {
+                rows.add(new Object[] {maxId + i, user.getId(), types[i % types.length].name(), "Activity, number " + i,
+                        (double) (i % 7), "github", Timestamp.from(now.minus(i, ChronoUnit.MINUTES))});
+            }
+            jdbcTemplate.batchUpdate("insert into activities (id, user_id, type, description, metric_value, platform, "
+                    + "occurred_at) values (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+        return user;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
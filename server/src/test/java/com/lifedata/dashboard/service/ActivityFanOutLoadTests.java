@@ -0,0 +1,214 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+
+/**
+ * Opt-in load test, run with {@code mvn test -Dtest=ActivityFanOutLoadTests -Dbenchmarks=true}.
+ * Opens 5k authenticated STOMP sessions (5 per user), publishes activity updates to random owners and logs the
+ * CPU spent by the broker (routing on the publishing thread plus encoding and writing on the outbound channel)
+ * and the bytes sent, next to what the former global topic would have delivered for the same writes.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ActivityFanOutLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityFanOutLoadTests.class);
+    private static final int USERS = 1_000;
+    private static final int SESSIONS_PER_USER = 5;
+    private static final int SESSIONS = USERS * SESSIONS_PER_USER;
+    private static final int WRITES = 20_000;
+    private static final int CONNECT_WAVE = 250;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    private final List<StompSession> sessions = new ArrayList<>();
+    private WebSocketStompClient stompClient;
+
+    @AfterEach
+    void disconnect() {
+        sessions.forEach(StompSession::disconnect);
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    void perUserFanOut() throws Exception {
+        List<UserAccount> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(TestFixtures.user("Fanout-" + i).name("Fan " + i).build()));
+        }
+        AtomicLong received = new AtomicLong();
+        connect(users, received);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (userRegistry.findSubscriptions(subscription -> true).size() < SESSIONS && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(userRegistry.findSubscriptions(subscription -> true)).hasSize(SESSIONS);
+
+        AtomicLong outboundFrames = new AtomicLong();
+        AtomicLong outboundBytes = new AtomicLong();
+        ((AbstractSubscribableChannel) clientOutboundChannel).addInterceptor(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                        && message.getPayload() instanceof byte[] payload) {
+                    outboundFrames.incrementAndGet();
+                    outboundBytes.addAndGet(payload.length);
+                }
+                return message;
+            }
+        });
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> outboundCpuBefore = outboundThreadCpu(threads);
+        long publishCpuBefore = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < WRITES; i++) {
+            UserAccount owner = users.get((i * 7919) % USERS);
+            messagingTemplate.convertAndSendToUser(owner.getEmail(), "/queue/activity", activity(i));
+        }
+        long publishCpu = threads.getCurrentThreadCpuTime() - publishCpuBefore;
+        long expected = (long) WRITES * SESSIONS_PER_USER;
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (received.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long elapsed = System.nanoTime() - start;
+        long outboundCpu = 0;
+        for (Map.Entry<Long, Long> entry : outboundThreadCpu(threads).entrySet()) {
+            outboundCpu += entry.getValue() - outboundCpuBefore.getOrDefault(entry.getKey(), 0L);
+        }
+
+        assertThat(received.get()).isEqualTo(expected);
+        assertThat(outboundFrames.get()).isEqualTo(expected);
+        long bytesPerFrame = outboundBytes.get() / outboundFrames.get();
+        log.info("{} sessions, {} writes in {} ms: {} frames, {} payload bytes out; broker CPU {} ms "
+                        + "(routing {} ms, outbound {} ms), {} us/write",
+                SESSIONS, WRITES, TimeUnit.NANOSECONDS.toMillis(elapsed), outboundFrames.get(), outboundBytes.get(),
+                TimeUnit.NANOSECONDS.toMillis(publishCpu + outboundCpu), TimeUnit.NANOSECONDS.toMillis(publishCpu),
+                TimeUnit.NANOSECONDS.toMillis(outboundCpu), (publishCpu + outboundCpu) / 1_000 / WRITES);
+        log.info("A global topic would have sent {} frames, {} payload bytes for the same writes",
+                (long) WRITES * SESSIONS, (long) WRITES * SESSIONS * bytesPerFrame);
+    }
+
+    private void connect(List<UserAccount> users, AtomicLong received) throws Exception {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        // Raw payload bytes whatever the content type, so the client side does not spend time parsing JSON
+        stompClient.setMessageConverter(new ByteArrayMessageConverter() {
+            @Override
+            protected boolean supportsMimeType(MessageHeaders headers) {
+                return true;
+            }
+        });
+        stompClient.setDefaultHeartbeat(new long[] {0, 0});
+        String url = "ws://localhost:" + port + "/ws/websocket";
+        StompFrameHandler counter = new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.incrementAndGet();
+            }
+        };
+        for (int from = 0; from < SESSIONS; from += CONNECT_WAVE) {
+            List<CompletableFuture<StompSession>> wave = new ArrayList<>();
+            for (int i = from; i < from + CONNECT_WAVE && i < SESSIONS; i++) {
+                StompHeaders connectHeaders = new StompHeaders();
+                connectHeaders.add("Authorization",
+                        "Bearer " + jwtService.generateToken(users.get(i % USERS).getEmail(), Map.of()));
+                wave.add(stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders,
+                        new StompSessionHandlerAdapter() {}));
+            }
+            for (CompletableFuture<StompSession> future : wave) {
+                StompSession session = future.get(30, TimeUnit.SECONDS);
+                session.subscribe("/user/queue/activity", counter);
+                sessions.add(session);
+            }
+        }
+    }
+
+    private static Map<Long, Long> outboundThreadCpu(ThreadMXBean threads) {
+        Map<Long, Long> cpu = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith("clientOutboundChannel")) {
+                cpu.put(info.getThreadId(), threads.getThreadCpuTime(info.getThreadId()));
+            }
+        }
+        return cpu;
+    }
+
+    private static ActivityResponse activity(int i) {
+        return new ActivityResponse((long) i, ActivityType.GITHUB_COMMITS, null, "Pushed 3 commits to main", 3.0,
+                null, Instant.now(), "github", "life-dashboard", null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,203 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static com.lifedata.dashboard.TestFixtures.await;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityPoint;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ActivityHotTierTests {
+
+    private final ActivityRepository activityRepository = mock(ActivityRepository.class);
+    private final ActivityArchive archive = mock(ActivityArchive.class);
+    private final UserAccountRepository userRepository = mock(UserAccountRepository.class);
+    private final ActivityHotTier hotTier = new ActivityHotTier(activityRepository, archive, userRepository,
+            new SimpleMeterRegistry(), true, 1, 1);
+    private final UserAccount user = UserAccount.builder().id(1L).timezone("UTC").dataVersion(0L).build();
+
+    @BeforeEach
+    void version() {
+        when(userRepository.findDataVersion(user.getId())).thenReturn(0L);
+    }
+
+    @AfterEach
+    void shutdown() {
+        hotTier.destroy();
+    }
+
+    @Test
+    void missAnswersNullAndLoadsInTheBackground() throws Exception {
+        when(activityRepository.countByUser(user)).thenReturn(1L);
+        when(activityRepository.findPoints(user)).thenReturn(List.of(point(NOON)));
+
+        assertThat(hotTier.dayRange(user)).isNull();
+        awaitResident();
+
+        assertThat(hotTier.dayRange(user)).containsExactly(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 10));
+    }
+
+    @Test
+    void userOverTheBudgetIsCountedOnceAndNeverScanned() {
+        when(activityRepository.countByUser(user)).thenReturn(10_000_000L);
+
+        assertThat(hotTier.dayRange(user)).isNull();
+        verify(activityRepository, timeout(5_000)).countByUser(user);
+        verify(activityRepository, after(200).never()).findPoints(any());
+        assertThat(hotTier.dayRange(user)).isNull();
+
+        verify(activityRepository, after(200).times(1)).countByUser(user);
+        assertThat(hotTier.size()).isZero();
+    }
+
+    @Test
+    void seriesOlderThanTheReadersVersionIsReloaded() throws Exception {
+        when(activityRepository.findPoints(user)).thenReturn(List.of(point(NOON)));
+        hotTier.dayRange(user);
+        awaitResident();
+
+        // Another replica wrote; only the version tells this node
+        UserAccount newer = UserAccount.builder().id(1L).timezone("UTC").dataVersion(1L).build();
+        when(userRepository.findDataVersion(user.getId())).thenReturn(1L);
+        when(activityRepository.findPoints(newer)).thenReturn(List.of(point(NOON), point(NOON.plusSeconds(86_400))));
+
+        assertThat(hotTier.dayRange(newer)).isNull();
+        awaitResident();
+        assertThat(hotTier.dayRange(newer)).containsExactly(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 11));
+    }
+
+    @Test
+    void writeIsAppendedOnlyOnceItCommits() throws Exception {
+        when(activityRepository.findPoints(user)).thenReturn(List.of(point(NOON)));
+        hotTier.dayRange(user);
+        awaitResident();
+        Activity next = Activity.builder().type(ActivityType.GYM).value(1.0)
+                .occurredAt(NOON.plusSeconds(86_400)).build();
+
+        List<TransactionSynchronization> rolledBack = inTransaction(() -> hotTier.append(user, next, 1L));
+        rolledBack.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertThat(hotTier.dayRange(user)).containsExactly(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 10));
+
+        List<TransactionSynchronization> committed = inTransaction(() -> hotTier.append(user, next, 1L));
+        assertThat(hotTier.dayRange(user)).containsExactly(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 10));
+        committed.forEach(TransactionSynchronization::afterCommit);
+        assertThat(hotTier.dayRange(user)).containsExactly(LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 11));
+    }
+
+    @Test
+    void commitAfterAMissedVersionDropsTheSeries() throws Exception {
+        when(activityRepository.findPoints(user)).thenReturn(List.of(point(NOON)));
+        hotTier.dayRange(user);
+        awaitResident();
+
+        // Version 1 was written elsewhere, so appending version 2 alone would leave a hole
+        hotTier.append(user, Activity.builder().type(ActivityType.GYM).occurredAt(NOON).build(), 2L);
+
+        assertThat(hotTier.size()).isZero();
+    }
+
+    @Test
+    void writeToAnotherUserDoesNotDiscardALoad() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(activityRepository.findPoints(user)).thenAnswer(invocation -> {
+            reading.countDown();
+            await(release);
+            return List.of(point(NOON));
+        });
+
+        hotTier.dayRange(user);
+        await(reading);
+        hotTier.evict(2L);
+        release.countDown();
+
+        awaitResident();
+    }
+
+    @Test
+    void writeToTheSameUserDuringALoadKeepsItOut() {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(activityRepository.findPoints(user)).thenAnswer(invocation -> {
+            reading.countDown();
+            await(release);
+            return List.of(point(NOON));
+        });
+
+        hotTier.dayRange(user);
+        await(reading);
+        hotTier.evict(user.getId());
+        release.countDown();
+
+        verify(activityRepository, after(200)).findPoints(user);
+        assertThat(hotTier.size()).isZero();
+    }
+
+    private void awaitResident() throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (hotTier.size() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(hotTier.size()).isEqualTo(1);
+    }
+
+    private static List<TransactionSynchronization> inTransaction(Runnable write) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            write.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static ActivityPoint point(Instant occurredAt) {
+        return new ActivityPoint() {
+            @Override
+            public Instant getOccurredAt() {
+                return occurredAt;
+            }
+
+            @Override
+            public ActivityType getType() {
+                return ActivityType.GYM;
+            }
+
+            @Override
+            public RpgStat getRpgStat() {
+                return RpgStat.STR;
+            }
+
+            @Override
+            public Double getTotal() {
+                return 1.0;
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.lifedata.dashboard.dto.ActivityImportError;
+import com.lifedata.dashboard.dto.ActivityImportResponse;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.UserAccount;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+class ActivityImportServiceTests {
+
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final ActivityImportService importService = new ActivityImportService(activityService,
+            JsonMapper.builder().findAndAddModules().build(), Validation.buildDefaultValidatorFactory().getValidator(),
+            new SimpleMeterRegistry(), 10);
+    private final UserAccount user = UserAccount.builder().id(1L).timezone("UTC").dataVersion(0L).build();
+
+    @Test
+    void quotedCsvCellsAreImported() throws Exception {
+        when(activityService.importBatch(eq(user), any())).thenAnswer(call -> call.<List<?>>getArgument(1).size());
+
+        ActivityImportResponse response = importCsv("""
+                type,description,value\r
+                DSA,"fixed ""the"" bug, finally",2\r
+                STUDY,"two\r
+                lines",1\r
+                """);
+
+        assertThat(response.rows()).isEqualTo(2);
+        assertThat(response.imported()).isEqualTo(2);
+        verify(activityService).importBatch(eq(user), argThat(batch -> batch.size() == 2
+                && batch.get(0).description().equals("fixed \"the\" bug, finally")
+                && batch.get(1).description().equals("two\r\nlines")));
+        verify(activityService).finishImport(user);
+    }
+
+    @Test
+    void malformedRecordStopsTheImportAfterWhatCameBefore() throws Exception {
+        when(activityService.importBatch(eq(user), any())).thenAnswer(call -> call.<List<?>>getArgument(1).size());
+        String tooLong = "x".repeat(ActivityImportService.MAX_RECORD_CHARS);
+
+        ActivityImportResponse response = importCsv("type,description\nDSA,ok\nDSA," + tooLong + "\nDSA,late\n");
+
+        assertThat(response.rows()).isEqualTo(2);
+        assertThat(response.imported()).isEqualTo(1);
+        assertThat(response.errors()).singleElement().satisfies(error -> {
+            assertThat(error.row()).isEqualTo(2);
+            assertThat(error.message()).contains("longer than").contains("import stopped here");
+        });
+    }
+
+    @Test
+    void rejectedBatchIsRetriedRowByRow() throws Exception {
+        when(activityService.importBatch(eq(user), any())).thenAnswer(call -> {
+            List<ActivityRequest> batch = call.getArgument(1);
+            if (batch.stream().anyMatch(request -> "bad".equals(request.description()))) {
+                throw new DataIntegrityViolationException("rejected");
+            }
+            return batch.size();
+        });
+
+        ActivityImportResponse response = importCsv("type,description\nDSA,one\nDSA,bad\nDSA,three\n");
+
+        assertThat(response.rows()).isEqualTo(3);
+        assertThat(response.imported()).isEqualTo(2);
+        assertThat(response.rejected()).isEqualTo(1);
+        assertThat(response.errors()).extracting(ActivityImportError::row).containsExactly(2L);
+        // The whole batch once, then each of its rows alone
+        verify(activityService, times(4)).importBatch(eq(user), any());
+    }
+
+    @Test
+    void ndjsonLinesMayEndInCrlf() throws Exception {
+        when(activityService.importBatch(eq(user), any())).thenAnswer(call -> call.<List<?>>getArgument(1).size());
+
+        ActivityImportResponse response = importService.importNdjson(user, body(
+                "{\"type\":\"DSA\",\"value\":1}\r\n\r\n{\"type\":\"STUDY\"}"));
+
+        assertThat(response.rows()).isEqualTo(2);
+        assertThat(response.imported()).isEqualTo(2);
+    }
+
+    private ActivityImportResponse importCsv(String csv) throws Exception {
+        return importService.importCsv(user, body(csv));
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,129 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.lifedata.dashboard.dto.ActivityBatchResponse;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ActivityIngestQueueTests {
+
+    private final ActivityService activityService = mock(ActivityService.class);
+    private final UserAccountRepository userRepository = mock(UserAccountRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserAccount user = UserAccount.builder().id(1L).build();
+    private ActivityIngestQueue queue;
+
+    @TempDir
+    Path spillDirectory;
+
+    @AfterEach
+    void stop() {
+        queue.stop();
+    }
+
+    @Test
+    void transientFailureIsRetriedInsteadOfDropped() {
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(activityService.addActivities(any(), anyList()))
+                .thenThrow(new CannotAcquireLockException("lock wait timeout"))
+                .thenReturn(new ActivityBatchResponse(1, List.of()));
+        start(3);
+
+        queue.submit(user, request());
+
+        verify(activityService, timeout(5_000).times(2)).addActivities(any(), anyList());
+        assertThat(meterRegistry.counter("activity.ingest.retried").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("activity.ingest.failed").count()).isZero();
+    }
+
+    @Test
+    void failedUserLookupKeepsTheGroup() {
+        when(userRepository.findAllById(any()))
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenReturn(List.of(user));
+        when(activityService.addActivities(any(), anyList())).thenReturn(new ActivityBatchResponse(1, List.of()));
+        start(3);
+
+        queue.submit(user, request());
+
+        verify(activityService, timeout(5_000)).addActivities(any(), anyList());
+        assertThat(meterRegistry.counter("activity.ingest.failed").count()).isZero();
+    }
+
+    @Test
+    void constraintViolationDropsOnlyThatRow() throws Exception {
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(activityService.addActivities(any(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        start(3);
+
+        queue.submit(user, request());
+
+        awaitCount("activity.ingest.failed");
+        // Group, per user, per row
+        verify(activityService, times(3)).addActivities(any(), anyList());
+        assertThat(meterRegistry.counter("activity.ingest.retried").count()).isZero();
+    }
+
+    @Test
+    void transientFailurePastTheLastAttemptIsSpilled() throws Exception {
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(activityService.addActivities(any(), anyList()))
+                .thenThrow(new CannotAcquireLockException("lock wait timeout"));
+        start(2);
+
+        queue.submit(user, request());
+
+        awaitCount("activity.ingest.spilled");
+        verify(activityService, times(2)).addActivities(any(), anyList());
+        try (var files = Files.list(spillDirectory)) {
+            assertThat(files).hasSize(1);
+        }
+        assertThat(meterRegistry.counter("activity.ingest.failed").count()).isZero();
+    }
+
+    private void awaitCount(String counter) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (meterRegistry.counter(counter).count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.counter(counter).count()).isEqualTo(1);
+    }
+
+    private void start(int retryAttempts) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        queue = new ActivityIngestQueue(activityService, userRepository, mock(PlatformTransactionManager.class),
+                objectMapper, meterRegistry, true, 100, 1, 10, 1_000, retryAttempts, spillDirectory.toString());
+        queue.start();
+    }
+
+    private static ActivityRequest request() {
+        return new ActivityRequest(ActivityType.GYM, null, "queued", 1.0, null, null, null, null, null, null,
+                null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,126 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Opt-in benchmark, run with {@code mvn test -Dtest=ActivityProjectionBenchmarkTests -Dbenchmarks=true}.
+ * Reads the same 10k activities as managed entities mapped to responses (the former list path) and through the
+ * constructor-expression projection in a read-only transaction, and logs allocated bytes per row and latency.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ActivityProjectionBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityProjectionBenchmarkTests.class);
+    private static final int ROWS = 10_000;
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 30;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void projectionAllocatesLessThanEntityMapping() {
+        UserAccount user = seed();
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Supplier<List<ActivityResponse>> entities = () -> readWrite.execute(status -> entityManager
+                .createQuery("select a from Activity a where a.user = :user order by a.occurredAt desc, a.id desc", Activity.class)
+                .setParameter("user", user)
+                .setMaxResults(ROWS)
+                .getResultList()
+                .stream()
+                .map(ActivityService::toResponse)
+                .toList());
+        Supplier<List<ActivityResponse>> projection = () -> readOnly.execute(status ->
+                activityRepository.findResponsePage(user, Limit.of(ROWS)));
+
+        assertThat(projection.get()).isEqualTo(entities.get());
+        Result before = measure(entities);
+        Result after = measure(projection);
+        log.info("10k-row page, entities + toResponse: {} bytes/row, {} ms median", before.bytesPerRow(), before.medianMillis());
+        log.info("10k-row page, constructor projection: {} bytes/row, {} ms median", after.bytesPerRow(), after.medianMillis());
+        assertThat(after.bytesPerRow()).isLessThan(before.bytesPerRow());
+    }
+
+    private UserAccount seed() {
+        UserAccount user = userRepository.save(TestFixtures.user("Bench").build());
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from activities", Long.class);
+        ActivityType[] types = ActivityType.values();
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 1; i <= ROWS; i++) {
+            rows.add(new Object[] {maxId + i, user.getId(), types[i % types.length].name(), "Activity " + i, (double) (i % 7),
+                    "github", Timestamp.from(Instant.now().minus(i, ChronoUnit.MINUTES))});
+        }
+        jdbcTemplate.batchUpdate("insert into activities (id, user_id, type, description, metric_value, platform, occurred_at) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", rows);
+        return user;
+    }
+
+    private static Result measure(Supplier<List<ActivityResponse>> read) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            read.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[MEASURED_RUNS];
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            int rows = read.get().size();
+            nanos[i] = System.nanoTime() - start;
+            allocated += threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+            assertThat(rows).isEqualTo(ROWS);
+        }
+        Arrays.sort(nanos);
+        return new Result(allocated / ((long) MEASURED_RUNS * ROWS), nanos[MEASURED_RUNS / 2] / 1_000_000.0);
+    }
+
+    private record Result(long bytesPerRow, double medianMillis) {}
+}
@@ -0,0 +1,126 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static com.lifedata.dashboard.TestFixtures.concurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityPage;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.exception.BadRequestException;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ActivityServiceTests {
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Test
+    void concurrentRetriesWithOneExternalKeyAnswerTheStoredRow() throws Exception {
+        UserAccount user = userRepository.save(TestFixtures.user("Idempotent").timezone("UTC").build());
+        ActivityRequest request = new ActivityRequest(ActivityType.GITHUB_COMMITS, null, "push", 1.0, null, NOON,
+                null, null, null, null, null, null, null, null, null, "github:push:42");
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        concurrently(8, () -> ids.add(activityService.addActivity(user, request).id()));
+
+        assertThat(ids).hasSize(1);
+        assertThat(activityRepository.countByUser(user)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentBatchesSharingExternalKeysStoreEachKeyOnce() throws Exception {
+        UserAccount user = userRepository.save(TestFixtures.user("Batch").timezone("UTC").build());
+        List<ActivityRequest> batch = keyed("github:push:batch-", 5);
+        AtomicInteger stored = new AtomicInteger();
+
+        concurrently(8, () -> stored.addAndGet(activityService.addActivities(user, batch).count()));
+
+        assertThat(stored).hasValue(5);
+        assertThat(activityRepository.countByUser(user)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentImportBatchesSharingExternalKeysStoreEachKeyOnce() throws Exception {
+        UserAccount user = userRepository.save(TestFixtures.user("Import").timezone("UTC").build());
+        List<ActivityRequest> batch = keyed("import:row-", 5);
+        AtomicInteger stored = new AtomicInteger();
+
+        concurrently(8, () -> stored.addAndGet(activityService.importBatch(user, batch)));
+
+        assertThat(stored).hasValue(5);
+        assertThat(activityRepository.countByUser(user)).isEqualTo(5);
+    }
+
+    @Test
+    void pagesSplitTiesOnOccurredAtById() {
+        UserAccount user = userRepository.save(TestFixtures.user("Pages").timezone("UTC").build());
+        List<Long> expected = new ArrayList<>();
+        // Five rows share one instant, so every page boundary but the last falls inside the tie
+        for (int i = 0; i < 7; i++) {
+            ActivityType type = i % 2 == 0 ? ActivityType.GYM : ActivityType.STUDY;
+            expected.add(activityService.addActivity(user, new ActivityRequest(type, null, null, 1.0, null,
+                    i < 5 ? NOON : NOON.minus(Duration.ofHours(i)), null, null, null, null, null, null, null, null,
+                    null, null)).id());
+        }
+        // Newest first: the tied rows by id descending, then the older two
+        List<Long> order = new ArrayList<>(expected.subList(0, 5));
+        Collections.reverse(order);
+        order.addAll(expected.subList(5, 7));
+
+        assertThat(pageIds(cursor -> activityService.feed(user, 2, cursor))).containsExactlyElementsOf(order);
+        assertThat(pageIds(cursor -> activityService.byType(user, ActivityType.GYM, 2, cursor)))
+                .containsExactly(expected.get(4), expected.get(2), expected.get(0), expected.get(6));
+        assertThatThrownBy(() -> activityService.feed(user, 2, "tampered"))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    /**
+     * Ids of every page, following the cursors until there is none.
+     */
+    static List<Long> pageIds(Function<String, ActivityPage> page) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            ActivityPage next = page.apply(cursor);
+            next.items().forEach(activity -> ids.add(activity.id()));
+            cursor = next.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<ActivityRequest> keyed(String prefix, int count) {
+        List<ActivityRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(new ActivityRequest(ActivityType.GITHUB_COMMITS, null, "push", 1.0, null, NOON.plusSeconds(i),
+                    null, null, null, null, null, null, null, null, null, prefix + i));
+        }
+        return requests;
+    }
+}
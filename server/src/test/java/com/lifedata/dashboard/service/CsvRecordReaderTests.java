@@ -0,0 +1,80 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvRecordReaderTests {
+
+    @Test
+    void quotedFieldsKeepDelimitersLineBreaksAndDoubledQuotes() throws Exception {
+        // A four-char buffer makes every run and every doubled quote straddle a refill
+        List<List<String>> records = readAll("a,\"b,c\",\"say \"\"hi\"\"\"\r\n\"x\r\ny\",,z\r\n", 4, 100);
+
+        assertThat(records).containsExactly(
+                List.of("a", "b,c", "say \"hi\""),
+                List.of("x\r\ny", "", "z"));
+    }
+
+    @Test
+    void lineEndsMayBeLfOrCrlfAndTheLastNeedNotEndAtAll() throws Exception {
+        assertThat(readAll("a,b\nc,d\r\n\ne,f", 3, 100)).containsExactly(
+                List.of("a", "b"),
+                List.of("c", "d"),
+                List.of(""),
+                List.of("e", "f"));
+    }
+
+    @Test
+    void recordLongerThanTheCapThrows() throws Exception {
+        CsvRecordReader reader = reader("abcd\nabcdefgh,i\n", 4, 8);
+
+        assertThat(reader.next()).containsExactly("abcd");
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("longer than 8");
+    }
+
+    @Test
+    void quoteLeftOpenAtTheEndThrows() throws Exception {
+        CsvRecordReader reader = reader("a\n\"b,c\r\n", 4, 100);
+
+        assertThat(reader.next()).containsExactly("a");
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("not closed");
+    }
+
+    @Test
+    void scannerReadsLinesAcrossRefills() throws Exception {
+        CharScanner scanner = new CharScanner(new StringReader("{\"a\":1}\r\n\nlonger line\n"), 3);
+        StringBuilder line = new StringBuilder();
+
+        assertThat(scanner.readLine(line, 100)).hasToString("{\"a\":1}");
+        assertThat(scanner.readLine(line, 100)).hasToString("");
+        assertThat(scanner.readLine(line, 100)).hasToString("longer line");
+        assertThat(scanner.readLine(line, 100)).isNull();
+        assertThatThrownBy(() -> new CharScanner(new StringReader("0123456789\n"), 3).readLine(line, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<List<String>> readAll(String csv, int bufferChars, int maxRecordChars) throws IOException {
+        CsvRecordReader reader = reader(csv, bufferChars, maxRecordChars);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static CsvRecordReader reader(String csv, int bufferChars, int maxRecordChars) {
+        return new CsvRecordReader(new CharScanner(new StringReader(csv), bufferChars), maxRecordChars);
+    }
+}
@@ -0,0 +1,110 @@
+package com.lifedata.dashboard.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.lifedata.dashboard.dto.DashboardQuery;
+import com.lifedata.dashboard.dto.DashboardSummary;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DashboardSummaryCacheTests {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void evictionOfAnotherUserDoesNotDiscardALoad() {
+        DashboardSummaryCache cache = new DashboardSummaryCache(new SimpleMeterRegistry(), 100, 300);
+
+        cache.get(1L, 0L, DashboardQuery.ALL_TIME, () -> {
+            cache.evict(2L);
+            return load();
+        });
+        cache.get(1L, 0L, DashboardQuery.ALL_TIME, this::load);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void evictionOfTheSameUserDuringALoadIsNotStored() {
+        DashboardSummaryCache cache = new DashboardSummaryCache(new SimpleMeterRegistry(), 100, 300);
+
+        cache.get(1L, 0L, DashboardQuery.ALL_TIME, () -> {
+            cache.evict(1L);
+            return load();
+        });
+        cache.get(1L, 0L, DashboardQuery.ALL_TIME, this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void sizeBoundCountsSummariesAcrossUsers() {
+        DashboardSummaryCache cache = new DashboardSummaryCache(new SimpleMeterRegistry(), 5, 300);
+
+        for (int day = 1; day <= 3; day++) {
+            cache.get(1L, 0L, window(day), this::load);
+            cache.get(2L, 0L, window(day), this::load);
+        }
+
+        // User 1 was used least recently, so all of its windows went
+        assertThat(cache.size()).isEqualTo(3);
+        cache.get(2L, 0L, window(1), this::load);
+        assertThat(loads).hasValue(6);
+        cache.get(1L, 0L, window(1), this::load);
+        assertThat(loads).hasValue(7);
+    }
+
+    @Test
+    void eachUserKeepsItsMostRecentWindows() {
+        DashboardSummaryCache cache = new DashboardSummaryCache(new SimpleMeterRegistry(), 100, 300);
+
+        for (int day = 1; day <= 10; day++) {
+            cache.get(1L, 0L, window(day), this::load);
+        }
+
+        assertThat(cache.size()).isEqualTo(8);
+        cache.get(1L, 0L, window(10), this::load);
+        assertThat(loads).hasValue(10);
+        cache.get(1L, 0L, window(1), this::load);
+        assertThat(loads).hasValue(11);
+    }
+
+    @Test
+    void entryBuiltBeforeTheReadersVersionIsRebuilt() {
+        DashboardSummaryCache cache = new DashboardSummaryCache(new SimpleMeterRegistry(), 100, 300);
+
+        cache.get(1L, 3L, DashboardQuery.ALL_TIME, this::load);
+        // Another replica wrote; this node never saw an eviction
+        DashboardSummaryCache.VersionedSummary rebuilt = cache.get(1L, 4L, DashboardQuery.ALL_TIME, this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(rebuilt.dataVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void entryAheadOfTheReaderIsServedWithItsOwnVersion() {
+        DashboardSummaryCache cache = new DashboardSummaryCache(new SimpleMeterRegistry(), 100, 300);
+
+        cache.get(1L, 5L, DashboardQuery.ALL_TIME, this::load);
+        DashboardSummaryCache.VersionedSummary cached = cache.get(1L, 4L, DashboardQuery.ALL_TIME, this::load);
+
+        assertThat(loads).hasValue(1);
+        assertThat(cached.dataVersion()).isEqualTo(5L);
+    }
+
+    private DashboardSummary load() {
+        loads.incrementAndGet();
+        return null;
+    }
+
+    private static DashboardQuery window(int day) {
+        LocalDate date = LocalDate.of(2024, 1, day);
+        return new DashboardQuery(date, date, null);
+    }
+}
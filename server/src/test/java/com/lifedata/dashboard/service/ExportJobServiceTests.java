@@ -0,0 +1,175 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.ExportChunk;
+import com.lifedata.dashboard.model.ExportFormat;
+import com.lifedata.dashboard.model.ExportJob;
+import com.lifedata.dashboard.model.ExportStatus;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.ExportChunkRepository;
+import com.lifedata.dashboard.repository.ExportJobRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@SpringBootTest(properties = {"app.export.dir=target/test-exports", "app.export.chunk-rows=2"})
+@ActiveProfiles("test")
+class ExportJobServiceTests {
+
+    private static final Path DIRECTORY = Path.of("target/test-exports");
+
+    @Autowired
+    private ExportJobService exportJobService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private ExportJobRepository jobRepository;
+
+    @Autowired
+    private ExportChunkRepository chunkRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Test
+    void jobUnderAnotherNodesLiveLeaseIsLeftAlone() throws Exception {
+        UserAccount user = userWithActivities(3);
+        ExportJob job = jobRepository.save(job(user, "node-alive", Instant.now().plus(Duration.ofHours(1))));
+
+        exportJobService.recover();
+        Thread.sleep(500);
+
+        ExportJob stored = jobRepository.findById(job.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(ExportStatus.RUNNING);
+        assertThat(stored.getOwner()).isEqualTo("node-alive");
+        assertThat(stored.getRowCount()).isZero();
+    }
+
+    @Test
+    void jobWhoseLeaseLapsedIsTakenOverAfterItsLastIntactPart() throws Exception {
+        UserAccount user = userWithActivities(5);
+        List<ActivityResponse> stored = new ArrayList<>(activityRepository.findResponsePage(user, Limit.of(5)));
+        Collections.reverse(stored);
+        ExportJob job = jobRepository.save(job(user, "node-gone", Instant.now().minus(Duration.ofMinutes(1))));
+        Path jobDirectory = Files.createDirectories(DIRECTORY.resolve(job.getId()));
+
+        // Part 0 as the crashed node left it, with rows that only ever existed in the part, so keeping it shows
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        long rows = exportService.write(ExportFormat.CSV, true, part, consumer -> {
+            consumer.accept(renamed(stored.get(0), "kept-0"));
+            consumer.accept(renamed(stored.get(1), "kept-1"));
+        });
+        Files.write(jobDirectory.resolve("part-00000.csv"), part.toByteArray());
+        chunkRepository.save(chunk(job, 0, rows, part.toByteArray(), stored.get(1)));
+        // Part 1 was cut short by the crash: its file no longer matches the manifest and is written again
+        byte[] torn = "torn".getBytes(StandardCharsets.UTF_8);
+        Files.write(jobDirectory.resolve("part-00001.csv"), torn);
+        chunkRepository.save(chunk(job, 1, 2, "something else".getBytes(StandardCharsets.UTF_8), stored.get(3)));
+
+        exportJobService.recover();
+        ExportJob completed = awaitCompletion(job.getId());
+
+        String file = Files.readString(jobDirectory.resolve("activities.csv"));
+        assertThat(file).contains("kept-0", "kept-1", stored.get(2).description(), stored.get(4).description());
+        assertThat(file).doesNotContain("torn", stored.get(0).description(), stored.get(1).description());
+        assertThat(completed.getRowCount()).isEqualTo(5);
+        assertThat(completed.getOwner()).isEqualTo(exportJobService.nodeId());
+        assertThat(completed.getSha256()).isEqualTo(sha256(Files.readAllBytes(jobDirectory.resolve("activities.csv"))));
+    }
+
+    private UserAccount userWithActivities(int count) {
+        UserAccount user = userRepository.save(TestFixtures.user("Export").timezone("UTC").build());
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            activities.add(Activity.builder().user(user).type(ActivityType.GYM).value(1.0)
+                    .description("stored-" + UUID.randomUUID())
+                    .occurredAt(NOON.plus(Duration.ofMinutes(i))).build());
+        }
+        activityRepository.saveAll(activities);
+        return user;
+    }
+
+    private ExportJob awaitCompletion(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            ExportJob job = jobRepository.findById(id).orElseThrow();
+            if (job.getStatus() == ExportStatus.COMPLETED || job.getStatus() == ExportStatus.FAILED) {
+                assertThat(job.getError()).isNull();
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Export " + id + " did not finish");
+    }
+
+    private static ExportJob job(UserAccount user, String owner, Instant leaseUntil) {
+        Instant now = Instant.now();
+        return ExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .user(user)
+                .format(ExportFormat.CSV)
+                .status(ExportStatus.RUNNING)
+                .rowCount(0L)
+                .bytes(0L)
+                .owner(owner)
+                .leaseUntil(leaseUntil)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private static ExportChunk chunk(ExportJob job, int seq, long rows, byte[] content, ActivityResponse last) {
+        return ExportChunk.builder()
+                .job(job)
+                .seq(seq)
+                .rowCount(rows)
+                .bytes((long) content.length)
+                .sha256(sha256(content))
+                .lastOccurredAt(last.occurredAt())
+                .lastId(last.id())
+                .build();
+    }
+
+    private static ActivityResponse renamed(ActivityResponse a, String description) {
+        return new ActivityResponse(a.id(), a.type(), a.rpgStat(), description, a.value(), a.metadata(), a.occurredAt(),
+                a.platform(), a.repository(), a.difficulty(), a.timeSpentMinutes(), a.setsCompleted(),
+                a.repsCompleted(), a.likes(), a.comments(), a.shares());
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
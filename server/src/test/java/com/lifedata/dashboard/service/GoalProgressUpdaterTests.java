@@ -0,0 +1,145 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.concurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.Goal;
+import com.lifedata.dashboard.model.GoalPeriod;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.GoalRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class GoalProgressUpdaterTests {
+
+    @Autowired
+    private GoalProgressUpdater goalProgressUpdater;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private GoalRepository goalRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserAccount user;
+    private Instant today;
+    private Instant yesterday;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(TestFixtures.user("Goals").timezone("UTC").build());
+        today = LocalDate.now(ZoneOffset.UTC).atStartOfDay(ZoneOffset.UTC).toInstant();
+        yesterday = today.minus(Duration.ofDays(1));
+    }
+
+    @Test
+    void writeInTheCurrentWindowIsAddedToTheStoredValue() {
+        Goal goal = goal(2.0, today);
+
+        gym(3.0);
+
+        assertThat(stored(goal).getCurrentValue()).isEqualTo(5.0);
+        assertThat(stored(goal).getProgressWindowStart()).isEqualTo(today);
+    }
+
+    @Test
+    void firstWriteAfterRolloverResumsTheNewWindow() {
+        gym(4.0);
+        Goal goal = goal(10.0, yesterday);
+
+        gym(1.0);
+
+        // Yesterday's 10 is dropped; the new window holds both of today's writes
+        assertThat(stored(goal).getCurrentValue()).isEqualTo(5.0);
+        assertThat(stored(goal).getProgressWindowStart()).isEqualTo(today);
+    }
+
+    @Test
+    void concurrentWritersAcrossARolloverLoseNoDelta() throws Exception {
+        Goal goal = goal(10.0, yesterday);
+
+        concurrently(8, () -> gym(1.0));
+
+        assertThat(stored(goal).getCurrentValue()).isEqualTo(8.0);
+        assertThat(stored(goal).getProgressWindowStart()).isEqualTo(today);
+    }
+
+    @Test
+    void conditionalUpdatesOnlyApplyToTheWindowAndValueTheyExpect() {
+        Goal goal = goal(2.0, today);
+
+        assertThat(updated(() -> goalRepository.incrementProgress(goal.getId(), 1.0, yesterday))).isZero();
+        assertThat(updated(() -> goalRepository.resetProgress(goal.getId(), 0.0, today))).isZero();
+        assertThat(updated(() -> goalRepository.replaceProgress(goal.getId(), 7.0, today, 9.0, today, Instant.EPOCH))).isZero();
+        assertThat(stored(goal).getCurrentValue()).isEqualTo(2.0);
+
+        assertThat(updated(() -> goalRepository.replaceProgress(goal.getId(), 7.0, today, 2.0, today, Instant.EPOCH))).isEqualTo(1);
+        assertThat(stored(goal).getCurrentValue()).isEqualTo(7.0);
+    }
+
+    @Test
+    void rollOverOnlyTouchesGoalsWhoseWindowMoved() {
+        gym(4.0);
+        Goal rolled = goal(10.0, yesterday);
+        Goal drifted = goal(99.0, today);
+
+        assertThat(goalProgressUpdater.rollOver(user)).isEqualTo(1);
+        assertThat(stored(rolled).getCurrentValue()).isEqualTo(4.0);
+        assertThat(stored(rolled).getProgressWindowStart()).isEqualTo(today);
+        assertThat(stored(drifted).getCurrentValue()).isEqualTo(99.0);
+
+        // A full reconcile, as after an import, also repairs goals still in their window
+        assertThat(goalProgressUpdater.reconcile(user)).isEqualTo(1);
+        assertThat(stored(drifted).getCurrentValue()).isEqualTo(4.0);
+    }
+
+    private Goal goal(double currentValue, Instant windowStart) {
+        return goalRepository.save(Goal.builder()
+                .user(user)
+                .activityType(ActivityType.GYM)
+                .name("Daily gym " + System.nanoTime())
+                .period(GoalPeriod.DAILY)
+                .targetValue(10.0)
+                .currentValue(currentValue)
+                .progressWindowStart(windowStart)
+                .build());
+    }
+
+    private void gym(double value) {
+        activityService.addActivity(user, new ActivityRequest(ActivityType.GYM, null, "gym", value, null, Instant.now(),
+                null, null, null, null, null, null, null, null, null, null));
+    }
+
+    private int updated(IntSupplier update) {
+        Integer rows = new TransactionTemplate(transactionManager).execute(status -> update.getAsInt());
+        return rows != null ? rows : 0;
+    }
+
+    private Goal stored(Goal goal) {
+        return goalRepository.findById(goal.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,226 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.LifeDashboardApplication;
+import com.lifedata.dashboard.dto.ActivityRequest;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.LiveUpdateMessage;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.LiveUpdateMessageRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+import com.lifedata.dashboard.security.JwtService;
+
+/**
+ * Two application contexts on one in-memory H2 database stand in for two replicas: a write on node A must reach
+ * a session held by node B through the outbox, once, and only when it commits.
+ */
+class LiveUpdateOutboxTests {
+
+    private static final long GRACE_MILLIS = 1_000;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private final List<StompSession> sessions = new ArrayList<>();
+    private WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() {
+        String url = "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL";
+        nodeA = startNode("node-a", url);
+        nodeB = startNode("node-b", url);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @AfterEach
+    void disconnect() {
+        sessions.forEach(StompSession::disconnect);
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    void writeOnOneNodeReachesSessionsOnTheOther() throws Exception {
+        UserAccount user = user();
+        BlockingQueue<String> onA = subscribe(nodeA, user, "/user/queue/activity");
+        BlockingQueue<String> onB = subscribe(nodeB, user, "/user/queue/activity");
+
+        nodeA.getBean(ActivityService.class).addActivity(user, request("relayed"));
+
+        assertThat(onA.poll(5, TimeUnit.SECONDS)).contains("relayed");
+        assertThat(onB.poll(5, TimeUnit.SECONDS)).contains("relayed");
+        // Node A delivered its own frame directly and must not relay it again
+        assertThat(onA.poll(GRACE_MILLIS, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(onB.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void rolledBackWriteIsNeitherPushedNorRelayed() throws Exception {
+        UserAccount user = user();
+        BlockingQueue<String> onA = subscribe(nodeA, user, "/user/queue/activity");
+        BlockingQueue<String> onB = subscribe(nodeB, user, "/user/queue/activity");
+        TransactionTemplate transaction = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+
+        transaction.executeWithoutResult(status -> {
+            nodeA.getBean(ActivityService.class).addActivity(user, request("rolled back"));
+            status.setRollbackOnly();
+        });
+        nodeA.getBean(ActivityService.class).addActivity(user, request("committed"));
+
+        assertThat(onA.poll(5, TimeUnit.SECONDS)).contains("committed");
+        assertThat(onB.poll(5, TimeUnit.SECONDS)).contains("committed");
+        assertThat(onA.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(onB.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void rowCommittedAfterAHigherIdIsRelayedWithinTheGracePeriod() throws Exception {
+        UserAccount user = user();
+        BlockingQueue<String> onB = subscribe(nodeB, user, "/user/queue/activity");
+        LiveUpdateMessageRepository repository = nodeA.getBean(LiveUpdateMessageRepository.class);
+        TransactionTemplate transaction = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            repository.saveAndFlush(message(user, "slow"));
+            inserted.countDown();
+            await(commit);
+        }));
+        await(inserted);
+        transaction.executeWithoutResult(status -> repository.save(message(user, "fast")));
+        assertThat(onB.poll(5, TimeUnit.SECONDS)).contains("fast");
+        commit.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+
+        assertThat(onB.poll(5, TimeUnit.SECONDS)).contains("slow");
+    }
+
+    @Test
+    void pruneDeletesRowsPastRetention() {
+        UserAccount user = user();
+        LiveUpdateMessageRepository repository = nodeA.getBean(LiveUpdateMessageRepository.class);
+        LiveUpdateMessage stale = message(user, "stale");
+        stale.setCreatedAt(Instant.now().minus(Duration.ofHours(1)));
+        Long staleId = repository.save(stale).getId();
+        Long freshId = repository.save(message(user, "fresh")).getId();
+
+        assertThat(nodeB.getBean(LiveUpdateOutbox.class).prune()).isGreaterThanOrEqualTo(1);
+
+        assertThat(repository.existsById(staleId)).isFalse();
+        assertThat(repository.existsById(freshId)).isTrue();
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, String url) {
+        // Command-line arguments, so they take precedence over the test profile's datasource and schema settings
+        return new SpringApplicationBuilder(LifeDashboardApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--app.websocket.outbox.enabled=true",
+                        "--app.websocket.outbox.node-id=" + nodeId,
+                        "--app.websocket.outbox.poll-ms=50",
+                        "--app.websocket.outbox.grace-ms=" + GRACE_MILLIS);
+    }
+
+    private BlockingQueue<String> subscribe(ConfigurableApplicationContext node, UserAccount user, String destination)
+            throws Exception {
+        if (stompClient == null) {
+            stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+            stompClient.setMessageConverter(new StringMessageConverter() {
+                @Override
+                protected boolean supportsMimeType(MessageHeaders headers) {
+                    return true;
+                }
+            });
+            stompClient.setDefaultHeartbeat(new long[] {0, 0});
+        }
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization",
+                "Bearer " + node.getBean(JwtService.class).generateToken(user.getEmail(), Map.of()));
+        StompSession session = stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket",
+                new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+        sessions.add(session);
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add((String) payload);
+            }
+        });
+        // SUBSCRIBE is processed asynchronously; give the broker a moment before anything is published
+        Thread.sleep(200);
+        return frames;
+    }
+
+    private static UserAccount user() {
+        return nodeA.getBean(UserAccountRepository.class).save(TestFixtures.user("Outbox").build());
+    }
+
+    private static ActivityRequest request(String description) {
+        return new ActivityRequest(ActivityType.GYM, null, description, 1.0, null, null, null, null, null, null,
+                null, null, null, null, null, null);
+    }
+
+    private static LiveUpdateMessage message(UserAccount user, String description) {
+        return LiveUpdateMessage.builder()
+                .originNode("node-test")
+                .userEmail(user.getEmail())
+                .destination("/queue/activity")
+                .payload("{\"description\":\"" + description + "\"}")
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.lifedata.dashboard.dto.ActivityBatchResponse;
+import com.lifedata.dashboard.dto.ActivityResponse;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.service.LiveUpdatePublisher.PushMode;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LiveUpdatePublisherTests {
+
+    private static final long WINDOW_MILLIS = 200;
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final DashboardService dashboardService = mock(DashboardService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LiveUpdatePublisher publisher = new LiveUpdatePublisher(messagingTemplate, dashboardService,
+            mock(LiveUpdateOutbox.class), mock(ActivityEventStream.class), meterRegistry, PushMode.DELTA,
+            WINDOW_MILLIS, 1);
+    private final UserAccount user = UserAccount.builder().id(1L).email("delta@example.com").timezone("UTC").build();
+
+    @AfterEach
+    void shutdown() {
+        publisher.destroy();
+    }
+
+    @Test
+    void writesWithinOneWindowBecomeOneDelta() {
+        publisher.activityAdded(user, activity(1, ActivityType.GYM));
+        publisher.activityAdded(user, activity(2, ActivityType.STUDY));
+        publisher.activitiesAdded(user, new ActivityBatchResponse(2,
+                List.of(activity(3, ActivityType.GYM), activity(4, ActivityType.GYM))));
+
+        ArgumentCaptor<List<ActivityResponse>> activities = listCaptor();
+        verify(dashboardService, timeout(2_000)).delta(eq(user), eq(EnumSet.of(ActivityType.GYM, ActivityType.STUDY)),
+                eq(4), activities.capture());
+        // Newest first, like the feed
+        assertThat(activities.getValue()).extracting(ActivityResponse::id).containsExactly(4L, 3L, 2L, 1L);
+        verify(messagingTemplate, timeout(2_000)).convertAndSendToUser(eq(user.getEmail()), eq("/queue/dashboard"), any());
+        verify(messagingTemplate, after(WINDOW_MILLIS * 2).times(1)).convertAndSendToUser(any(), any(), any());
+
+        DistributionSummary coalesced = meterRegistry.get("live.push.coalesced.writes").summary();
+        assertThat(coalesced.count()).isEqualTo(1);
+        assertThat(coalesced.totalAmount()).isEqualTo(4.0);
+    }
+
+    @Test
+    void writeAfterAFlushOpensTheNextWindow() {
+        publisher.activityAdded(user, activity(1, ActivityType.GYM));
+        verify(dashboardService, timeout(2_000)).delta(eq(user), any(), eq(1), anyList());
+
+        publisher.activityAdded(user, activity(2, ActivityType.DSA));
+
+        verify(dashboardService, timeout(2_000)).delta(eq(user), eq(Set.of(ActivityType.DSA)), eq(1), anyList());
+        verify(messagingTemplate, timeout(2_000).times(2)).convertAndSendToUser(eq(user.getEmail()),
+                eq("/queue/dashboard"), any());
+    }
+
+    @Test
+    void deltaCarriesOnlyTheNewestActivities() {
+        List<ActivityResponse> burst = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            burst.add(activity(i, ActivityType.GYM));
+        }
+        publisher.activitiesAdded(user, new ActivityBatchResponse(burst.size(), burst));
+
+        ArgumentCaptor<List<ActivityResponse>> activities = listCaptor();
+        verify(dashboardService, timeout(2_000)).delta(eq(user), any(), eq(25), activities.capture());
+        assertThat(activities.getValue()).hasSize(20)
+                .first().extracting(ActivityResponse::id).isEqualTo(25L);
+    }
+
+    @Test
+    void activityModeEchoesEveryWriteWithoutADelta() {
+        LiveUpdatePublisher echoing = new LiveUpdatePublisher(messagingTemplate, dashboardService,
+                mock(LiveUpdateOutbox.class), mock(ActivityEventStream.class), meterRegistry, PushMode.ACTIVITY,
+                WINDOW_MILLIS, 1);
+
+        echoing.activityAdded(user, activity(1, ActivityType.GYM));
+        echoing.activityAdded(user, activity(2, ActivityType.GYM));
+
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq(user.getEmail()), eq("/queue/activity"), any());
+        verify(dashboardService, after(WINDOW_MILLIS * 2).never()).delta(any(), any(), anyInt(), anyList());
+        echoing.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<ActivityResponse>> listCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static ActivityResponse activity(long id, ActivityType type) {
+        return new ActivityResponse(id, type, null, null, 1.0, null, NOON.plus(Duration.ofMinutes(id)), null, null,
+                null, null, null, null, null, null, null);
+    }
+}
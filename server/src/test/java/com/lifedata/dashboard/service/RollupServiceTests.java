@@ -0,0 +1,116 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static com.lifedata.dashboard.TestFixtures.concurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityDailyRollup;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.RpgStat;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.ActivityDailyRollupRepository;
+import com.lifedata.dashboard.repository.ActivityRepository;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RollupServiceTests {
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private ActivityDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Test
+    void concurrentFirstWritesToOneBucketAddUp() throws Exception {
+        UserAccount user = user();
+        int writers = 8;
+        concurrently(writers, () -> rollupService.record(user, activity(user, ActivityType.GYM, NOON, 2.0)));
+
+        List<ActivityDailyRollup> rows = rollups(user);
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getActivityCount()).isEqualTo(writers);
+        assertThat(rows.get(0).getTotalValue()).isEqualTo(2.0 * writers);
+    }
+
+    @Test
+    void batchAddsToExistingAndNewBuckets() {
+        UserAccount user = user();
+        Instant nextDay = NOON.plusSeconds(86_400);
+        rollupService.record(user, activity(user, ActivityType.GYM, NOON, 3.0));
+
+        rollupService.recordAll(user, List.of(
+                activity(user, ActivityType.GYM, NOON, 1.0),
+                activity(user, ActivityType.GYM, nextDay, 4.0),
+                activity(user, ActivityType.STUDY, NOON, null),
+                activity(user, ActivityType.GYM, nextDay, 5.0)));
+
+        List<ActivityDailyRollup> rows = rollups(user);
+        assertThat(rows).extracting(ActivityDailyRollup::getDay, ActivityDailyRollup::getType,
+                ActivityDailyRollup::getRpgStat, ActivityDailyRollup::getTotalValue, ActivityDailyRollup::getActivityCount)
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2024, 3, 10), ActivityType.GYM, RpgStat.STR, 4.0, 2L),
+                        tuple(LocalDate.of(2024, 3, 10), ActivityType.STUDY, RpgStat.INT, 1.0, 1L),
+                        tuple(LocalDate.of(2024, 3, 11), ActivityType.GYM, RpgStat.STR, 9.0, 2L));
+        assertThat(rollupRepository.sumActivityCount(user)).isEqualTo(5);
+    }
+
+    /**
+     * New York moves from UTC-5 to UTC-4 at 07:00Z on 2024-03-10; a single fixed offset would put the last
+     * activity on the 10th instead of the 11th.
+     */
+    @Test
+    void rebuildBucketsByLocalDayAcrossDstChange() {
+        UserAccount user = userRepository.save(TestFixtures.user("Dst").timezone("America/New_York").build());
+        activityRepository.saveAll(List.of(
+                activity(user, ActivityType.GYM, Instant.parse("2024-03-10T04:30:00Z"), 1.0),
+                activity(user, ActivityType.GYM, Instant.parse("2024-03-10T05:30:00Z"), 2.0),
+                activity(user, ActivityType.GYM, Instant.parse("2024-03-11T03:30:00Z"), 4.0),
+                activity(user, ActivityType.GYM, Instant.parse("2024-03-11T04:30:00Z"), 8.0)));
+
+        rollupService.rebuild(user);
+
+        assertThat(rollups(user)).extracting(ActivityDailyRollup::getDay, ActivityDailyRollup::getTotalValue,
+                ActivityDailyRollup::getActivityCount)
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2024, 3, 9), 1.0, 1L),
+                        tuple(LocalDate.of(2024, 3, 10), 6.0, 2L),
+                        tuple(LocalDate.of(2024, 3, 11), 8.0, 1L));
+        // The 23-hour local day of the change, as an inclusive range
+        assertThat(activityRepository.sumValue(user, ActivityType.GYM, Instant.parse("2024-03-10T05:00:00Z"),
+                Instant.parse("2024-03-11T03:59:59.999Z"))).isEqualTo(6.0);
+    }
+
+    private List<ActivityDailyRollup> rollups(UserAccount user) {
+        return rollupRepository.findAll().stream()
+                .filter(row -> row.getUser().getId().equals(user.getId()))
+                .toList();
+    }
+
+    private UserAccount user() {
+        return userRepository.save(TestFixtures.user("Rollup").timezone("UTC").build());
+    }
+
+    private static Activity activity(UserAccount user, ActivityType type, Instant occurredAt, Double value) {
+        return Activity.builder().user(user).type(type).value(value).occurredAt(occurredAt).build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.lifedata.dashboard.service;
+
+import static com.lifedata.dashboard.TestFixtures.NOON;
+import static com.lifedata.dashboard.TestFixtures.concurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lifedata.dashboard.TestFixtures;
+import com.lifedata.dashboard.model.Activity;
+import com.lifedata.dashboard.model.ActivityStreak;
+import com.lifedata.dashboard.model.ActivityType;
+import com.lifedata.dashboard.model.UserAccount;
+import com.lifedata.dashboard.repository.UserAccountRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StreakServiceTests {
+
+    @Autowired
+    private StreakService streakService;
+
+    @Autowired
+    private UserAccountRepository userRepository;
+
+    @Test
+    void concurrentFirstWritesShareOneStreakRow() throws Exception {
+        UserAccount user = user();
+        concurrently(8, () -> streakService.record(user, activity(user, ActivityType.GYM, NOON)));
+
+        assertThat(streakService.streaks(user))
+                .extracting(ActivityStreak::getType, ActivityStreak::getCurrentLength,
+                        ActivityStreak::getLastActiveDay, ActivityStreak::getLongestLength)
+                .containsExactly(tuple(ActivityType.GYM, 1, LocalDate.of(2024, 3, 10), 1));
+    }
+
+    @Test
+    void firstBatchStartsRunOnItsEarliestDay() {
+        UserAccount user = user();
+
+        streakService.recordAll(user, List.of(
+                activity(user, ActivityType.STUDY, NOON.plusSeconds(86_400)),
+                activity(user, ActivityType.STUDY, NOON),
+                activity(user, ActivityType.STUDY, NOON.plusSeconds(2 * 86_400))));
+
+        assertThat(streakService.streaks(user))
+                .extracting(ActivityStreak::getCurrentLength, ActivityStreak::getLastActiveDay,
+                        ActivityStreak::getLongestLength)
+                .containsExactly(tuple(3, LocalDate.of(2024, 3, 12), 3));
+    }
+
+    private UserAccount user() {
+        return userRepository.save(TestFixtures.user("Streak").timezone("UTC").build());
+    }
+
+    private static Activity activity(UserAccount user, ActivityType type, Instant occurredAt) {
+        return Activity.builder().user(user).type(type).value(1.0).occurredAt(occurredAt).build();
+    }
+}
@@ -35,7 +35,7 @@ import {
   deleteAvatar,
   checkHealth,
 } from './api/client'
-import type { ActivityRequest, ActivityResponse, ActivityType, DashboardSummary, Goal, LeaderboardEntry, Achievement, GoalPeriod, Profile, GoalHistoryEntry, UpdateProfilePayload, RpgStat } from './api/types'
+import type { ActivityRequest, ActivityResponse, ActivityType, DashboardDelta, DashboardSummary, Goal, LeaderboardEntry, Achievement, GoalPeriod, Profile, GoalHistoryEntry, UpdateProfilePayload, RpgStat } from './api/types'
 import { LoginPage } from './components/LoginPage'
 import { useToast } from './components/Toast'
 const TrendChartLazy = React.lazy(async () => ({ default: (await import('./components/Charts')).TrendChart }))
@@ -118,6 +118,22 @@ const formatShortDate = (dateStr: string) => {
   return d.toLocaleDateString(undefined, { month: 'short', day: 'numeric' })
 }
 
+// Merges a pushed delta into the last fetched summary; trends and milestones refresh on the next full fetch
+const applyDashboardDelta = (summary: DashboardSummary, delta: DashboardDelta): DashboardSummary => {
+  const streakTypes = new Set(delta.streaks.map((s) => s.activityType))
+  const goalsById = new Map(delta.goals.map((g) => [g.id, g]))
+  return {
+    ...summary,
+    productivityScore: delta.productivityScore,
+    breakdown: { ...summary.breakdown, ...delta.breakdown },
+    rpgStats: { ...summary.rpgStats, ...delta.rpgStats },
+    streaks: [...summary.streaks.filter((s) => !streakTypes.has(s.activityType)), ...delta.streaks].sort((a, b) =>
+      a.activityType.localeCompare(b.activityType),
+    ),
+    goals: summary.goals.map((g) => goalsById.get(g.id) ?? g),
+  }
+}
+
 type OnboardingState = { dismissed: boolean; openedWorkspace: boolean }
 
 const defaultOnboardingState: OnboardingState = { dismissed: false, openedWorkspace: false }
@@ -796,6 +812,10 @@ function App() {
       {
         onConnect: () => setLiveConnected(true),
         onDisconnect: () => setLiveConnected(false),
+        onDelta: (delta) => {
+          setFeed((prev) => [...delta.activities, ...prev].slice(0, 50))
+          setDashboard((prev) => (prev ? applyDashboardDelta(prev, delta) : prev))
+        },
       },
     )
     return () => {
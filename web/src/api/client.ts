@@ -2,8 +2,10 @@ import axios from 'axios'
 import { Client } from '@stomp/stompjs'
 import SockJS from 'sockjs-client'
 import type {
+  ActivityBatchResponse,
   ActivityRequest,
   ActivityResponse,
+  DashboardDelta,
   DashboardSummary,
   Goal,
   LeaderboardEntry,
@@ -57,8 +59,8 @@ export function setUnauthorizedHandler(handler: (() => void) | null) {
   unauthorizedHandler = handler
 }
 
-export async function fetchDashboard(): Promise<DashboardSummary> {
-  const { data } = await api.get<DashboardSummary>('/dashboard')
+export async function fetchDashboard(window?: { from?: string; to?: string; granularity?: 'day' | 'week' | 'month' }): Promise<DashboardSummary> {
+  const { data } = await api.get<DashboardSummary>('/dashboard', { params: window })
   return data
 }
 
@@ -99,6 +101,11 @@ export async function createActivity(payload: ActivityRequest): Promise<Activity
   return data
 }
 
+export async function createActivities(activities: ActivityRequest[]): Promise<ActivityBatchResponse> {
+  const { data } = await api.post<ActivityBatchResponse>('/activities/batch', { activities })
+  return data
+}
+
 type GoalPayload = {
   name: string
   activityType: ActivityType
@@ -180,16 +187,21 @@ export async function changePassword(currentPassword: string, newPassword: strin
 
 export function connectLive(
   onMessage: (activity: ActivityResponse) => void,
-  callbacks?: { onConnect?: () => void; onDisconnect?: () => void },
+  callbacks?: { onConnect?: () => void; onDisconnect?: () => void; onDelta?: (delta: DashboardDelta) => void },
 ) {
   const client = new Client({
     webSocketFactory: () => new SockJS(`${API_BASE}/ws`),
     reconnectDelay: 5000,
     debug: () => {},
   })
+  // Read on every (re)connect so a refreshed token is picked up
+  client.beforeConnect = () => {
+    const token = localStorage.getItem(TOKEN_KEY)
+    client.connectHeaders = token ? { Authorization: `Bearer ${token}` } : {}
+  }
   client.onConnect = () => {
     callbacks?.onConnect?.()
-    client.subscribe('/topic/activity', (frame) => {
+    client.subscribe('/user/queue/activity', (frame) => {
       if (frame.body) {
         try {
           const parsed = JSON.parse(frame.body) as ActivityResponse
@@ -199,6 +211,26 @@ export function connectLive(
         }
       }
     })
+    client.subscribe('/user/queue/activity-batch', (frame) => {
+      if (frame.body) {
+        try {
+          const parsed = JSON.parse(frame.body) as ActivityBatchResponse
+          parsed.activities.forEach(onMessage)
+        } catch (err) {
+          console.error('Failed to parse activity batch message', err)
+        }
+      }
+    })
+    // Only sent when the server runs with app.websocket.push-mode=delta, instead of the two queues above
+    client.subscribe('/user/queue/dashboard', (frame) => {
+      if (frame.body) {
+        try {
+          callbacks?.onDelta?.(JSON.parse(frame.body) as DashboardDelta)
+        } catch (err) {
+          console.error('Failed to parse dashboard delta', err)
+        }
+      }
+    })
   }
   client.onStompError = () => callbacks?.onDisconnect?.()
   client.onWebSocketClose = () => callbacks?.onDisconnect?.()
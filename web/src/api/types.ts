@@ -27,6 +27,7 @@ export type ActivityRequest = {
   likes?: number | null
   comments?: number | null
   shares?: number | null
+  externalKey?: string | null
 }
 
 export type ActivityResponse = {
@@ -48,16 +49,32 @@ export type ActivityResponse = {
   shares?: number | null
 }
 
+export type ActivityBatchResponse = {
+  count: number
+  activities: ActivityResponse[]
+}
+
 export type DashboardSummary = {
   productivityScore: number
   breakdown: Record<string, number>
   rpgStats: Record<string, number>
   trends: { label: string; points: { period: string; value: number }[] }[]
-  streaks: { activityType: string; length: number }[]
+  streaks: { activityType: string; length: number; longest: number }[]
   milestones: { activityType: string; message: string }[]
   goals: { id: number; activityType: string; name: string; period: string; currentValue: number | null; targetValue: number | null; progress: number | null; unit?: string | null; customPeriodDays?: number | null; rpgStat?: string | null }[]
 }
 
+// Pushed on /user/queue/dashboard in delta mode; entries replace their counterparts in the last summary
+export type DashboardDelta = {
+  writes: number
+  productivityScore: number
+  breakdown: Record<string, number>
+  rpgStats: Record<string, number>
+  streaks: DashboardSummary['streaks']
+  goals: DashboardSummary['goals']
+  activities: ActivityResponse[]
+}
+
 export type Goal = {
   id: number
   name: string